@@ -0,0 +1,138 @@
+/*
+ * Copyright (c) 2023, Amazon.com, Inc. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Oracle designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package org.openjdk.shenandoah;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Counters the target publishes besides the region data, such as safepoint
+ * time or TLAB refills, sampled along with the regions so they can be
+ * graphed against region churn. Each snapshot keeps their values in a
+ * plain long array, in the order given here.
+ * <p>
+ * A counter written as {@code name/s} is cumulative, and is graphed as its
+ * rate per second rather than as its value.
+ */
+class AuxiliaryCounters {
+    static final String DEFAULT_SPEC = "sun.rt.safepointTime/s,sun.gc.tlab.fills/s";
+    static final AuxiliaryCounters NONE = new AuxiliaryCounters(new String[0], new boolean[0], null);
+
+    private static final String PER_SECOND = "/s";
+    private static final long[] NO_VALUES = new long[0];
+
+    private final String[] names;
+    private final boolean[] perSecond;
+    // Only set once bound to the counters of one target.
+    private final int[] handles;
+
+    private AuxiliaryCounters(String[] names, boolean[] perSecond, int[] handles) {
+        this.names = names;
+        this.perSecond = perSecond;
+        this.handles = handles;
+    }
+
+    /**
+     * Parses a comma separated list of counter names, or "none".
+     */
+    static AuxiliaryCounters parse(String spec) {
+        if (spec.isBlank() || spec.equals("none")) {
+            return NONE;
+        }
+        String[] entries = spec.split(",");
+        String[] names = new String[entries.length];
+        boolean[] perSecond = new boolean[entries.length];
+        for (int i = 0; i < entries.length; i++) {
+            String entry = entries[i].trim();
+            perSecond[i] = entry.endsWith(PER_SECOND);
+            names[i] = perSecond[i] ? entry.substring(0, entry.length() - PER_SECOND.length()) : entry;
+            if (names[i].isEmpty()) {
+                throw new IllegalArgumentException("Expected counter names separated by commas, got: " + spec);
+            }
+        }
+        return new AuxiliaryCounters(names, perSecond, null);
+    }
+
+    /**
+     * Resolves the counters against those of a target, leaving out the
+     * ones it does not publish.
+     */
+    AuxiliaryCounters bind(PerfCounters counters) {
+        List<Integer> found = new ArrayList<>();
+        List<Integer> handles = new ArrayList<>();
+        for (int i = 0; i < names.length; i++) {
+            int handle = counters.find(names[i]);
+            if (handle == PerfCounters.MISSING) {
+                System.out.println("Target does not publish counter: " + names[i]);
+            } else {
+                found.add(i);
+                handles.add(handle);
+            }
+        }
+        String[] boundNames = new String[found.size()];
+        boolean[] boundPerSecond = new boolean[found.size()];
+        for (int i = 0; i < boundNames.length; i++) {
+            boundNames[i] = names[found.get(i)];
+            boundPerSecond[i] = perSecond[found.get(i)];
+        }
+        return new AuxiliaryCounters(boundNames, boundPerSecond, handles.stream().mapToInt(Integer::intValue).toArray());
+    }
+
+    /**
+     * Reads the current values, in one pass over the bound counters.
+     */
+    long[] read(PerfCounters counters) {
+        if (handles == null || handles.length == 0) {
+            return NO_VALUES;
+        }
+        long[] values = new long[handles.length];
+        counters.get(handles, values);
+        return values;
+    }
+
+    int size() {
+        return names.length;
+    }
+
+    String name(int column) {
+        return names[column];
+    }
+
+    boolean isPerSecond(int column) {
+        return perSecond[column];
+    }
+
+    String label(int column) {
+        return perSecond[column] ? names[column] + PER_SECOND : names[column];
+    }
+
+    /**
+     * The column of the named counter, or -1 if it is not sampled.
+     */
+    int indexOf(String name) {
+        return Arrays.asList(names).indexOf(name);
+    }
+}
@@ -26,23 +26,50 @@ package org.openjdk.shenandoah;
 
 import java.util.*;
 
+/**
+ * A ring of the latest elements added, oldest first. The elements are kept
+ * in chunks that are only ever appended to, and dropped whole once all
+ * their elements have been removed, so that {@link #subList} can hand out
+ * views that share the chunks, and stay the same whatever is added or
+ * removed afterwards.
+ */
 class CircularBuffer<T> {
 
     static final int DEFAULT_SIZE = 8;
 
-    private final Object[] elements;
-    private int tail;
+    // Removed elements stay reachable until the rest of their chunk is removed too.
+    private static final int CHUNK = 64;
+
+    private final int capacity;
+    private final int chunkSize;
+    private final boolean growable;
+
+    // The chunks, from the one holding the oldest element on.
+    private Object[][] chunks;
+    private int first;
+    private int head;
     private int count;
 
     CircularBuffer(int size) {
-        elements = new Object[size];
-        count = tail = 0;
+        this(size, false);
+    }
+
+    /**
+     * @param growable whether the buffer grows when it holds size elements,
+     *                 rather than overwrite its oldest element
+     */
+    CircularBuffer(int size, boolean growable) {
+        this.capacity = size;
+        this.chunkSize = Math.max(1, Math.min(CHUNK, size));
+        this.growable = growable;
+        this.chunks = new Object[Math.max(2, (size + chunkSize - 1) / chunkSize + 1)][];
     }
 
     CircularBuffer(Collection<T> elements) {
-        this.elements = elements.toArray();
-        tail = 0;
-        count = this.elements.length;
+        this(Math.max(1, elements.size()), false);
+        for (T element : elements) {
+            add(element);
+        }
     }
 
     CircularBuffer() {
@@ -54,35 +81,99 @@ class CircularBuffer<T> {
     }
 
     void add(T i) {
-        elements[tail] = i;
-        tail = (tail  + 1) % elements.length;
+        if (count == capacity && !growable) {
+            removeFirst();
+        }
+        int position = head + count;
+        int chunk = first + position / chunkSize;
+        if (chunk == chunks.length) {
+            compact();
+            chunk = first + position / chunkSize;
+        }
+        if (chunks[chunk] == null) {
+            chunks[chunk] = new Object[chunkSize];
+        }
+        chunks[chunk][position % chunkSize] = i;
         ++count;
     }
 
+    /**
+     * Removes the oldest element, and returns it.
+     */
+    T removeFirst() {
+        if (count == 0) {
+            throw new NoSuchElementException();
+        }
+        T oldest = get(0);
+        --count;
+        if (++head == chunkSize) {
+            head = 0;
+            chunks[first++] = null;
+        }
+        return oldest;
+    }
+
+    // Moves the chunks in use to the start, doubling the room for them if
+    // they take up more than half of it.
+    private void compact() {
+        int used = chunks.length - first;
+        Object[][] compacted = used > chunks.length / 2 ? new Object[2 * chunks.length][] : chunks;
+        System.arraycopy(chunks, first, compacted, 0, used);
+        Arrays.fill(compacted, used, chunks.length, null);
+        chunks = compacted;
+        first = 0;
+    }
+
+    /**
+     * A view of the elements from include up to exclude, which is not
+     * changed by anything added or removed afterwards.
+     */
     List<T> subList(int include, int exclude) {
         if (include == exclude) {
             return Collections.emptyList();
         }
-
-        List<T> list = new ArrayList<>(exclude - include);
-        for (; include < exclude; ++include) {
-            list.add(get(include));
-        }
-        return list;
+        int from = head + include;
+        int to = head + exclude - 1;
+        Object[][] shared = Arrays.copyOfRange(chunks, first + from / chunkSize, first + to / chunkSize + 1);
+        return new View<>(shared, chunkSize, from % chunkSize, exclude - include);
     }
 
     T get(int elementAt) {
-        return (T) elements[index(elementAt)];
+        int position = head + elementAt;
+        return (T) chunks[first + position / chunkSize][position % chunkSize];
     }
 
     int size() {
-        return Math.min(count, elements.length);
+        return count;
     }
 
-    private int index(int offset) {
-        if (count <= elements.length) {
-            return offset;
+    /**
+     * Elements of the chunks it shares with the buffer, none of which are
+     * ever written to again once the view is taken.
+     */
+    private static final class View<T> extends AbstractList<T> implements RandomAccess {
+        private final Object[][] chunks;
+        private final int chunkSize;
+        private final int head;
+        private final int size;
+
+        View(Object[][] chunks, int chunkSize, int head, int size) {
+            this.chunks = chunks;
+            this.chunkSize = chunkSize;
+            this.head = head;
+            this.size = size;
+        }
+
+        @Override
+        public T get(int index) {
+            Objects.checkIndex(index, size);
+            int position = head + index;
+            return (T) chunks[position / chunkSize][position % chunkSize];
+        }
+
+        @Override
+        public int size() {
+            return size;
         }
-        return ((tail + offset) % elements.length);
     }
 }
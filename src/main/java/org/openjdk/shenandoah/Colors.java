@@ -47,11 +47,17 @@ class Colors {
     static final Color DEGENERATE = Color.ORANGE;
     static final Color FULL       = Color.RED;
 
+    static final Color SESSION_BOUNDARY = Color.MAGENTA;
+    static final Color AUXILIARY_COUNTER = new Color(0, 170, 230);
+
     static final Color SHARED_ALLOC         = new Color(0, 150, 250);
     static final Color TLAB_ALLOC           = new Color(0, 200, 0);
     static final Color GCLAB_ALLOC          = new Color(185, 0, 250);
     static final Color PLAB_ALLOC           = new Color(111, 78, 55);
 
+    // Allocation, promotion and reclamation rates.
+    static final Color[] RATES = {TLAB_ALLOC, OLD[0], Color.LIGHT_GRAY};
+
     static final Color USED                 = new Color(220, 220, 220);
     static final Color LIVE_REGULAR         = new Color(0, 200, 0);
     static final Color LIVE_HUMONGOUS       = new Color(250, 100, 0);
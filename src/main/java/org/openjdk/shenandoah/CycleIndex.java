@@ -0,0 +1,305 @@
+/*
+ * Copyright (c) 2023, Amazon.com, Inc. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Oracle designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package org.openjdk.shenandoah;
+
+import java.util.Arrays;
+import java.util.function.LongUnaryOperator;
+
+/**
+ * Segments a stream of snapshots into GC cycles as they come in, by the
+ * sequence numbers of their first and last snapshots, so that the cycle,
+ * or degenerated or full cycle, after or before any snapshot is found by
+ * binary search.
+ * <p>
+ * A cycle runs for as long as a collection is active. A new one starts
+ * within such a run when the young or global generation starts marking
+ * again, which separates the young cycles run during one old marking.
+ */
+final class CycleIndex {
+    /**
+     * What ran during a cycle, from the least to the most disruptive.
+     */
+    enum Type {
+        OLD, YOUNG, GLOBAL, DEGENERATED, FULL;
+
+        boolean isAnomaly() {
+            return this == DEGENERATED || this == FULL;
+        }
+
+        static Type of(Snapshot snapshot) {
+            if (snapshot.isFullActive()) {
+                return FULL;
+            }
+            if (snapshot.isDegenActive()) {
+                return DEGENERATED;
+            }
+            if (snapshot.getGlobalPhase() != Phase.IDLE) {
+                return GLOBAL;
+            }
+            if (snapshot.getYoungPhase() != Phase.IDLE) {
+                return YOUNG;
+            }
+            return OLD;
+        }
+    }
+
+    /**
+     * One cycle, from the sequence number of its first snapshot to that of
+     * its last, with the most used of the heap, in KB, at any of them, as
+     * far as it has been taken, see {@link #cycle(int, LongUnaryOperator)}.
+     */
+    static final class Cycle {
+        private final long start;
+        private final long end;
+        private final Type type;
+        private final long peakUsed;
+
+        Cycle(long start, long end, Type type, long peakUsed) {
+            this.start = start;
+            this.end = end;
+            this.type = type;
+            this.peakUsed = peakUsed;
+        }
+
+        long start() {
+            return start;
+        }
+
+        long end() {
+            return end;
+        }
+
+        Type type() {
+            return type;
+        }
+
+        long peakUsed() {
+            return peakUsed;
+        }
+
+        @Override
+        public String toString() {
+            return type + " " + start + "-" + end;
+        }
+    }
+
+    private long[] starts = new long[16];
+    private long[] ends = new long[16];
+    private Type[] types = new Type[16];
+    private long[] peaks = new long[16];
+    // The sequence number up to which the peak of each cycle has been taken.
+    private long[] peakedThrough = new long[16];
+    private int count;
+
+    // The cycles that were degenerated or full, by their index above.
+    private int[] anomalies = new int[16];
+    private int anomalyCount;
+
+    // Whether the last cycle is still running, and what its last snapshot was.
+    private boolean open;
+    private Phase lastYoungPhase = Phase.IDLE;
+    private Phase lastGlobalPhase = Phase.IDLE;
+
+    /**
+     * Adds the snapshot with the given sequence number, which must be
+     * greater than that of any snapshot added so far.
+     */
+    void add(long sequence, Snapshot snapshot) {
+        boolean active = snapshot.phase() != Phase.IDLE || snapshot.isDegenActive() || snapshot.isFullActive();
+        if (!active || snapshot.isSessionStart()) {
+            open = false;
+        }
+        if (active) {
+            boolean restarted = startsMarking(lastYoungPhase, snapshot.getYoungPhase())
+                    || startsMarking(lastGlobalPhase, snapshot.getGlobalPhase());
+            if (!open || restarted) {
+                start(sequence);
+            }
+            int last = count - 1;
+            ends[last] = sequence;
+            Type type = Type.of(snapshot);
+            if (type.compareTo(types[last]) > 0) {
+                if (type.isAnomaly() && !types[last].isAnomaly()) {
+                    addAnomaly(last);
+                }
+                types[last] = type;
+            }
+        }
+        lastYoungPhase = snapshot.getYoungPhase();
+        lastGlobalPhase = snapshot.getGlobalPhase();
+    }
+
+    private static boolean startsMarking(Phase before, Phase now) {
+        return now == Phase.MARKING && before != Phase.MARKING;
+    }
+
+    private void start(long sequence) {
+        if (count == starts.length) {
+            int capacity = count * 2;
+            starts = Arrays.copyOf(starts, capacity);
+            ends = Arrays.copyOf(ends, capacity);
+            types = Arrays.copyOf(types, capacity);
+            peaks = Arrays.copyOf(peaks, capacity);
+            peakedThrough = Arrays.copyOf(peakedThrough, capacity);
+        }
+        starts[count] = sequence;
+        ends[count] = sequence;
+        types[count] = Type.OLD;
+        peaks[count] = 0;
+        peakedThrough[count] = sequence - 1;
+        count++;
+        open = true;
+    }
+
+    private void addAnomaly(int cycle) {
+        if (anomalyCount == anomalies.length) {
+            anomalies = Arrays.copyOf(anomalies, anomalyCount * 2);
+        }
+        anomalies[anomalyCount++] = cycle;
+    }
+
+    void clear() {
+        count = 0;
+        anomalyCount = 0;
+        open = false;
+        lastYoungPhase = Phase.IDLE;
+        lastGlobalPhase = Phase.IDLE;
+    }
+
+    /**
+     * Forgets the cycles that ended before the given sequence number, once
+     * they make up half of those kept.
+     */
+    void trim(long sequence) {
+        int ended = 0;
+        while (ended < count && ends[ended] < sequence) {
+            ended++;
+        }
+        if (ended == 0 || ended < count / 2) {
+            return;
+        }
+        int kept = count - ended;
+        System.arraycopy(starts, ended, starts, 0, kept);
+        System.arraycopy(ends, ended, ends, 0, kept);
+        System.arraycopy(types, ended, types, 0, kept);
+        System.arraycopy(peaks, ended, peaks, 0, kept);
+        System.arraycopy(peakedThrough, ended, peakedThrough, 0, kept);
+        Arrays.fill(types, kept, count, null);
+        count = kept;
+
+        int anomaliesKept = 0;
+        for (int i = 0; i < anomalyCount; i++) {
+            if (anomalies[i] >= ended) {
+                anomalies[anomaliesKept++] = anomalies[i] - ended;
+            }
+        }
+        anomalyCount = anomaliesKept;
+    }
+
+    int size() {
+        return count;
+    }
+
+    Cycle cycle(int i) {
+        return new Cycle(starts[i], ends[i], types[i], peaks[i]);
+    }
+
+    /**
+     * The cycle, with its peak taken over the snapshots added to it since
+     * it was last asked for. The peak is only ever taken of the cycles
+     * looked at, and of each of their snapshots once.
+     *
+     * @param usedAt how much of the heap was used at the snapshot with the
+     *               given sequence number, or 0 if it is no longer held
+     */
+    Cycle cycle(int i, LongUnaryOperator usedAt) {
+        for (long sequence = peakedThrough[i] + 1; sequence <= ends[i]; sequence++) {
+            peaks[i] = Math.max(peaks[i], usedAt.applyAsLong(sequence));
+        }
+        peakedThrough[i] = ends[i];
+        return cycle(i);
+    }
+
+    /**
+     * The index of the first cycle, or degenerated or full cycle, that
+     * starts after the given sequence number, or -1 if there is none.
+     */
+    int next(long sequence, boolean anomaly) {
+        if (anomaly) {
+            int i = firstAnomalyAfter(sequence);
+            return i < anomalyCount ? anomalies[i] : -1;
+        }
+        int i = firstAfter(sequence);
+        return i < count ? i : -1;
+    }
+
+    /**
+     * The index of the last cycle, or degenerated or full cycle, that
+     * starts before the given sequence number, or -1 if there is none.
+     */
+    int previous(long sequence, boolean anomaly) {
+        if (anomaly) {
+            int i = firstAnomalyAfter(sequence - 1) - 1;
+            return i >= 0 ? anomalies[i] : -1;
+        }
+        return firstAfter(sequence - 1) - 1;
+    }
+
+    /**
+     * The index of the cycle the given sequence number is part of, or -1
+     * if the collector was idle then.
+     */
+    int at(long sequence) {
+        int i = firstAfter(sequence) - 1;
+        return i >= 0 && ends[i] >= sequence ? i : -1;
+    }
+
+    // The index of the first cycle that starts after the sequence number.
+    private int firstAfter(long sequence) {
+        int low = 0, high = count;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (starts[middle] <= sequence) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return low;
+    }
+
+    private int firstAnomalyAfter(long sequence) {
+        int low = 0, high = anomalyCount;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (starts[anomalies[middle]] <= sequence) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return low;
+    }
+}
@@ -44,9 +44,12 @@ import javax.management.remote.JMXServiceURL;
 import java.io.IOException;
 import java.lang.management.GarbageCollectorMXBean;
 import java.lang.management.ManagementFactory;
+import java.net.URISyntaxException;
+import java.util.Map;
+import java.util.Set;
 import java.util.concurrent.Executor;
 import java.util.concurrent.Executors;
-import java.util.function.Consumer;
+import java.util.function.BiConsumer;
 
 /**
  * Purpose of this class is to maintain a JMX connection to a JVM running
@@ -54,12 +57,18 @@ import java.util.function.Consumer;
  */
 class DataConnector {
     private static final String LOCAL_CONNECTOR_ADDRESS_PROP = "com.sun.management.jmxremote.localConnectorAddress";
+    static final String REGION_SAMPLING_FLAG = "ShenandoahRegionSampling";
+    private static final String REMOTE_CONNECTOR_ADDRESS_COUNTER = "sun.management.JMXConnectorServer.0.remoteAddress";
     private static final String SHENANDOAH_PAUSES_BEAN = "java.lang:name=Shenandoah Pauses,type=GarbageCollector";
+    private static final String CONNECTION_CHECK_PERIOD_PROP = "jmx.remote.x.client.connection.check.period";
+    private static final long CONNECTION_CHECK_PERIOD_MS = 1_000;
+    private static final long MIN_BACKOFF_MS = 250;
+    private static final long MAX_BACKOFF_MS = 30_000;
 
     private final Recorder histogramRecorder;
-    private final Histogram histogram;
+    private final PauseHistogram pauses;
 
-    private final Consumer<MonitoredVm> monitoredVmConsumer;
+    private final BiConsumer<MonitoredVm, MBeanServerConnection> monitoredVmConsumer;
 
     private volatile State status;
     private volatile boolean shouldRun;
@@ -67,18 +76,43 @@ class DataConnector {
     private final Executor executor;
 
     private volatile String targetVmIdentifier;
+    private volatile String host;
+    private volatile String requiredFlag;
+    private volatile boolean jmxEnabled;
     private JMXConnector jmxConnector;
+    private volatile Object currentSession;
+    private VmDiscovery discovery;
+
+    private volatile Reconnect reconnect;
+    private String connectedMainClass;
+    private String connectedCommandLine;
 
     enum State {
         SEARCHING, CONNECTING, CONNECTED, DISCONNECTING, DISCONNECTED
     }
 
-    DataConnector(Consumer<MonitoredVm> monitoredVmConsumer) {
+    /**
+     * What to do when the target goes away without us asking: nothing, or
+     * search again for any Shenandoah JVM, or only for one with the same
+     * main class or the same command line as the one we lost.
+     */
+    enum Reconnect {
+        NEVER, ANY, MAIN_CLASS, COMMAND_LINE
+    }
+
+    /**
+     * The consumer is given the JMX connection to each target found, or null
+     * when there is none, as for a target behind jstatd without a remote
+     * JMX agent.
+     */
+    DataConnector(BiConsumer<MonitoredVm, MBeanServerConnection> monitoredVmConsumer) {
         this.monitoredVmConsumer = monitoredVmConsumer;
+        this.requiredFlag = REGION_SAMPLING_FLAG;
         this.histogramRecorder = new Recorder(2);
-        this.histogram = new Histogram(2);
+        this.pauses = new PauseHistogram();
         this.shouldRun = true;
         this.status = State.DISCONNECTED;
+        this.reconnect = Reconnect.NEVER;
         this.executor = Executors.newSingleThreadExecutor(r -> {
             Thread t = new Thread(r);
             t.setDaemon(true);
@@ -91,25 +125,90 @@ class DataConnector {
         targetVmIdentifier = id;
     }
 
+    /**
+     * Searches the JVMs served by jstatd on the given host, rather than the
+     * local ones. Takes a jvmstat host identifier, with rmi as the default
+     * protocol, so that "localhost" means a jstatd on this machine.
+     */
+    void setHost(String host) {
+        this.host = remoteHost(host);
+    }
+
+    static String remoteHost(String host) {
+        return host == null || host.contains("://") ? host : "rmi://" + host;
+    }
+
+    boolean isRemote() {
+        return host != null;
+    }
+
+    void setReconnect(Reconnect reconnect) {
+        this.reconnect = reconnect;
+    }
+
+    /**
+     * Only connects to JVMs started with the given -XX flag, which is
+     * {@value #REGION_SAMPLING_FLAG} unless told otherwise.
+     */
+    void setRequiredFlag(String flag) {
+        this.requiredFlag = flag;
+    }
+
+    /**
+     * Whether to open a JMX connection to each target, which it is not by
+     * default. Without one, the target is not attached to, and whoever
+     * reads its counters records its pauses into {@link #pauseRecorder()}.
+     */
+    void setJmxEnabled(boolean jmxEnabled) {
+        this.jmxEnabled = jmxEnabled;
+    }
+
+    Recorder pauseRecorder() {
+        return histogramRecorder;
+    }
+
     private void searchForShenandoahVm() {
+        long backoff = MIN_BACKOFF_MS;
         while (shouldRun) {
             try {
                 MonitoredVm vm = findShenandoahVm();
                 if (vm != null) {
                     transitionTo(State.CONNECTING);
-                    MBeanServerConnection server = createServiceConnection(vm);
-                    subscribeToGarbageCollectorNotifications(server);
-                    monitoredVmConsumer.accept(vm);
+                    String mainClass = MonitoredVmUtil.mainClass(vm, true);
+                    String commandLine = MonitoredVmUtil.commandLine(vm);
+                    int pid = vm.getVmIdentifier().getLocalVmId();
+                    jmxConnector = null;
+                    currentSession = new Object();
+                    MBeanServerConnection server = jmxEnabled ? createServiceConnection(vm) : null;
+                    if (server != null) {
+                        subscribeToGarbageCollectorNotifications(server);
+                    }
+                    // May detach the vm, when the counters are read directly.
+                    monitoredVmConsumer.accept(vm, server);
+                    connectedMainClass = mainClass;
+                    connectedCommandLine = commandLine;
                     shouldRun = false;
                     transitionTo(State.CONNECTED);
+                    if (isRemote() || server == null) {
+                        watchTarget(pid);
+                    }
                 } else {
-                    Thread.sleep(250);
+                    discovery().awaitChange();
                 }
             } catch (InterruptedException e) {
                 shouldRun = false;
                 Thread.currentThread().interrupt();
             } catch (Exception e) {
                 e.printStackTrace();
+                transitionTo(State.SEARCHING);
+                try {
+                    // The target may still be starting up, or going away again.
+                    Thread.sleep(backoff);
+                    backoff = Math.min(MAX_BACKOFF_MS, backoff * 2);
+                } catch (InterruptedException ie) {
+                    shouldRun = false;
+                    Thread.currentThread().interrupt();
+                }
             }
         }
         System.out.println("Connection task completed: " + status);
@@ -138,7 +237,10 @@ class DataConnector {
             executor.execute(() -> {
                 try {
                     transitionTo(State.DISCONNECTING);
-                    jmxConnector.close();
+                    currentSession = null;
+                    if (jmxConnector != null) {
+                        jmxConnector.close();
+                    }
                     transitionTo(State.DISCONNECTED);
                 } catch (IOException e) {
                     e.printStackTrace();
@@ -153,51 +255,165 @@ class DataConnector {
     }
 
     Histogram getPauseHistogram() {
-        Histogram temp = histogramRecorder.getIntervalHistogram();
-        histogram.add(temp);
-        return histogram.copy();
+        pauses.add(histogramRecorder);
+        return pauses.snapshot();
     }
 
     private MonitoredVm findShenandoahVm() throws Exception {
-        HostIdentifier hostId = new HostIdentifier((String)null);
+        HostIdentifier hostId = new HostIdentifier(this.host);
         MonitoredHost host = MonitoredHost.getMonitoredHost(hostId);
 
         if (targetVmIdentifier != null) {
             try {
-                MonitoredVm vm = host.getMonitoredVm(new VmIdentifier(targetVmIdentifier));
+                MonitoredVm vm = host.getMonitoredVm(vmIdentifier(hostId, targetVmIdentifier));
                 String jvmArgs = MonitoredVmUtil.jvmArgs(vm);
-                if (jvmArgs.contains("ShenandoahRegionSampling")) {
+                if (jvmArgs.contains(requiredFlag)) {
                     System.out.println("Connecting to given vm: " + targetVmIdentifier);
                     return vm;
                 } else {
-                    System.out.println("Given identifier for vm " + targetVmIdentifier + " does not have ShenandoahRegionSampling enabled.");
+                    System.out.println("Given identifier for vm " + targetVmIdentifier + " does not have " + requiredFlag + " enabled.");
                 }
             } finally {
                 targetVmIdentifier = null;
             }
         }
 
-        for (Integer vmId: host.activeVms()) {
-            MonitoredVm vm = host.getMonitoredVm(new VmIdentifier(String.valueOf(vmId)));
-            String jvmArgs = MonitoredVmUtil.jvmArgs(vm);
-            if (jvmArgs.contains("ShenandoahRegionSampling")) {
-                System.out.println("Found vm running shenandoah region sampling: " + vm);
+        VmDiscovery discovery = discovery();
+        Set<Integer> activeVms = host.activeVms();
+        discovery.retainActive(activeVms);
+        for (Integer vmId: activeVms) {
+            if (!discovery.shouldExamine(vmId)) {
+                continue;
+            }
+
+            MonitoredVm vm;
+            String jvmArgs;
+            try {
+                vm = host.getMonitoredVm(vmIdentifier(hostId, String.valueOf(vmId)));
+                jvmArgs = MonitoredVmUtil.jvmArgs(vm);
+            } catch (MonitorException e) {
+                // Most likely still starting up, or already gone.
+                discovery.retryLater(vmId);
+                continue;
+            }
+
+            if (jvmArgs.contains(requiredFlag)) {
+                if (!isReconnectTarget(vm)) {
+                    // Not rejected for good, we may be asked to connect to anything later.
+                    vm.detach();
+                    continue;
+                }
+                System.out.println("Found vm running " + requiredFlag + ": " + vm);
+                discovery.forget(vmId);
                 return vm;
             }
+            discovery.reject(vmId);
+            vm.detach();
         }
-        System.out.println("Could not find a JVM running -XX:+ShenandoahRegionSampling!");
+        System.out.println("Could not find a JVM running -XX:+" + requiredFlag + "!");
         return null;
     }
 
-    private MBeanServerConnection createServiceConnection(MonitoredVm monitoredVm) throws AttachNotSupportedException, IOException {
-        String localJmxAddress = getLocalJmxAddress(monitoredVm);
-        JMXServiceURL url = new JMXServiceURL(localJmxAddress);
-        jmxConnector = JMXConnectorFactory.connect(url);
+    // Local identifiers stay as they are, so the target's file can be mapped.
+    private VmIdentifier vmIdentifier(HostIdentifier hostId, String id) throws URISyntaxException, MonitorException {
+        VmIdentifier vmId = new VmIdentifier(id);
+        return isRemote() ? hostId.resolve(vmId) : vmId;
+    }
+
+    private boolean isReconnectTarget(MonitoredVm vm) throws MonitorException {
+        if (connectedMainClass == null) {
+            return true;
+        }
+        switch (reconnect) {
+            case MAIN_CLASS:
+                return connectedMainClass.equals(MonitoredVmUtil.mainClass(vm, true));
+            case COMMAND_LINE:
+                return connectedCommandLine.equals(MonitoredVmUtil.commandLine(vm));
+            default:
+                return true;
+        }
+    }
+
+    private VmDiscovery discovery() {
+        if (discovery == null) {
+            discovery = new VmDiscovery(!isRemote());
+        }
+        return discovery;
+    }
+
+    private MBeanServerConnection createServiceConnection(MonitoredVm monitoredVm) throws AttachNotSupportedException, IOException, MonitorException {
+        String jmxAddress;
+        if (isRemote()) {
+            jmxAddress = getRemoteJmxAddress(monitoredVm);
+            if (jmxAddress == null) {
+                System.out.println("Target has no remote JMX agent, reading pause times from its counters");
+                return null;
+            }
+        } else {
+            jmxAddress = getLocalJmxAddress(monitoredVm);
+        }
+
+        JMXServiceURL url = new JMXServiceURL(jmxAddress);
+        try {
+            // Notice a dead target quickly, rather than after the default minute.
+            jmxConnector = JMXConnectorFactory.connect(url, Map.of(CONNECTION_CHECK_PERIOD_PROP, CONNECTION_CHECK_PERIOD_MS));
+        } catch (IOException | SecurityException e) {
+            if (!isRemote()) {
+                throw e;
+            }
+            // Region data does not need JMX, carry on with pause times from the counters.
+            System.out.println("Cannot connect to " + url + ", reading pause times from its counters: " + e.getMessage());
+            return null;
+        }
         MBeanServerConnection server = jmxConnector.getMBeanServerConnection();
+        currentSession = server;
         jmxConnector.addConnectionNotificationListener(this::handleConnectionNotification, null, server);
         return server;
     }
 
+    /**
+     * The address of the target's remote JMX agent, if it runs one. The
+     * agent publishes it under the target's own host name, which need not
+     * resolve from here, so it is pointed at the jstatd host instead.
+     */
+    private static String getRemoteJmxAddress(MonitoredVm monitoredVm) throws MonitorException {
+        Monitor address = monitoredVm.findByName(REMOTE_CONNECTOR_ADDRESS_COUNTER);
+        if (!(address instanceof StringMonitor)) {
+            return null;
+        }
+        String host = monitoredVm.getVmIdentifier().getHost();
+        return ((StringMonitor) address).stringValue().replaceFirst("/jndi/rmi://[^:/]*", "/jndi/rmi://" + host);
+    }
+
+    /**
+     * Without a JMX connection, nothing tells us the target went away, and
+     * a jstatd in between may go away itself. Either way, the target no
+     * longer shows up among the host's active VMs.
+     */
+    private void watchTarget(int pid) {
+        Object session = currentSession;
+        Thread watch = new Thread(() -> {
+            try {
+                MonitoredHost host = MonitoredHost.getMonitoredHost(new HostIdentifier(this.host));
+                while (session == currentSession) {
+                    Thread.sleep(CONNECTION_CHECK_PERIOD_MS);
+                    if (!host.activeVms().contains(pid)) {
+                        System.out.println("Target " + pid + " is no longer running");
+                        break;
+                    }
+                }
+            } catch (InterruptedException e) {
+                return;
+            } catch (Exception e) {
+                System.out.println("Cannot list the active VMs: " + e.getMessage());
+            }
+            targetLost(session);
+        });
+        watch.setDaemon(true);
+        watch.setName("TargetWatch");
+        watch.start();
+    }
+
     private String getLocalJmxAddress(MonitoredVm monitoredVm) throws AttachNotSupportedException, IOException {
         int pid = monitoredVm.getVmIdentifier().getLocalVmId();
         VirtualMachine vm = VirtualMachine.attach(String.valueOf(pid));
@@ -217,8 +433,23 @@ class DataConnector {
 
     private void handleConnectionNotification(Notification notification, Object serverConnection) {
         System.out.println(notification.getType() + ": " + notification.getMessage());
-        if (JMXConnectionNotification.CLOSED.equals(notification.getType())) {
-            transitionTo(State.DISCONNECTED);
+        if (JMXConnectionNotification.CLOSED.equals(notification.getType())
+                || JMXConnectionNotification.FAILED.equals(notification.getType())) {
+            targetLost(serverConnection);
+        }
+    }
+
+    private synchronized void targetLost(Object session) {
+        // Ignore late news of a connection we already replaced,
+        // and of connections we are closing ourselves (DISCONNECTING).
+        if (session != currentSession || status != State.CONNECTED) {
+            return;
+        }
+        currentSession = null;
+        transitionTo(State.DISCONNECTED);
+        if (reconnect != Reconnect.NEVER) {
+            System.out.println("Lost connection to target, searching for a new one");
+            start();
         }
     }
 
@@ -30,7 +30,6 @@ import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.Paths;
 import java.util.ArrayList;
-import java.util.List;
 import java.util.concurrent.TimeUnit;
 
 class DataLogProvider {
@@ -43,6 +42,8 @@ class DataLogProvider {
 
         long protocolVersion = LATEST_VERSION;
         var events = new ArrayList<Snapshot>();
+        long[] previous = null;
+        HeapRates rates = HeapRates.NONE;
         try (BufferedReader br = new BufferedReader(new FileReader(filePath))) {
             // Metadata line: timestamp status numRegions regionSize
             String metaDataLine;
@@ -67,7 +68,14 @@ class DataLogProvider {
                 long tsMilli = TimeUnit.NANOSECONDS.toMillis(metaData[0]);
                 long regionSize = metaData[3];
                 int status = Math.toIntExact(metaData[1]);
-                events.add(new Snapshot(tsMilli, regionSize, protocolVersion, processRegionStats(regionData), status, null));
+                long[] regions = processRegionStats(regionData);
+                RegionChanges changes = RegionChanges.between(previous, regions);
+                rates = rates.next(tsMilli, regionSize, changes);
+                events.add(new Snapshot.Builder(tsMilli, regionSize, protocolVersion, regions, status)
+                        .changes(changes)
+                        .rates(rates)
+                        .build());
+                previous = regions;
             }
         } catch (IOException e) {
             throw new RuntimeException(e);
@@ -99,10 +107,10 @@ class DataLogProvider {
         return longArray;
     }
 
-    private static List<RegionStat> processRegionStats(String[] regionData) throws NumberFormatException {
-        List<RegionStat> stats = new ArrayList<>(regionData.length);
-        for (String d : regionData) {
-            stats.add(new RegionStat(Long.parseLong(d)));
+    private static long[] processRegionStats(String[] regionData) throws NumberFormatException {
+        long[] stats = new long[regionData.length];
+        for (int i = 0; i < regionData.length; i++) {
+            stats[i] = Long.parseLong(regionData[i]);
         }
         return stats;
     }
@@ -26,67 +26,152 @@
 package org.openjdk.shenandoah;
 
 import org.HdrHistogram.Histogram;
-import sun.jvmstat.monitor.LongMonitor;
-import sun.jvmstat.monitor.MonitorException;
+import sun.jvmstat.monitor.HostIdentifier;
 import sun.jvmstat.monitor.MonitoredVm;
+import sun.jvmstat.monitor.VmIdentifier;
 
-import java.util.ArrayList;
+import javax.management.MBeanServerConnection;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
 import java.util.Collections;
-import java.util.List;
+import java.util.function.Consumer;
 
 class DataProvider {
-    private static final long ORIGINAL_VERSION = 1;
     private static final long LATEST_VERSION = 2;
-    static final Snapshot DISCONNECTED = new Snapshot(System.currentTimeMillis(), 1024, LATEST_VERSION, Collections.emptyList(), 0, new Histogram(2));
+    static final Snapshot DISCONNECTED = new Snapshot.Builder(System.currentTimeMillis(), 1024, LATEST_VERSION, Collections.emptyList(), 0)
+            .histogram(new Histogram(2))
+            .build();
     private final DataConnector connector;
 
-    private int maxRegions;
-    private long protocolVersion;
-    private long maxSize;
-    private LongMonitor[] data;
-    private LongMonitor status;
-
-    private MonitoredVm vm;
+    private volatile RegionSampler sampler;
+    private volatile JfrStreamProvider stream;
+    private volatile boolean streamEvents;
+    private volatile boolean jmxEnabled;
+    private volatile boolean pausesFromCounters = true;
+    private volatile int readRetries = RegionSampler.DEFAULT_READ_RETRIES;
+    private volatile AuxiliaryCounters auxiliaryCounters = AuxiliaryCounters.parse(AuxiliaryCounters.DEFAULT_SPEC);
+    private volatile long unchangedSamples;
 
     DataProvider() {
         connector = new DataConnector(this::setMonitoredVm);
     }
 
-    private void setMonitoredVm(MonitoredVm vm) {
-        this.vm = vm;
-
-        LongMonitor max_regions_mon = getMonitor("sun.gc.shenandoah.regions.max_regions");
-        maxRegions = (int) max_regions_mon.longValue();
-        // Read in the version of the garbage collector
-        LongMonitor protocol_version_mon = getMonitor("sun.gc.shenandoah.regions.protocol_version");
-        if (protocol_version_mon == null) {
-            protocolVersion = ORIGINAL_VERSION;
+    private void setMonitoredVm(MonitoredVm vm, MBeanServerConnection server) {
+        closeStream();
+        if (streamEvents) {
+            vm.detach();
+            if (server == null) {
+                throw new IllegalStateException("Streaming events needs a JMX connection to the target");
+            }
+            try {
+                stream = new JfrStreamProvider(server);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            System.out.println("Streaming region events from: " + vm.getVmIdentifier());
         } else {
-            protocolVersion = protocol_version_mon.longValue();
+            // Pauses come from JMX when there is a connection, they would be counted twice.
+            pausesFromCounters = server == null;
+            setCounters(openCounters(vm));
+        }
+    }
+
+    /**
+     * Connects to the target's JMX agent, attaching to it and starting the
+     * agent if need be, to log the cause of each pause and to notice at once
+     * when it goes away. Pause times are read from perf counters otherwise.
+     */
+    void setJmxEnabled(boolean jmxEnabled) {
+        this.jmxEnabled = jmxEnabled;
+        connector.setJmxEnabled(jmxEnabled || streamEvents);
+    }
+
+    /**
+     * Streams region events from the target over JMX, instead of sampling
+     * its region counters, from the next connection on. The target then
+     * needs -XX:+UseShenandoahGC rather than -XX:+ShenandoahRegionSampling.
+     */
+    void setEventStreaming(boolean streamEvents) {
+        this.streamEvents = streamEvents;
+        connector.setJmxEnabled(jmxEnabled || streamEvents);
+        connector.setRequiredFlag(streamEvents ? "UseShenandoahGC" : DataConnector.REGION_SAMPLING_FLAG);
+    }
+
+    private void closeStream() {
+        JfrStreamProvider stream = this.stream;
+        if (stream != null) {
+            this.stream = null;
+            stream.close();
         }
+    }
+
+    void setCounters(PerfCounters counters) {
+        sampler = new RegionSampler(counters, auxiliaryCounters, pausesFromCounters ? connector.pauseRecorder() : null, readRetries);
+    }
 
-        LongMonitor max_size_mon = getMonitor("sun.gc.shenandoah.regions.region_size");
-        maxSize = max_size_mon.longValue();
-        status = getMonitor("sun.gc.shenandoah.regions.status");
-
-        data = new LongMonitor[maxRegions];
-        for (int i = 0; i < maxRegions; i++) {
-            LongMonitor mon = getMonitor("sun.gc.shenandoah.regions.region." + i + ".data");
-            if (mon != null) {
-                data[i] = mon;
-            } else {
-                throw new IllegalStateException("Insufficient shared memory for all region counters. " +
-                        "Try -XX:PerfDataMemorySize=512K or higher when running the monitored program.");
+    /**
+     * How many times to read the regions again when they were read while
+     * the JVM was rewriting them, from the next connection on.
+     */
+    void setReadRetries(int readRetries) {
+        this.readRetries = readRetries;
+    }
+
+    /**
+     * The counters to sample along with the regions, from the next
+     * connection on.
+     */
+    void setAuxiliaryCounters(AuxiliaryCounters auxiliaryCounters) {
+        this.auxiliaryCounters = auxiliaryCounters;
+    }
+
+    /**
+     * Prefers mapping the target's hsperfdata file directly, which saves an
+     * indirect jvmstat call per region on every sample. For a target behind
+     * jstatd, fetches its perf data in one call per sample rather than
+     * relying on jvmstat's own polling. Falls back to jvmstat when neither
+     * works. The given vm is detached unless the counters read through it.
+     */
+    static PerfCounters openCounters(MonitoredVm vm) {
+        if (!Boolean.getBoolean("use.jvmstat")) {
+            PerfCounters counters = openDirect(vm.getVmIdentifier());
+            if (counters != null) {
+                vm.detach();
+                return counters;
             }
         }
+        return new JvmstatCounters(vm);
     }
 
-    private <T> T getMonitor(String key) {
-        try {
-            return (T) vm.findByName(key);
-        } catch (MonitorException e) {
-            throw new IllegalStateException(e);
+    private static PerfCounters openDirect(VmIdentifier id) {
+        if (isLocal(id)) {
+            Path path = PerfDataFile.locate(id.getLocalVmId());
+            if (path != null) {
+                try {
+                    PerfDataFile file = PerfDataFile.open(path);
+                    System.out.println("Reading region data from: " + path);
+                    return file;
+                } catch (IOException e) {
+                    System.out.println("Could not map " + path + ", using jvmstat: " + e.getMessage());
+                }
+            }
+        } else if ("rmi".equals(id.getScheme())) {
+            try {
+                JstatdCounters counters = JstatdCounters.attach(new HostIdentifier(id), id.getLocalVmId());
+                System.out.println("Reading region data through jstatd: " + id);
+                return counters;
+            } catch (IOException e) {
+                System.out.println("Could not attach through jstatd, using jvmstat: " + e.getMessage());
+            } catch (IllegalAccessError e) {
+                System.out.println("Reading through jstatd needs --add-exports jdk.jstatd/sun.jvmstat.monitor.remote=ALL-UNNAMED, using jvmstat");
+            }
         }
+        return null;
+    }
+
+    static boolean isLocal(VmIdentifier id) {
+        return id.getScheme() == null || "local".equals(id.getScheme());
     }
 
     boolean isConnected() {
@@ -97,24 +182,82 @@ class DataProvider {
         if (!connector.isConnected()) {
             return null;
         }
+        JfrStreamProvider stream = this.stream;
+        return stream != null ? stream.poll() : sample();
+    }
+
+    /**
+     * Hands over every snapshot available now: one sample of the counters,
+     * or all that were streamed since the last call. Returns how many.
+     */
+    int drainSnapshots(Consumer<Snapshot> consumer) {
+        int count = 0;
+        Snapshot snapshot = snapshot();
+        while (snapshot != null) {
+            consumer.accept(snapshot);
+            count++;
+            snapshot = stream != null ? snapshot() : null;
+        }
+        return count;
+    }
 
-        List<RegionStat> stats = new ArrayList<>();
-        for (int c = 0; c < maxRegions; c++) {
-            stats.add(new RegionStat(data[c].longValue()));
+    /**
+     * Returns a new snapshot, or null if nothing changed since the last one.
+     */
+    Snapshot sample() {
+        // Snapshots share a copy of the pause histogram until the next pause,
+        // the connector's own histogram is not thread safe.
+        Snapshot snapshot = sampler.sample(connector::getPauseHistogram);
+        if (snapshot == null) {
+            unchangedSamples++;
         }
+        return snapshot;
+    }
 
-        // Cannot use timestamp value from the dataset itself, because statistics
-        // is not reported continuously
-        long time = System.currentTimeMillis();
+    long unchangedSamples() {
+        return unchangedSamples;
+    }
 
-        // These histograms are not thread safe so we pass a copy here. Also, if
-        // we ever add a feature to 'replay' sessions, we'll not want these snapshots
-        // sharing a histogram.
-        return new Snapshot(time, maxSize, protocolVersion, stats, (int) status.longValue(), connector.getPauseHistogram());
+    long readNanos() {
+        RegionSampler sampler = this.sampler;
+        return sampler == null ? 0 : sampler.readNanos();
+    }
+
+    long maxReadNanos() {
+        RegionSampler sampler = this.sampler;
+        return sampler == null ? 0 : sampler.maxReadNanos();
+    }
+
+    long readRetries() {
+        RegionSampler sampler = this.sampler;
+        return sampler == null ? 0 : sampler.retries();
+    }
+
+    long inconsistentReads() {
+        RegionSampler sampler = this.sampler;
+        return sampler == null ? 0 : sampler.inconsistentReads();
+    }
+
+    boolean isRemote() {
+        return connector.isRemote();
+    }
+
+    /**
+     * Whether a collection was running as of the most recent sample, even
+     * if that sample was skipped as unchanged.
+     */
+    boolean isCycleActive() {
+        JfrStreamProvider stream = this.stream;
+        if (stream != null) {
+            return stream.isCycleActive() && connector.isConnected();
+        }
+        RegionSampler sampler = this.sampler;
+        return sampler != null && sampler.isCycleActive() && connector.isConnected();
     }
 
     void stopConnector() {
         connector.stop();
+        closeStream();
     }
 
     void startConnector() { connector.start(); }
@@ -126,4 +269,12 @@ class DataProvider {
     void setConnectionTarget(String vmIdentifier) {
         connector.connectTo(vmIdentifier);
     }
+
+    void setHost(String host) {
+        connector.setHost(host);
+    }
+
+    void setReconnect(DataConnector.Reconnect reconnect) {
+        connector.setReconnect(reconnect);
+    }
 }
@@ -24,16 +24,49 @@
  */
 package org.openjdk.shenandoah;
 
+import java.util.AbstractList;
 import java.util.Collections;
 import java.util.List;
+import java.util.RandomAccess;
 import java.util.concurrent.TimeUnit;
 
 class EventLog<T extends Timed> {
+    /**
+     * Where the events evicted from memory go, to be read back as if they
+     * were still in the log, ahead of those in memory.
+     */
+    interface Spill<T> {
+        int size();
+
+        T get(int index);
+
+        long time(int index);
+
+        /**
+         * Adds the newest event, and returns how many of the oldest were
+         * dropped to make room for it.
+         */
+        int add(T event);
+
+        /**
+         * The events held now, which stay the same whatever is added or
+         * dropped afterwards, but may no longer be readable once dropped:
+         * reading those may throw {@link java.util.ConcurrentModificationException}.
+         */
+        List<T> view();
+
+        void clear();
+    }
+
     private CircularBuffer<T> events;
+    private Spill<T> spill;
     private TimeUnit eventTimeUnit;
     private int cursor;
     private long referenceTime;
 
+    // How many events were ever added, which numbers them in sequence.
+    private long added;
+
     EventLog() {
         this(TimeUnit.NANOSECONDS);
     }
@@ -44,7 +77,16 @@ class EventLog<T extends Timed> {
     }
 
     EventLog(TimeUnit eventTimeUnit, int eventLogSize) {
-        this.events = new CircularBuffer<>(eventLogSize);
+        this(eventTimeUnit, eventLogSize, false);
+    }
+
+    /**
+     * @param growable whether the log grows as events are added, and only
+     *                 drops those {@link #evictOldest() evicted}, rather
+     *                 than overwrite the oldest once it holds eventLogSize
+     */
+    EventLog(TimeUnit eventTimeUnit, int eventLogSize, boolean growable) {
+        this.events = new CircularBuffer<>(eventLogSize, growable);
         this.eventTimeUnit = eventTimeUnit;
     }
 
@@ -54,6 +96,7 @@ class EventLog<T extends Timed> {
         }
 
         events.add(t);
+        added(added++, t);
 
         if (referenceTime == 0) {
             referenceTime = t.time();
@@ -62,13 +105,51 @@ class EventLog<T extends Timed> {
         }
     }
 
+    /**
+     * The events up to the cursor, oldest first. The list is an immutable
+     * view that shares the events with the log, rather than a copy of
+     * them, and stays the same whatever is added or evicted afterwards.
+     * Spilled events dropped since may throw
+     * {@link java.util.ConcurrentModificationException} when read.
+     */
     synchronized List<T> inRange() {
-        if (events.isEmpty() || cursor == 0) {
+        if (size() == 0 || cursor == 0) {
             return Collections.emptyList();
         }
 
-        assert 1 <= cursor && cursor <= events.size();
-        return events.subList(0, cursor);
+        assert 1 <= cursor && cursor <= size();
+        int spilled = spilled();
+        if (spilled == 0) {
+            return events.subList(0, cursor);
+        }
+        List<T> older = spill.view();
+        if (cursor <= spilled) {
+            return older.subList(0, cursor);
+        }
+        return new Joined<>(older, events.subList(0, cursor - spilled));
+    }
+
+    /**
+     * The events spilled, followed by those in memory.
+     */
+    private static final class Joined<T> extends AbstractList<T> implements RandomAccess {
+        private final List<T> older;
+        private final List<T> newer;
+
+        Joined(List<T> older, List<T> newer) {
+            this.older = older;
+            this.newer = newer;
+        }
+
+        @Override
+        public T get(int index) {
+            return index < older.size() ? older.get(index) : newer.get(index - older.size());
+        }
+
+        @Override
+        public int size() {
+            return older.size() + newer.size();
+        }
     }
 
     synchronized void stepBy(int amount) {
@@ -76,8 +157,8 @@ class EventLog<T extends Timed> {
     }
 
     void stepTo(int value) {
-        if (events.size() > 0) {
-            cursor = clamp(value, events.size());
+        if (size() > 0) {
+            cursor = clamp(value, size());
             referenceTime = current().time();
         }
     }
@@ -100,27 +181,184 @@ class EventLog<T extends Timed> {
     }
 
     private void advanceTo(long pointInTime) {
-        for (int i = cursor; i < events.size(); ++i) {
-            var event = events.get(i);
-            if (pointInTime < event.time()) {
-                break;
+        cursor = Math.max(cursor, indexAfter(pointInTime, cursor));
+        referenceTime = pointInTime;
+    }
+
+    /**
+     * Moves the cursor to the latest event no later than the given point
+     * in time, or the first event if they are all later.
+     */
+    synchronized void seekTo(long pointInTime, TimeUnit timeUnit) {
+        long eventTime = eventTimeUnit.convert(pointInTime, timeUnit);
+        stepTo(indexAfter(eventTime, 0));
+    }
+
+    /**
+     * The index of the first event from the given one on that is later
+     * than the given time, or the size of the log if there is none. Looks
+     * at one, two, four and so on events ahead before searching between
+     * the last two, so that moving a little costs little, and moving far
+     * costs the logarithm of the distance.
+     */
+    private int indexAfter(long time, int from) {
+        int size = size();
+        int low = from, step = 1;
+        while (low < size && time(low) <= time) {
+            from = low + 1;
+            low = from + step - 1;
+            step <<= 1;
+        }
+        int high = Math.min(low, size);
+        low = from;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (time(middle) <= time) {
+                low = middle + 1;
+            } else {
+                high = middle;
             }
-            cursor++;
         }
-        referenceTime = pointInTime;
+        return low;
     }
 
     synchronized T current() {
         if (cursor == 0) {
             return null;
         }
-        return events.get(cursor - 1);
+        return event(cursor - 1);
     }
 
-    int size() {
+    /**
+     * Returns the latest event up to the cursor that is no later than the
+     * given time, or null if there is none.
+     */
+    synchronized T latestAt(long time) {
+        int after = Math.min(indexAfter(time, 0), cursor);
+        return after == 0 ? null : event(after - 1);
+    }
+
+    /**
+     * Whether the given event is the current one, and comes right after
+     * the other one.
+     */
+    synchronized boolean isCurrentAfter(T current, T earlier) {
+        return cursor >= 2 && event(cursor - 1) == current && event(cursor - 2) == earlier;
+    }
+
+    /**
+     * The oldest event the log still holds, or null if it is empty.
+     */
+    synchronized T first() {
+        return size() == 0 ? null : event(0);
+    }
+
+    /**
+     * The newest event in the log, or null if it is empty.
+     */
+    synchronized T last() {
+        return events.isEmpty() ? null : events.get(events.size() - 1);
+    }
+
+    /**
+     * The sequence number of the current event, counting every event ever
+     * added to the log from zero, or -1 if there is none.
+     */
+    synchronized long currentSequence() {
+        return cursor == 0 ? -1 : firstSequence() + cursor - 1;
+    }
+
+    /**
+     * Moves the cursor to the event with the given sequence number, if the
+     * log still holds it.
+     */
+    synchronized void stepToSequence(long sequence) {
+        long first = firstSequence();
+        if (first <= sequence && sequence < added) {
+            stepTo((int) (sequence - first + 1));
+        }
+    }
+
+    // The sequence number of the oldest event the log still holds.
+    long firstSequence() {
+        return added - size();
+    }
+
+    /**
+     * The event with the given sequence number, or null if the log no
+     * longer holds it.
+     */
+    synchronized T atSequence(long sequence) {
+        long first = firstSequence();
+        return first <= sequence && sequence < added ? event((int) (sequence - first)) : null;
+    }
+
+    /**
+     * Evicts the oldest event in memory, to the spill if there is one,
+     * keeping the cursor on the same event, unless that is dropped. Only
+     * to be called while holding the lock.
+     */
+    T evictOldest() {
+        T oldest = events.removeFirst();
+        int dropped = spill == null ? 1 : spill.add(oldest);
+        if (cursor > 0) {
+            cursor = Math.max(1, cursor - dropped);
+        }
+        return oldest;
+    }
+
+    /**
+     * Spills the events evicted from now on, rather than drop them.
+     */
+    synchronized void spillTo(Spill<T> spill) {
+        this.spill = spill;
+    }
+
+    /**
+     * The number of events held in memory, the newest of those held.
+     */
+    int inMemory() {
         return events.size();
     }
 
+    /**
+     * The oldest event held in memory, or null if there is none.
+     */
+    T oldestInMemory() {
+        return events.isEmpty() ? null : events.get(0);
+    }
+
+    private int spilled() {
+        return spill == null ? 0 : spill.size();
+    }
+
+    private T event(int index) {
+        int spilled = spilled();
+        return index < spilled ? spill.get(index) : events.get(index - spilled);
+    }
+
+    private long time(int index) {
+        int spilled = spilled();
+        return index < spilled ? spill.time(index) : events.get(index - spilled).time();
+    }
+
+    /**
+     * Called with each event added to the log, while holding its lock.
+     */
+    void added(long sequence, T event) {
+    }
+
+    /**
+     * Called with the events that replaced any in the log, numbered in
+     * sequence from zero.
+     */
+    void loaded(List<T> events) {
+    }
+
+    int size() {
+        return spilled() + events.size();
+    }
+
     int cursor() {
         return cursor;
     }
@@ -130,8 +368,13 @@ class EventLog<T extends Timed> {
     }
 
     final void load(TimeUnit eventTimeUnit, List<T> events) {
+        if (spill != null) {
+            spill.clear();
+        }
         this.events = new CircularBuffer<>(events);
         this.eventTimeUnit = eventTimeUnit;
         this.referenceTime = this.events.get(0).time();
+        this.added = this.events.size();
+        loaded(events);
     }
 }
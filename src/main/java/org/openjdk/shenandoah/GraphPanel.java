@@ -28,9 +28,14 @@ import javax.swing.*;
 import java.awt.*;
 import java.awt.event.ComponentAdapter;
 import java.awt.event.ComponentEvent;
+import java.util.ConcurrentModificationException;
 import java.util.List;
 
 class GraphPanel extends JPanel {
+    private static final int COUNTER_BAND_HEIGHT = 30;
+    private static final int COUNTER_BAND_GAP = 2;
+    private static final String[] RATE_LABELS = {"Allocation", "Promotion", "Reclamation"};
+
     private final RenderRunner renderRunner;
 
     int graphWidth, graphHeight;
@@ -48,10 +53,21 @@ class GraphPanel extends JPanel {
 
     @Override
     public void paint(Graphics g) {
-        List<Snapshot> snapshots = renderRunner.snapshots();
+        try {
+            paintHistory(g, renderRunner.snapshots());
+        } catch (ConcurrentModificationException e) {
+            // The oldest history was overwritten while painting it, the next paint leaves it out.
+        }
+    }
 
+    private void paintHistory(Graphics g, List<Snapshot> snapshots) {
         int pad = 30;
-        int bandHeight = (graphHeight - pad) / 2;
+        AuxiliaryCounters counters = renderRunner.snapshot().auxiliaryCounters();
+        // Rates and counters get the bottom of the graph, but never more than a third of it.
+        int bands = RATE_LABELS.length + counters.size();
+        int counterBandHeight = Math.min(COUNTER_BAND_HEIGHT, graphHeight / 3 / bands);
+        int countersHeight = counterBandHeight * bands;
+        int bandHeight = (graphHeight - pad - countersHeight) / 2;
         int bandWidth = graphWidth;
         int phaseHeight = bandHeight / 4;
         double stepY = 1D * bandHeight / renderRunner.snapshot().total();
@@ -81,6 +97,7 @@ class GraphPanel extends JPanel {
 
         for (int i = snapshots.size() - 1; i >= 0 && snapshotStartX >=0; --i) {
             Snapshot snapshot = snapshots.get(i);
+            SnapshotSummary summary = snapshot.summary();
             snapshotStartX -= snapshotWidth;
 
             if (snapshot.getOldPhase() == Phase.MARKING && snapshot.getGlobalPhase() == Phase.IDLE) {
@@ -88,8 +105,8 @@ class GraphPanel extends JPanel {
                 g.drawRect(snapshotStartX, bandHeight + pad, snapshotWidth, phaseHeight);
             }
 
-            if (snapshot.percentageOfOldRegionsInCollectionSet() > 0) {
-                int height = (int) (bandHeight * snapshot.percentageOfOldRegionsInCollectionSet());
+            if (summary.percentageOfOldRegionsInCollectionSet() > 0) {
+                int height = (int) (bandHeight * summary.percentageOfOldRegionsInCollectionSet());
                 g.setColor(Colors.OLD[0]);
                 g.drawRect(snapshotStartX, 2 * bandHeight + pad - height, snapshotWidth, height);
             }
@@ -105,6 +122,12 @@ class GraphPanel extends JPanel {
                 g.drawRect(snapshotStartX, bandHeight + pad + 3 * phaseHeight, snapshotWidth, phaseHeight);
             }
 
+            if (snapshot.isSessionStart() && i > 0) {
+                // Reconnected to a (possibly restarted) target here.
+                g.setColor(Colors.SESSION_BOUNDARY);
+                g.drawLine(snapshotStartX, 0, snapshotStartX, 2 * bandHeight + pad);
+            }
+
             if (snapshot.isFullActive()) {
                 g.setColor(Colors.FULL);
                 g.drawRect(snapshotStartX, bandHeight + pad, snapshotWidth, 10);
@@ -115,11 +138,11 @@ class GraphPanel extends JPanel {
 
             // Draw these in the upper band.
             g.setColor(Colors.USED);
-            g.drawRect(snapshotStartX, (int) Math.round(startRaw - snapshot.used() * stepY), 1, 1);
+            g.drawRect(snapshotStartX, (int) Math.round(startRaw - summary.used() * stepY), 1, 1);
             g.setColor(Colors.LIVE_REGULAR);
-            g.drawRect(snapshotStartX, (int) Math.round(startRaw - snapshot.live() * stepY), 1, 1);
+            g.drawRect(snapshotStartX, (int) Math.round(startRaw - summary.live() * stepY), 1, 1);
             g.setColor(Colors.LIVE_CSET);
-            g.drawRect(snapshotStartX, (int) Math.round(startRaw - snapshot.collectionSet() * stepY), 1, 1);
+            g.drawRect(snapshotStartX, (int) Math.round(startRaw - summary.collectionSet() * stepY), 1, 1);
 
             g.setColor(Color.WHITE);
             g.drawString("OM", phaseLabelOffsetX, phaseLabelOffsetY);
@@ -144,6 +167,111 @@ class GraphPanel extends JPanel {
                 g2.drawString(snapshot.time() + " ms", threeFourths + 3, timelineMarkTextOffsetY);
             }
         }
+
+        int ratesTop = 2 * bandHeight + pad;
+        paintRates(g, snapshots, ratesTop, bandWidth, counterBandHeight);
+        paintCounters(g, snapshots, counters, ratesTop + RATE_LABELS.length * counterBandHeight, bandWidth, counterBandHeight);
+    }
+
+    /**
+     * Draws one band per heap rate, in MB per second, each scaled to its own
+     * maximum over the snapshots on screen.
+     */
+    private static void paintRates(Graphics g, List<Snapshot> snapshots, int top, int width, int bandHeight) {
+        int visible = Math.min(snapshots.size(), width);
+        int first = snapshots.size() - visible;
+        double[] values = new double[visible];
+        for (int rate = 0; rate < RATE_LABELS.length; rate++) {
+            for (int i = 0; i < visible; i++) {
+                values[i] = rateValue(snapshots.get(first + i).rates(), rate);
+            }
+            paintBand(g, values, Colors.RATES[rate], RATE_LABELS[rate] + " MB/s (max %,.1f)",
+                    top + rate * bandHeight, width, bandHeight);
+        }
+    }
+
+    private static double rateValue(HeapRates rates, int rate) {
+        if (!rates.isKnown()) {
+            return Double.NaN;
+        }
+        switch (rate) {
+            case 0: return rates.allocation() / 1024;
+            case 1: return rates.promotion() / 1024;
+            case 2: return rates.reclamation() / 1024;
+            default:
+                throw new IllegalArgumentException("Unknown rate: " + rate);
+        }
+    }
+
+    /**
+     * Draws one band per auxiliary counter, each scaled to its own maximum
+     * over the snapshots on screen.
+     */
+    private static void paintCounters(Graphics g, List<Snapshot> snapshots, AuxiliaryCounters counters, int top, int width, int bandHeight) {
+        int visible = Math.min(snapshots.size(), width);
+        int first = snapshots.size() - visible;
+        double[] values = new double[visible];
+        for (int column = 0; column < counters.size(); column++) {
+            for (int i = 0; i < visible; i++) {
+                values[i] = counterValue(snapshots, first + i, counters.name(column), counters.isPerSecond(column));
+            }
+            paintBand(g, values, Colors.AUXILIARY_COUNTER, counters.label(column).replace("%", "%%") + " (max %,.0f)",
+                    top + column * bandHeight, width, bandHeight);
+        }
+    }
+
+    /**
+     * Draws the values as bars, right-aligned and scaled to their maximum,
+     * and labels the band with the given format of that maximum.
+     */
+    private static void paintBand(Graphics g, double[] values, Color color, String label, int top, int width, int bandHeight) {
+        int height = bandHeight - COUNTER_BAND_GAP;
+        double max = 0;
+        for (double value : values) {
+            if (value > max) {
+                max = value;
+            }
+        }
+
+        int y = top + COUNTER_BAND_GAP;
+        g.setColor(Color.BLACK);
+        g.fillRect(0, y, width, height);
+        g.setColor(color);
+        for (int i = 0; i < values.length; i++) {
+            if (max > 0 && !Double.isNaN(values[i])) {
+                int x = width - values.length + i;
+                int h = (int) Math.round(height * values[i] / max);
+                g.drawLine(x, y + height - h, x, y + height);
+            }
+        }
+        g.setColor(Color.WHITE);
+        g.drawString(String.format(label, max), 5, y + Math.min(height, 12));
+    }
+
+    /**
+     * The value of the named counter in the given snapshot, or its rate
+     * since the one before, or NaN if not known.
+     */
+    static double counterValue(List<Snapshot> snapshots, int index, String name, boolean perSecond) {
+        Snapshot snapshot = snapshots.get(index);
+        AuxiliaryCounters counters = snapshot.auxiliaryCounters();
+        int column = counters.indexOf(name);
+        if (column < 0) {
+            return Double.NaN;
+        }
+        long value = snapshot.auxiliaryValue(column);
+        if (!perSecond) {
+            return value;
+        }
+        if (index == 0 || snapshot.isSessionStart()) {
+            return Double.NaN;
+        }
+        Snapshot previous = snapshots.get(index - 1);
+        long elapsed = snapshot.time() - previous.time();
+        if (previous.auxiliaryCounters() != counters || elapsed <= 0) {
+            return Double.NaN;
+        }
+        return (value - previous.auxiliaryValue(column)) * 1000.0 / elapsed;
     }
 
     protected static Color getColor(Snapshot s) {
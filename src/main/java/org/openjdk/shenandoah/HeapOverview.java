@@ -0,0 +1,137 @@
+/*
+ * Copyright (c) 2023, Amazon.com, Inc. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Oracle designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package org.openjdk.shenandoah;
+
+import javax.swing.*;
+import java.awt.*;
+import java.awt.event.MouseAdapter;
+import java.awt.event.MouseEvent;
+import java.util.List;
+
+/**
+ * Shows every monitored heap as a small tile. Clicking a tile opens that
+ * heap in the main window.
+ */
+class HeapOverview extends JFrame {
+    private static final long serialVersionUID = 1L;
+    private static final int LABEL_HEIGHT = 16;
+    private static final int TILE_GAP = 6;
+
+    private final RenderRunner renderRunner;
+    private final TargetMonitor monitor;
+
+    HeapOverview(RenderRunner renderRunner, TargetMonitor monitor) {
+        this.renderRunner = renderRunner;
+        this.monitor = monitor;
+
+        setSize(800, 600);
+        setLayout(new BorderLayout());
+        setTitle("Heaps");
+
+        var tilesPanel = new TilesPanel();
+        tilesPanel.addMouseListener(new MouseAdapter() {
+            @Override
+            public void mouseClicked(MouseEvent e) {
+                List<LiveTarget> targets = monitor.targets();
+                int tile = tilesPanel.tileAt(e.getX(), e.getY(), targets.size());
+                if (tile >= 0) {
+                    renderRunner.view(targets.get(tile));
+                }
+            }
+        });
+        getContentPane().add(tilesPanel, BorderLayout.CENTER);
+    }
+
+    private class TilesPanel extends JPanel {
+        private static final long serialVersionUID = 1L;
+
+        private int columns(int tiles) {
+            return Math.max(1, (int) Math.ceil(Math.sqrt(tiles)));
+        }
+
+        private int rows(int tiles) {
+            return Math.max(1, (tiles + columns(tiles) - 1) / columns(tiles));
+        }
+
+        int tileAt(int x, int y, int tiles) {
+            int tileWidth = getWidth() / columns(tiles);
+            int tileHeight = getHeight() / rows(tiles);
+            if (tileWidth == 0 || tileHeight == 0) {
+                return -1;
+            }
+            int tile = (y / tileHeight) * columns(tiles) + x / tileWidth;
+            return x / tileWidth < columns(tiles) && tile < tiles ? tile : -1;
+        }
+
+        @Override
+        public void paint(Graphics g) {
+            g.setColor(Color.WHITE);
+            g.fillRect(0, 0, getWidth(), getHeight());
+
+            List<LiveTarget> targets = monitor.targets();
+            if (targets.isEmpty()) {
+                g.setColor(Color.BLACK);
+                g.drawString("Searching for JVMs with ShenandoahRegionSampling.", 10, LABEL_HEIGHT);
+                return;
+            }
+
+            int columns = columns(targets.size());
+            int tileWidth = getWidth() / columns;
+            int tileHeight = getHeight() / rows(targets.size());
+            for (int i = 0; i < targets.size(); i++) {
+                int x = (i % columns) * tileWidth;
+                int y = (i / columns) * tileHeight;
+                renderTile(g, targets.get(i), x, y, tileWidth - TILE_GAP, tileHeight - TILE_GAP);
+            }
+        }
+
+        private void renderTile(Graphics g, LiveTarget target, int x, int y, int width, int height) {
+            boolean viewed = target == renderRunner.viewedTarget();
+            g.setColor(target.isCycleActive() ? Colors.GLOBAL[0] : Color.BLACK);
+            g.drawString(target.pid() + " " + target.mainClass(), x + 2, y + LABEL_HEIGHT - 4);
+            g.setColor(viewed ? Color.BLUE : Colors.BORDER);
+            g.drawRect(x, y, width, height);
+
+            Snapshot snapshot = target.latest();
+            if (snapshot == null || snapshot.regionCount() == 0) {
+                return;
+            }
+
+            int mapWidth = width - 2;
+            int mapHeight = height - LABEL_HEIGHT - 1;
+            int sqSize = Math.max(1, (int) Math.sqrt(1D * mapWidth * mapHeight / snapshot.regionCount()));
+            int cols = Math.max(1, mapWidth / sqSize);
+            RegionStat view = new RegionStat(0L);
+            for (int r = 0; r < snapshot.regionCount(); r++) {
+                int rectY = (r / cols) * sqSize;
+                if (rectY + sqSize > mapHeight) {
+                    break;
+                }
+                g.setColor(snapshot.get(r, view).summaryColor());
+                g.fillRect(x + 1 + (r % cols) * sqSize, y + LABEL_HEIGHT + rectY, sqSize, sqSize);
+            }
+        }
+    }
+}
@@ -0,0 +1,114 @@
+/*
+ * Copyright (c) 2023, Amazon.com, Inc. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Oracle designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package org.openjdk.shenandoah;
+
+/**
+ * The rates at which the heap is allocated, promoted and reclaimed, in KB
+ * per second, as of one snapshot. Each is a moving average, exponentially
+ * weighted by time, of what the {@link RegionChanges} of the snapshots so
+ * far add up to, and is worked out as the snapshots come in.
+ */
+final class HeapRates {
+    static final HeapRates NONE = new HeapRates(0, 0, 0, 0, false);
+
+    // What happened this long ago weighs half as much as what happens now.
+    static final long HALF_LIFE_MS = 5_000;
+
+    private final long time;
+    private final double allocation;
+    private final double promotion;
+    private final double reclamation;
+    private final boolean known;
+
+    private HeapRates(long time, double allocation, double promotion, double reclamation, boolean known) {
+        this.time = time;
+        this.allocation = allocation;
+        this.promotion = promotion;
+        this.reclamation = reclamation;
+        this.known = known;
+    }
+
+    /**
+     * Rates as they were worked out before, read back from where they
+     * were kept.
+     */
+    static HeapRates restore(long time, double allocation, double promotion, double reclamation, boolean known) {
+        return new HeapRates(time, allocation, promotion, reclamation, known);
+    }
+
+    /**
+     * The rates as of the next snapshot, taken at the given time.
+     *
+     * @param regionSize the region size, in KB
+     * @param changes    the changes of the next snapshot since this one
+     */
+    HeapRates next(long time, long regionSize, RegionChanges changes) {
+        if (!changes.hasPrevious() || this == NONE) {
+            // Nothing to measure against yet.
+            return new HeapRates(time, 0, 0, 0, false);
+        }
+        // Snapshots in the same millisecond are taken as one apart, which
+        // weighs them little enough to move the average by about what they add.
+        long elapsed = Math.max(1, time - this.time);
+        double seconds = elapsed / 1000.0;
+        double weight = known ? 1 - Math.pow(0.5, (double) elapsed / HALF_LIFE_MS) : 1;
+        return new HeapRates(time,
+                smooth(allocation, kilobytes(regionSize, changes.allocated()) / seconds, weight),
+                smooth(promotion, kilobytes(regionSize, changes.promoted()) / seconds, weight),
+                smooth(reclamation, kilobytes(regionSize, changes.reclaimed()) / seconds, weight),
+                true);
+    }
+
+    private static double kilobytes(long regionSize, long percent) {
+        return regionSize * percent / 100.0;
+    }
+
+    private static double smooth(double average, double rate, double weight) {
+        return average + weight * (rate - average);
+    }
+
+    long time() {
+        return time;
+    }
+
+    /**
+     * False until there have been two snapshots to tell the rates from.
+     */
+    boolean isKnown() {
+        return known;
+    }
+
+    double allocation() {
+        return allocation;
+    }
+
+    double promotion() {
+        return promotion;
+    }
+
+    double reclamation() {
+        return reclamation;
+    }
+}
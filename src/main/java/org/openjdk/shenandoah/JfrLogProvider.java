@@ -0,0 +1,441 @@
+/*
+ * Copyright (c) 2023, Amazon.com, Inc. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Oracle designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package org.openjdk.shenandoah;
+
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.PriorityQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * Rebuilds snapshots from a flight recording. The recording needs periodic
+ * jdk.ShenandoahHeapRegionInformation events, which dump every region at
+ * once, and ideally jdk.ShenandoahHeapRegionStateChange events, which are
+ * applied on top of the latest dump. Pauses (jdk.GCPhasePause) go into the
+ * pause histogram, and concurrent phases (jdk.GCPhaseConcurrent) into the
+ * status of each snapshot.
+ * <p>
+ * Events are read one at a time. A recording does not store events in time
+ * order, so they pass through a queue holding a few seconds' worth of them
+ * before being applied. The events of one region dump are written together,
+ * in region order, and each with its own time, so they are grouped by order
+ * rather than by time, and applied at once. Changes are coalesced into at most one snapshot per
+ * {@link #SNAPSHOT_INTERVAL_MS} of recording time.
+ * <p>
+ * The same rebuilding serves events streamed from a live target, see
+ * {@link JfrStreamProvider}, which arrive in order and in batches, so they
+ * need no queue and are applied as each batch ends.
+ * <p>
+ * The events only report how much of a region is used, so it is shown as
+ * live and as shared allocations.
+ */
+class JfrLogProvider {
+    static final String REGION_INFORMATION = "jdk.ShenandoahHeapRegionInformation";
+    static final String REGION_STATE_CHANGE = "jdk.ShenandoahHeapRegionStateChange";
+    static final String PHASE_PAUSE = "jdk.GCPhasePause";
+    static final String PHASE_CONCURRENT = "jdk.GCPhaseConcurrent";
+
+    static final long SNAPSHOT_INTERVAL_MS = 100;
+    private static final long RECORDING_REORDER_WINDOW_NANOS = TimeUnit.SECONDS.toNanos(5);
+    private static final long PROTOCOL_VERSION = 2;
+
+    private static final int DEGENERATED = 0x40;
+    private static final int FULL = 0x80;
+    private static final long YOUNG = 1;
+
+    // Matches the region data the JVM publishes, see RegionStat.
+    private static final int PERCENT_MASK = 0x7f;
+    private static final int LIVE_SHIFT = 7;
+    private static final int SHARED_SHIFT = 28;
+    private static final int AFFILIATION_SHIFT = 56;
+    private static final int FLAGS_SHIFT = 58;
+
+    private enum Kind {
+        // Ties are broken in this order: a phase that ends at the time the
+        // next one begins has ended by then.
+        PHASE_END, PHASE_BEGIN, PAUSE, REGION_DUMP, REGION_STATE_CHANGE
+    }
+
+    private static final class Dump {
+        final long time;
+        byte[] states = new byte[256];
+        long[] used = new long[256];
+        int regionCount;
+        int lastIndex = -1;
+        long regionSizeBytes;
+        long firstStart;
+        int firstIndex = -1;
+
+        Dump(long time) {
+            this.time = time;
+        }
+
+        void set(int index, int state, long usedBytes, long start) {
+            if (index >= states.length) {
+                int capacity = Math.max(index + 1, states.length * 2);
+                states = Arrays.copyOf(states, capacity);
+                used = Arrays.copyOf(used, capacity);
+            }
+            states[index] = (byte) state;
+            used[index] = usedBytes;
+            regionCount = Math.max(regionCount, index + 1);
+            lastIndex = index;
+            // Regions are laid out back to back, so two of them give the size.
+            if (firstIndex == -1) {
+                firstIndex = index;
+                firstStart = start;
+            } else if (regionSizeBytes == 0 && index != firstIndex) {
+                regionSizeBytes = Math.abs(start - firstStart) / Math.abs(index - firstIndex);
+            }
+        }
+    }
+
+    private static final class Pending implements Comparable<Pending> {
+        final long time;
+        final long sequence;
+        final Kind kind;
+        final int index;
+        final int value;
+        final long used;
+        final Dump dump;
+
+        Pending(long time, long sequence, Kind kind, int index, int value, long used) {
+            this.time = time;
+            this.sequence = sequence;
+            this.kind = kind;
+            this.index = index;
+            this.value = value;
+            this.used = used;
+            this.dump = null;
+        }
+
+        Pending(long sequence, Dump dump) {
+            this.time = dump.time;
+            this.sequence = sequence;
+            this.kind = Kind.REGION_DUMP;
+            this.index = 0;
+            this.value = 0;
+            this.used = 0;
+            this.dump = dump;
+        }
+
+        @Override
+        public int compareTo(Pending other) {
+            int c = Long.compare(time, other.time);
+            if (c == 0) {
+                c = kind.compareTo(other.kind);
+            }
+            return c != 0 ? c : Long.compare(sequence, other.sequence);
+        }
+    }
+
+    private final Consumer<Snapshot> snapshots;
+    private final long reorderWindowNanos;
+    private final PriorityQueue<Pending> pending;
+    private final PauseHistogram pauses;
+    private long sequence;
+    private long latestTime;
+
+    private int regionCount;
+    private byte[] states;
+    private long[] used;
+    private long regionSizeBytes;
+    private Dump dump;
+
+    private int phase;
+    private int pauseFlags;
+    // What was seen since the last snapshot, so that phases and pauses
+    // shorter than the interval between snapshots still show in one.
+    private int windowPhase;
+    private int windowPauseFlags;
+    private boolean changed;
+    private long appliedTime;
+    private long lastSnapshotTime;
+    private long lastSnapshotMillis;
+    private long[] lastStats;
+    private HeapRates rates = HeapRates.NONE;
+
+    JfrLogProvider(Consumer<Snapshot> snapshots) {
+        this(snapshots, RECORDING_REORDER_WINDOW_NANOS);
+    }
+
+    JfrLogProvider(Consumer<Snapshot> snapshots, long reorderWindowNanos) {
+        this.snapshots = snapshots;
+        this.reorderWindowNanos = reorderWindowNanos;
+        this.pending = new PriorityQueue<>();
+        this.pauses = new PauseHistogram();
+        this.states = new byte[0];
+        this.used = new long[0];
+    }
+
+    static void loadSnapshots(String filePath, EventLog<Snapshot> eventLog) {
+        Path path = Paths.get(filePath);
+        if (!Files.isReadable(path)) {
+            throw new IllegalArgumentException("Invalid file path supplied. Please try again.");
+        }
+
+        var events = new ArrayList<Snapshot>();
+        JfrLogProvider provider = new JfrLogProvider(events::add);
+        try (RecordingFile recording = new RecordingFile(path)) {
+            while (recording.hasMoreEvents()) {
+                provider.accept(recording.readEvent());
+            }
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+        provider.finish();
+
+        if (events.isEmpty()) {
+            throw new IllegalArgumentException("No " + REGION_INFORMATION + " events in " + filePath);
+        }
+        eventLog.load(TimeUnit.MILLISECONDS, events);
+    }
+
+    static boolean isRecording(String filePath) {
+        return filePath.endsWith(".jfr");
+    }
+
+    void accept(RecordedEvent event) {
+        long time = nanos(event.getStartTime());
+        switch (event.getEventType().getName()) {
+            case REGION_INFORMATION ->
+                    regionInformation(time, event.getInt("index"), event.getString("state"), event.getLong("start"), event.getLong("used"));
+            case REGION_STATE_CHANGE ->
+                    regionStateChange(time, event.getInt("index"), event.getString("to"), event.getLong("used"));
+            case PHASE_PAUSE -> pause(time, event.getDuration().toNanos(), event.getString("name"));
+            case PHASE_CONCURRENT -> concurrentPhase(time, event.getDuration().toNanos(), event.getString("name"));
+            default -> {
+            }
+        }
+    }
+
+    private static long nanos(Instant instant) {
+        return TimeUnit.SECONDS.toNanos(instant.getEpochSecond()) + instant.getNano();
+    }
+
+    void regionInformation(long time, int index, String state, long start, long used) {
+        if (dump != null && index <= dump.lastIndex) {
+            endDump();
+        }
+        if (dump == null) {
+            dump = new Dump(time);
+        }
+        dump.set(index, Math.max(0, stateOrdinal(state)), used, start);
+    }
+
+    void regionStateChange(long time, int index, String to, long used) {
+        int ordinal = stateOrdinal(to);
+        if (ordinal >= 0) {
+            add(new Pending(time, sequence++, Kind.REGION_STATE_CHANGE, index, ordinal, used));
+        }
+    }
+
+    void pause(long time, long duration, String name) {
+        add(new Pending(time, sequence++, Kind.PAUSE, 0, 0, duration));
+        int flags = name.startsWith("Pause Degenerated") ? DEGENERATED : name.startsWith("Pause Full") ? FULL : 0;
+        if (flags != 0) {
+            add(new Pending(time, sequence++, Kind.PHASE_BEGIN, 0, flags, 0));
+            add(new Pending(time + duration, sequence++, Kind.PHASE_END, 0, flags, 0));
+        }
+    }
+
+    void concurrentPhase(long time, long duration, String name) {
+        int bits = phaseBits(name);
+        if (bits != 0) {
+            add(new Pending(time, sequence++, Kind.PHASE_BEGIN, 0, bits, 0));
+            add(new Pending(time + duration, sequence++, Kind.PHASE_END, 0, bits, 0));
+        }
+    }
+
+    private void endDump() {
+        add(new Pending(sequence++, dump));
+        dump = null;
+    }
+
+    /**
+     * Applies whatever is still queued, at the end of the recording.
+     */
+    void finish() {
+        flush();
+    }
+
+    /**
+     * Applies whatever is queued, including a region dump that may still be
+     * open, once no earlier events can follow.
+     */
+    void flush() {
+        if (dump != null) {
+            endDump();
+        }
+        while (!pending.isEmpty()) {
+            apply(pending.poll());
+        }
+        if (changed) {
+            emit(appliedTime);
+        }
+    }
+
+    private void add(Pending event) {
+        pending.add(event);
+        latestTime = Math.max(latestTime, event.time);
+        while (!pending.isEmpty() && pending.peek().time < latestTime - reorderWindowNanos) {
+            apply(pending.poll());
+        }
+    }
+
+    private void apply(Pending event) {
+        if (changed && (event.kind == Kind.REGION_DUMP
+                || event.time - lastSnapshotTime >= TimeUnit.MILLISECONDS.toNanos(SNAPSHOT_INTERVAL_MS))) {
+            // The state as of just before this event.
+            emit(appliedTime);
+        }
+
+        switch (event.kind) {
+            case REGION_DUMP -> {
+                applyDump(event.dump);
+                emit(event.time);
+            }
+            case REGION_STATE_CHANGE -> {
+                // Without a dump to start from, most regions are unknown.
+                if (event.index < regionCount) {
+                    states[event.index] = (byte) event.value;
+                    used[event.index] = event.used;
+                    changed = true;
+                }
+            }
+            case PAUSE -> pauses.record(TimeUnit.NANOSECONDS.toMillis(event.used));
+            case PHASE_BEGIN -> setStatus(event.value, true);
+            case PHASE_END -> setStatus(event.value, false);
+        }
+        appliedTime = Math.max(appliedTime, event.time);
+    }
+
+    private void setStatus(int bits, boolean begin) {
+        if (bits == DEGENERATED || bits == FULL) {
+            pauseFlags = begin ? pauseFlags | bits : pauseFlags & ~bits;
+            windowPauseFlags |= pauseFlags;
+        } else if (begin) {
+            phase = bits;
+            windowPhase = bits;
+        } else if (phase == bits) {
+            phase = 0;
+        }
+        changed |= regionCount > 0;
+    }
+
+    // A dump cut in two by a flush arrives as two partial ones, each of
+    // which updates only its own regions.
+    private void applyDump(Dump dump) {
+        if (dump.regionCount > states.length) {
+            states = Arrays.copyOf(states, dump.regionCount);
+            used = Arrays.copyOf(used, dump.regionCount);
+        }
+        int first = dump.firstIndex;
+        System.arraycopy(dump.states, first, states, first, dump.regionCount - first);
+        System.arraycopy(dump.used, first, used, first, dump.regionCount - first);
+        regionCount = Math.max(regionCount, dump.regionCount);
+        if (dump.regionSizeBytes != 0) {
+            regionSizeBytes = dump.regionSizeBytes;
+        }
+        changed = true;
+    }
+
+    private void emit(long time) {
+        if (regionCount == 0 || regionSizeBytes == 0) {
+            return;
+        }
+        long[] stats = new long[regionCount];
+        for (int i = 0; i < regionCount; i++) {
+            stats[i] = encode(states[i], used[i]);
+        }
+        // Events must not go back in time, even when two land in the same millisecond.
+        long millis = Math.max(lastSnapshotMillis, TimeUnit.NANOSECONDS.toMillis(time));
+        RegionChanges changes = RegionChanges.between(lastStats, stats);
+        rates = rates.next(millis, regionSizeBytes / 1024, changes);
+        // The phase still running wins over one that ran and ended since.
+        int status = pauseFlags | windowPauseFlags | (phase != 0 ? phase : windowPhase);
+        snapshots.accept(new Snapshot.Builder(millis, regionSizeBytes / 1024, PROTOCOL_VERSION, stats, status)
+                .histogram(pauses.snapshot())
+                .changes(changes)
+                .rates(rates)
+                .build());
+        lastStats = stats;
+        lastSnapshotMillis = millis;
+        lastSnapshotTime = time;
+        windowPhase = phase;
+        windowPauseFlags = pauseFlags;
+        changed = false;
+    }
+
+    private long encode(int state, long usedBytes) {
+        long percent = Math.min(100, usedBytes * 100 / regionSizeBytes) & PERCENT_MASK;
+        long affiliation = state <= 1 ? 0 : YOUNG;
+        return percent | percent << LIVE_SHIFT | percent << SHARED_SHIFT
+                | affiliation << AFFILIATION_SHIFT | (long) state << FLAGS_SHIFT;
+    }
+
+    /**
+     * The ordinal of the region state, as published by the JVM and decoded
+     * by {@link RegionState#fromOrdinal}, or -1 for a state we do not know.
+     */
+    static int stateOrdinal(String state) {
+        return switch (state) {
+            case "Empty Uncommitted" -> 0;
+            case "Empty Committed" -> 1;
+            case "Regular" -> 2;
+            case "Humongous Start" -> 3;
+            case "Humongous Continuation" -> 4;
+            case "Collection Set" -> 5;
+            case "Pinned" -> 6;
+            case "Trash" -> 7;
+            case "Collection Set, Pinned" -> 8;
+            case "Humongous Start, Pinned" -> 9;
+            default -> -1;
+        };
+    }
+
+    // The status bits of the global generation, see Snapshot.Generation.
+    private static int phaseBits(String name) {
+        if (name.startsWith("Concurrent Mark")) {
+            return 1;
+        }
+        if (name.startsWith("Concurrent Evacuation")) {
+            return 2;
+        }
+        if (name.startsWith("Concurrent Update Refs")) {
+            return 3;
+        }
+        return 0;
+    }
+}
@@ -0,0 +1,90 @@
+/*
+ * Copyright (c) 2023, Amazon.com, Inc. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Oracle designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package org.openjdk.shenandoah;
+
+import jdk.management.jfr.RemoteRecordingStream;
+
+import javax.management.MBeanServerConnection;
+import java.io.Closeable;
+import java.io.IOException;
+import java.time.Duration;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+/**
+ * Streams Shenandoah region events from a live target, over the JMX
+ * connection to it, as an alternative to sampling the region counters. The
+ * target needs no -XX:+ShenandoahRegionSampling, and sends only the regions
+ * that change state, plus every region once each {@link #DUMP_PERIOD}, which
+ * is also when the usage of the other regions is brought up to date.
+ * <p>
+ * The events arrive in batches, about once a second, on the stream's own
+ * thread, and are turned into snapshots by a {@link JfrLogProvider}. The
+ * snapshots wait here until they are taken.
+ */
+class JfrStreamProvider implements Closeable {
+    static final Duration DUMP_PERIOD = Duration.ofSeconds(5);
+
+    private final RemoteRecordingStream stream;
+    private final Queue<Snapshot> snapshots;
+    private volatile Snapshot latest;
+
+    JfrStreamProvider(MBeanServerConnection server) throws IOException {
+        this.snapshots = new ConcurrentLinkedQueue<>();
+        // The stream is ordered, so there is nothing to wait for.
+        JfrLogProvider provider = new JfrLogProvider(this::add, 0);
+        this.stream = new RemoteRecordingStream(server);
+        stream.enable(JfrLogProvider.REGION_INFORMATION).withPeriod(DUMP_PERIOD);
+        stream.enable(JfrLogProvider.REGION_STATE_CHANGE);
+        stream.enable(JfrLogProvider.PHASE_PAUSE);
+        stream.enable(JfrLogProvider.PHASE_CONCURRENT);
+        stream.onEvent(provider::accept);
+        stream.onFlush(provider::flush);
+        stream.onError(e -> System.out.println("Event stream failed: " + e));
+        stream.startAsync();
+    }
+
+    private void add(Snapshot snapshot) {
+        snapshots.add(snapshot);
+        latest = snapshot;
+    }
+
+    /**
+     * Returns the oldest snapshot not yet taken, or null if there is none.
+     */
+    Snapshot poll() {
+        return snapshots.poll();
+    }
+
+    boolean isCycleActive() {
+        Snapshot latest = this.latest;
+        return latest != null && (latest.phase() != Phase.IDLE || latest.isDegenActive() || latest.isFullActive());
+    }
+
+    @Override
+    public void close() {
+        stream.close();
+    }
+}
@@ -0,0 +1,102 @@
+/*
+ * Copyright (c) 2023, Amazon.com, Inc. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Oracle designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package org.openjdk.shenandoah;
+
+import sun.jvmstat.monitor.HostIdentifier;
+import sun.jvmstat.monitor.MonitorException;
+import sun.jvmstat.monitor.remote.RemoteHost;
+import sun.jvmstat.monitor.remote.RemoteVm;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.rmi.Naming;
+import java.rmi.NotBoundException;
+import java.rmi.RemoteException;
+
+/**
+ * Counters of a JVM on another host, read through jstatd. Every sample
+ * costs exactly one remote call, which copies the target's whole perf data
+ * buffer over. All counters of that sample are then read out of the local
+ * copy, the same way {@link PerfDataFile} reads them out of a mapped file.
+ */
+class JstatdCounters implements PerfCounters {
+    private static final String DEFAULT_SERVER_NAME = "/JStatRemoteHost";
+
+    private final RemoteVm vm;
+    private final byte[] bytes;
+    private final PerfDataFile data;
+
+    private JstatdCounters(RemoteVm vm, byte[] bytes, String source) throws IOException {
+        this.vm = vm;
+        this.bytes = bytes;
+        this.data = PerfDataFile.wrap(ByteBuffer.wrap(bytes), source);
+    }
+
+    static JstatdCounters attach(HostIdentifier host, int pid) throws IOException {
+        String name = rmiName(host);
+        try {
+            RemoteHost remoteHost = (RemoteHost) Naming.lookup(name);
+            RemoteVm vm = remoteHost.attachVm(pid, null);
+            return new JstatdCounters(vm, vm.getBytes(), pid + "@" + name);
+        } catch (NotBoundException | MonitorException e) {
+            throw new IOException("Cannot attach to " + pid + " through " + name, e);
+        }
+    }
+
+    // Same naming as jvmstat's own rmi protocol, so -host accepts what jstat does.
+    private static String rmiName(HostIdentifier host) {
+        String path = host.getPath();
+        String serverName = path == null || path.isEmpty() ? DEFAULT_SERVER_NAME : path;
+        String port = host.getPort() == -1 ? "" : ":" + host.getPort();
+        return "rmi://" + host.getHost() + port + serverName;
+    }
+
+    @Override
+    public void refresh() {
+        try {
+            byte[] latest = vm.getBytes();
+            // The buffer never changes size, copying keeps every handle valid.
+            System.arraycopy(latest, 0, bytes, 0, Math.min(latest.length, bytes.length));
+        } catch (RemoteException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    @Override
+    public int find(String name) {
+        return data.find(name);
+    }
+
+    @Override
+    public long get(int handle) {
+        return data.get(handle);
+    }
+
+    @Override
+    public void get(int[] handles, long[] values) {
+        data.get(handles, values);
+    }
+}
@@ -0,0 +1,77 @@
+/*
+ * Copyright (c) 2023, Amazon.com, Inc. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Oracle designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package org.openjdk.shenandoah;
+
+import sun.jvmstat.monitor.LongMonitor;
+import sun.jvmstat.monitor.Monitor;
+import sun.jvmstat.monitor.MonitorException;
+import sun.jvmstat.monitor.MonitoredVm;
+
+import java.util.Arrays;
+
+/**
+ * Counters read through the jvmstat monitor API. Each read is an indirect
+ * call on the corresponding {@link LongMonitor}.
+ */
+class JvmstatCounters implements PerfCounters {
+    private final MonitoredVm vm;
+    private LongMonitor[] monitors;
+    private int count;
+
+    JvmstatCounters(MonitoredVm vm) {
+        this.vm = vm;
+        this.monitors = new LongMonitor[64];
+    }
+
+    @Override
+    public int find(String name) {
+        Monitor monitor;
+        try {
+            monitor = vm.findByName(name);
+        } catch (MonitorException e) {
+            throw new IllegalStateException(e);
+        }
+        if (!(monitor instanceof LongMonitor)) {
+            return MISSING;
+        }
+        if (count == monitors.length) {
+            monitors = Arrays.copyOf(monitors, count * 2);
+        }
+        monitors[count] = (LongMonitor) monitor;
+        return count++;
+    }
+
+    @Override
+    public long get(int handle) {
+        return monitors[handle].longValue();
+    }
+
+    @Override
+    public void get(int[] handles, long[] values) {
+        for (int i = 0; i < handles.length; i++) {
+            values[i] = monitors[handles[i]].longValue();
+        }
+    }
+}
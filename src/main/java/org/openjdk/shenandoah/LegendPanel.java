@@ -89,40 +89,41 @@ class LegendPanel extends JPanel {
         items.put("Age [12, 15)", new RegionStat(REGULAR, 12));
         items.put("Age 15", new RegionStat(REGULAR, 15));
 
+        SnapshotSummary summary = snapshot.summary();
         Map<String, Integer> summaryNumbers = new LinkedHashMap<>();
 
 
-        summaryNumbers.put("Empty Uncommitted", snapshot.getEmptyUncommittedCount());
+        summaryNumbers.put("Empty Uncommitted", summary.getEmptyUncommittedCount());
 
-        summaryNumbers.put("Empty Committed", snapshot.getEmptyCommittedCount());
+        summaryNumbers.put("Empty Committed", summary.getEmptyCommittedCount());
 
-        summaryNumbers.put("Trash", snapshot.getTrashCount());
+        summaryNumbers.put("Trash", summary.getTrashCount());
 
-        summaryNumbers.put("TLAB Allocs", snapshot.getTlabCount());
+        summaryNumbers.put("TLAB Allocs", summary.getTlabCount());
 
-        summaryNumbers.put("GCLAB Allocs", snapshot.getGclabCount());
+        summaryNumbers.put("GCLAB Allocs", summary.getGclabCount());
 
-        summaryNumbers.put("PLAB Allocs", snapshot.getPlabCount());
+        summaryNumbers.put("PLAB Allocs", summary.getPlabCount());
 
-        summaryNumbers.put("Shared Allocs", snapshot.getSharedCount());
+        summaryNumbers.put("Shared Allocs", summary.getSharedCount());
 
-        summaryNumbers.put("Humongous", snapshot.getHumongousCount());
+        summaryNumbers.put("Humongous", summary.getHumongousCount());
 
-        summaryNumbers.put("Humongous + Pinned", snapshot.getPinnedHumongousCount());
+        summaryNumbers.put("Humongous + Pinned", summary.getPinnedHumongousCount());
 
-        summaryNumbers.put("Collection Set", snapshot.getCSetCount());
+        summaryNumbers.put("Collection Set", summary.getCSetCount());
 
-        summaryNumbers.put("Pinned", snapshot.getPinnedCount());
+        summaryNumbers.put("Pinned", summary.getPinnedCount());
 
 
-        summaryNumbers.put("Pinned CSet", snapshot.getPinnedCSetCount());
+        summaryNumbers.put("Pinned CSet", summary.getPinnedCSetCount());
 
-        summaryNumbers.put("Age [0, 3)", snapshot.getAge0Count());
-        summaryNumbers.put("Age [3, 6)", snapshot.getAge3Count());
-        summaryNumbers.put("Age [6, 9)", snapshot.getAge6Count());
-        summaryNumbers.put("Age [9, 12)", snapshot.getAge9Count());
-        summaryNumbers.put("Age [12, 15)", snapshot.getAge12Count());
-        summaryNumbers.put("Age 15", snapshot.getAge15Count());
+        summaryNumbers.put("Age [0, 3)", summary.getAge0Count());
+        summaryNumbers.put("Age [3, 6)", summary.getAge3Count());
+        summaryNumbers.put("Age [6, 9)", summary.getAge6Count());
+        summaryNumbers.put("Age [9, 12)", summary.getAge9Count());
+        summaryNumbers.put("Age [12, 15)", summary.getAge12Count());
+        summaryNumbers.put("Age 15", summary.getAge15Count());
         int i = 0;
         for (String key : items.keySet()) {
             int y = (int) (i * sqSize * 1.5);
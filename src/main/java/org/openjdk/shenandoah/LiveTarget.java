@@ -0,0 +1,173 @@
+/*
+ * Copyright (c) 2023, Amazon.com, Inc. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Oracle designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package org.openjdk.shenandoah;
+
+import org.HdrHistogram.Histogram;
+import org.HdrHistogram.Recorder;
+import sun.jvmstat.monitor.MonitoredVm;
+
+/**
+ * One of the JVMs watched by a {@link TargetMonitor}. Each target has its
+ * own sampler, sampling policy and event log, so that it can be opened in
+ * the main view with its history intact.
+ */
+class LiveTarget {
+    private final int pid;
+    private final String mainClass;
+    private final MonitoredVm vm;
+    private final RegionSampler sampler;
+    private final SamplingPolicy samplingPolicy;
+    private final SnapshotLog events;
+    private final Recorder pauseRecorder;
+    private final PauseHistogram pauses;
+
+    private volatile Snapshot latest;
+    private volatile boolean alive;
+    private boolean viewed;
+    private volatile long samplesTaken;
+    private volatile long unchangedSamples;
+
+    LiveTarget(int pid, String mainClass, MonitoredVm vm, PerfCounters counters, AuxiliaryCounters auxiliaryCounters,
+               int readRetries, SamplingPolicy samplingPolicy, RetentionPolicy retention) {
+        this.pid = pid;
+        this.mainClass = mainClass;
+        this.vm = vm;
+        this.pauseRecorder = new Recorder(2);
+        this.pauses = new PauseHistogram();
+        this.sampler = new RegionSampler(counters, auxiliaryCounters, pauseRecorder, readRetries);
+        this.samplingPolicy = samplingPolicy;
+        this.events = new SnapshotLog(retention);
+        this.alive = true;
+    }
+
+    /**
+     * Takes one sample and returns the delay before the next one, in
+     * milliseconds. Only ever called by one thread at a time.
+     */
+    long sample() {
+        Snapshot snapshot = sampler.sample(this::pauseHistogram);
+        if (snapshot != null) {
+            events.add(snapshot);
+            latest = snapshot;
+            samplesTaken++;
+        } else {
+            unchangedSamples++;
+        }
+        return samplingPolicy.next(sampler.isCycleActive());
+    }
+
+    private Histogram pauseHistogram() {
+        pauses.add(pauseRecorder);
+        return pauses.snapshot();
+    }
+
+    int pid() {
+        return pid;
+    }
+
+    String mainClass() {
+        return mainClass;
+    }
+
+    /**
+     * The jvmstat connection, if the counters are read through it rather
+     * than from a mapping of the hsperfdata file.
+     */
+    MonitoredVm vm() {
+        return vm;
+    }
+
+    SnapshotLog events() {
+        return events;
+    }
+
+    Snapshot latest() {
+        return latest;
+    }
+
+    boolean isAlive() {
+        return alive;
+    }
+
+    /**
+     * Called once the target is no longer sampled. Deletes any history it
+     * spilled to disk, unless it is being viewed, in which case that waits
+     * until the view moves on.
+     */
+    synchronized void exited() {
+        alive = false;
+        if (!viewed) {
+            events.close();
+        }
+    }
+
+    synchronized void setViewed(boolean viewed) {
+        this.viewed = viewed;
+        if (!viewed && !alive) {
+            events.close();
+        }
+    }
+
+    boolean isCycleActive() {
+        return alive && sampler.isCycleActive();
+    }
+
+    long samplesTaken() {
+        return samplesTaken;
+    }
+
+    long unchangedSamples() {
+        return unchangedSamples;
+    }
+
+    long sampleInterval() {
+        return samplingPolicy.interval();
+    }
+
+    boolean isAdaptiveSampling() {
+        return samplingPolicy.isAdaptive();
+    }
+
+    long readNanos() {
+        return sampler.readNanos();
+    }
+
+    long maxReadNanos() {
+        return sampler.maxReadNanos();
+    }
+
+    long readRetries() {
+        return sampler.retries();
+    }
+
+    long inconsistentReads() {
+        return sampler.inconsistentReads();
+    }
+
+    @Override
+    public String toString() {
+        return pid + " " + mainClass;
+    }
+}
@@ -0,0 +1,114 @@
+/*
+ * Copyright (c) 2023, Amazon.com, Inc. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Oracle designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package org.openjdk.shenandoah;
+
+import org.HdrHistogram.Recorder;
+
+/**
+ * Derives pause durations from the target's perf counters, so that pause
+ * times need no JMX connection. Every Shenandoah pause is a safepoint, and
+ * the JVM counts safepoints and the time spent reaching and holding them.
+ * <p>
+ * The sun.gc.collector counters would seem the obvious source, but
+ * Shenandoah publishes its concurrent cycles and its pauses through the
+ * same collector, with the pauses nested inside the cycles, so they cannot
+ * be told apart.
+ * <p>
+ * A single pause between two samples is recorded exactly. When there are
+ * several, all of their time is put down to one of them and the others are
+ * recorded as zero. Most Shenandoah pauses take well under a millisecond,
+ * which the histogram records as zero anyway, so this keeps the long pauses
+ * that matter, where an average would hide them. Sampling faster separates
+ * more of the pauses. Safepoints that are not pauses are counted as well.
+ */
+class PauseCounters {
+    static final String SAFEPOINTS = "sun.rt.safepoints";
+    static final String SAFEPOINT_TIME = "sun.rt.safepointTime";
+    static final String SAFEPOINT_SYNC_TIME = "sun.rt.safepointSyncTime";
+    static final String TICK_FREQUENCY = "sun.os.hrt.frequency";
+
+    private static final int COUNT = 0;
+    private static final int TIME = 1;
+    private static final int SYNC_TIME = 2;
+
+    private final PerfCounters counters;
+    private final Recorder recorder;
+    private final int[] handles;
+    private final long[] values;
+    private final double ticksPerMilli;
+    private boolean hasPrevious;
+    private long previousCount;
+    private long previousTicks;
+
+    private PauseCounters(PerfCounters counters, Recorder recorder, int[] handles, long frequency) {
+        this.counters = counters;
+        this.recorder = recorder;
+        this.handles = handles;
+        this.values = new long[handles.length];
+        this.ticksPerMilli = frequency / 1000.0;
+    }
+
+    /**
+     * Returns pause counters recording into the given recorder, or null if
+     * the target does not publish what they need.
+     */
+    static PauseCounters find(PerfCounters counters, Recorder recorder) {
+        int[] handles = {
+                counters.find(SAFEPOINTS),
+                counters.find(SAFEPOINT_TIME),
+                counters.find(SAFEPOINT_SYNC_TIME)
+        };
+        int frequency = counters.find(TICK_FREQUENCY);
+        for (int handle : handles) {
+            if (handle == PerfCounters.MISSING) {
+                return null;
+            }
+        }
+        if (frequency == PerfCounters.MISSING || counters.get(frequency) <= 0) {
+            return null;
+        }
+        return new PauseCounters(counters, recorder, handles, counters.get(frequency));
+    }
+
+    /**
+     * Records the pauses since the last call, in milliseconds. The first
+     * call only takes note of the counters, pauses before it are not known.
+     */
+    void record() {
+        counters.get(handles, values);
+        long count = values[COUNT];
+        long ticks = values[TIME] + values[SYNC_TIME];
+        if (hasPrevious && count > previousCount && ticks >= previousTicks) {
+            long pauses = count - previousCount;
+            recorder.recordValue(Math.round((ticks - previousTicks) / ticksPerMilli));
+            if (pauses > 1) {
+                recorder.recordValueWithCount(0, pauses - 1);
+            }
+        }
+        hasPrevious = true;
+        previousCount = count;
+        previousTicks = ticks;
+    }
+}
@@ -0,0 +1,94 @@
+/*
+ * Copyright (c) 2023, Amazon.com, Inc. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Oracle designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package org.openjdk.shenandoah;
+
+import org.HdrHistogram.Histogram;
+import org.HdrHistogram.Recorder;
+
+/**
+ * The pause times of one target since we started watching it. Snapshots
+ * taken between two pauses all share one copy of the histogram, which is
+ * only copied again after a pause, rather than each taking a copy of its
+ * own. The copies handed out must not be modified.
+ * <p>
+ * Since the histogram of each snapshot is cumulative, the pauses of any
+ * span of time are the difference between the histograms at its two ends.
+ */
+class PauseHistogram {
+    private final Histogram histogram;
+    private Histogram interval;
+    private Histogram shared;
+
+    PauseHistogram() {
+        this.histogram = new Histogram(2);
+    }
+
+    synchronized void record(long millis) {
+        histogram.recordValue(millis);
+        shared = null;
+    }
+
+    /**
+     * Takes in the pauses recorded since the last call.
+     */
+    synchronized void add(Recorder recorder) {
+        interval = recorder.getIntervalHistogram(interval);
+        if (interval.getTotalCount() > 0) {
+            histogram.add(interval);
+            shared = null;
+        }
+    }
+
+    /**
+     * Returns all the pauses so far. The same instance is returned until
+     * another pause is recorded.
+     */
+    synchronized Histogram snapshot() {
+        if (shared == null) {
+            shared = histogram.copy();
+        }
+        return shared;
+    }
+
+    /**
+     * Returns the pauses recorded after {@code earlier} and up to
+     * {@code latest}, both taken from the same target. Returns all of
+     * {@code latest} when there is nothing to take away, or when the two
+     * were not taken from the same target, and null without a histogram.
+     */
+    static Histogram between(Histogram earlier, Histogram latest) {
+        if (latest == null || earlier == null || earlier.getTotalCount() > latest.getTotalCount()) {
+            return latest;
+        }
+        Histogram window = latest.copy();
+        try {
+            window.subtract(earlier);
+        } catch (IllegalArgumentException e) {
+            // Some count went down, the two are not from the same target.
+            return latest;
+        }
+        return window;
+    }
+}
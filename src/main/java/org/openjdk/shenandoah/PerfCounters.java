@@ -0,0 +1,55 @@
+/*
+ * Copyright (c) 2023, Amazon.com, Inc. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Oracle designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package org.openjdk.shenandoah;
+
+/**
+ * Read access to the long counters a JVM publishes in its perf data
+ * memory. Counters are resolved to a handle once and then read by handle,
+ * so implementations can keep per-sample work to a minimum.
+ */
+interface PerfCounters {
+    int MISSING = -1;
+
+    /**
+     * Returns a handle for the named long counter, or {@link #MISSING}
+     * if the target does not publish it.
+     */
+    int find(String name);
+
+    long get(int handle);
+
+    /**
+     * Reads the counters for all given handles into values, in one pass.
+     */
+    void get(int[] handles, long[] values);
+
+    /**
+     * Brings the counters up to date, for sources that read from a copy of
+     * the target's perf data rather than from the live memory. Called once
+     * before each sample.
+     */
+    default void refresh() {
+    }
+}
@@ -0,0 +1,233 @@
+/*
+ * Copyright (c) 2023, Amazon.com, Inc. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Oracle designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package org.openjdk.shenandoah;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.LongBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Reads counters straight out of a JVM's hsperfdata file. The file is
+ * mapped read-only once, counter names are resolved to offsets once, and
+ * every read after that is a plain load from the shared mapping.
+ * <p>
+ * The layout follows the version 2 perf data format: a 32 byte prologue,
+ * followed by variable length entries, each of which is a 20 byte header,
+ * a nul terminated name and the (8 byte aligned, for longs) data.
+ */
+class PerfDataFile implements PerfCounters {
+    private static final int MAGIC = 0xcafec0c0;
+    private static final int SUPPORTED_MAJOR_VERSION = 2;
+    static final String DIR_PREFIX = "hsperfdata_";
+
+    private static final int PROLOGUE_BYTE_ORDER_OFFSET = 4;
+    private static final int PROLOGUE_MAJOR_OFFSET = 5;
+    private static final int PROLOGUE_ACCESSIBLE_OFFSET = 7;
+    private static final int PROLOGUE_ENTRY_OFFSET_OFFSET = 24;
+    private static final int PROLOGUE_NUM_ENTRIES_OFFSET = 28;
+
+    private static final int ENTRY_NAME_OFFSET_OFFSET = 4;
+    private static final int ENTRY_VECTOR_LENGTH_OFFSET = 8;
+    private static final int ENTRY_DATA_TYPE_OFFSET = 12;
+    private static final int ENTRY_DATA_OFFSET_OFFSET = 16;
+
+    private static final byte TYPE_LONG = 'J';
+
+    private final Path path;
+    private final String source;
+    private final ByteBuffer buffer;
+    private final LongBuffer longs;
+    private final Map<String, Integer> offsets;
+    private int indexedEntries;
+    private int nextEntry;
+
+    private PerfDataFile(Path path, String source, ByteBuffer buffer) throws IOException {
+        this.path = path;
+        this.source = source;
+        if (buffer.limit() < PROLOGUE_NUM_ENTRIES_OFFSET + 4 || buffer.order(ByteOrder.BIG_ENDIAN).getInt(0) != MAGIC) {
+            throw new IOException("Not a perf data file: " + source);
+        }
+        if (buffer.get(PROLOGUE_MAJOR_OFFSET) != SUPPORTED_MAJOR_VERSION) {
+            throw new IOException("Unsupported perf data version " + buffer.get(PROLOGUE_MAJOR_OFFSET) + ": " + source);
+        }
+        if (buffer.get(PROLOGUE_ACCESSIBLE_OFFSET) == 0) {
+            throw new IOException("Perf data is not accessible yet: " + source);
+        }
+        ByteOrder order = buffer.get(PROLOGUE_BYTE_ORDER_OFFSET) == 0 ? ByteOrder.BIG_ENDIAN : ByteOrder.LITTLE_ENDIAN;
+        this.buffer = buffer.order(order);
+        this.longs = this.buffer.asLongBuffer();
+        this.offsets = new HashMap<>();
+        this.nextEntry = this.buffer.getInt(PROLOGUE_ENTRY_OFFSET_OFFSET);
+        indexEntries();
+    }
+
+    static PerfDataFile open(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            return new PerfDataFile(path, path.toString(), buffer);
+        }
+    }
+
+    /**
+     * Reads counters out of a copy of a JVM's perf data rather than out of
+     * its file. Reads see whatever the buffer holds at the time, so the
+     * copy can be refreshed in place.
+     */
+    static PerfDataFile wrap(ByteBuffer buffer, String source) throws IOException {
+        return new PerfDataFile(null, source, buffer);
+    }
+
+    /**
+     * Returns the hsperfdata file of the local JVM with the given pid, or
+     * null if there is none we can read. Like jvmstat, this looks in every
+     * user's hsperfdata directory, not just our own.
+     */
+    static Path locate(int pid) {
+        String name = String.valueOf(pid);
+        for (Path tmp : temporaryDirectories(pid)) {
+            File[] userDirs = tmp.toFile().listFiles((dir, n) -> n.startsWith(DIR_PREFIX));
+            if (userDirs == null) {
+                continue;
+            }
+            for (File userDir : userDirs) {
+                Path candidate = userDir.toPath().resolve(name);
+                if (Files.isRegularFile(candidate) && Files.isReadable(candidate)) {
+                    return candidate;
+                }
+            }
+        }
+        return null;
+    }
+
+    private static List<Path> temporaryDirectories(int pid) {
+        List<Path> dirs = new ArrayList<>();
+        if (!isWindows()) {
+            // A containerized target's /tmp is reachable through /proc.
+            dirs.add(Paths.get("/proc", String.valueOf(pid), "root", "tmp"));
+        }
+        dirs.addAll(temporaryDirectories());
+        return dirs;
+    }
+
+    /**
+     * The directories holding the hsperfdata_&lt;user&gt; directories of
+     * local JVMs.
+     */
+    static List<Path> temporaryDirectories() {
+        List<Path> dirs = new ArrayList<>();
+        if (!isWindows()) {
+            // HotSpot always uses /tmp here, regardless of java.io.tmpdir.
+            dirs.add(Paths.get("/tmp"));
+        }
+        Path tmpdir = Paths.get(System.getProperty("java.io.tmpdir"));
+        if (!dirs.contains(tmpdir)) {
+            dirs.add(tmpdir);
+        }
+        return dirs;
+    }
+
+    private static boolean isWindows() {
+        return System.getProperty("os.name").startsWith("Windows");
+    }
+
+    /**
+     * The mapped file, or null for a wrapped buffer.
+     */
+    Path path() {
+        return path;
+    }
+
+    @Override
+    public synchronized int find(String name) {
+        Integer offset = offsets.get(name);
+        if (offset == null && buffer.getInt(PROLOGUE_NUM_ENTRIES_OFFSET) > indexedEntries) {
+            // The target may have created counters since we last looked.
+            indexEntries();
+            offset = offsets.get(name);
+        }
+        return offset == null ? MISSING : offset >>> 3;
+    }
+
+    @Override
+    public long get(int handle) {
+        return longs.get(handle);
+    }
+
+    @Override
+    public void get(int[] handles, long[] values) {
+        LongBuffer longs = this.longs;
+        for (int i = 0; i < handles.length; i++) {
+            values[i] = longs.get(handles[i]);
+        }
+    }
+
+    private void indexEntries() {
+        int limit = buffer.limit();
+        int numEntries = buffer.getInt(PROLOGUE_NUM_ENTRIES_OFFSET);
+        while (indexedEntries < numEntries && nextEntry + ENTRY_DATA_OFFSET_OFFSET + 4 <= limit) {
+            int entryStart = nextEntry;
+            int entryLength = buffer.getInt(entryStart);
+            if (entryLength <= 0 || entryStart + entryLength > limit) {
+                break;
+            }
+
+            int nameOffset = buffer.getInt(entryStart + ENTRY_NAME_OFFSET_OFFSET);
+            int vectorLength = buffer.getInt(entryStart + ENTRY_VECTOR_LENGTH_OFFSET);
+            byte dataType = buffer.get(entryStart + ENTRY_DATA_TYPE_OFFSET);
+            int dataOffset = buffer.getInt(entryStart + ENTRY_DATA_OFFSET_OFFSET);
+
+            int dataStart = entryStart + dataOffset;
+            if (dataType == TYPE_LONG && vectorLength == 0 && (dataStart & 7) == 0) {
+                offsets.put(readName(entryStart + nameOffset, dataStart), dataStart);
+            }
+
+            nextEntry = entryStart + entryLength;
+            indexedEntries++;
+        }
+    }
+
+    private String readName(int start, int limit) {
+        int end = start;
+        while (end < limit && buffer.get(end) != 0) {
+            end++;
+        }
+        byte[] bytes = new byte[end - start];
+        buffer.get(start, bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
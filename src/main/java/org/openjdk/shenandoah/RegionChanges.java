@@ -0,0 +1,290 @@
+/*
+ * Copyright (c) 2023, Amazon.com, Inc. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Oracle designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package org.openjdk.shenandoah;
+
+import java.util.Arrays;
+import java.util.BitSet;
+
+import static org.openjdk.shenandoah.RegionStat.*;
+
+/**
+ * What changed in the regions since the snapshot before, worked out once,
+ * when the snapshot is taken: which regions changed at all, and which of
+ * those moved to another state or generation, and how much was allocated,
+ * promoted and reclaimed in between. Snapshots that start a
+ * session, or follow one with a different number of regions, count every
+ * region as changed, with no transitions.
+ */
+final class RegionChanges {
+    // Transitions are packed into a long each: the region in the low half,
+    // then the state and affiliation ordinals before and after.
+    private static final int FROM_STATE_SHIFT = 32;
+    private static final int TO_STATE_SHIFT = 40;
+    private static final int FROM_AFFILIATION_SHIFT = 48;
+    private static final int TO_AFFILIATION_SHIFT = 56;
+    private static final long[] NO_TRANSITIONS = new long[0];
+    private static final int YOUNG = RegionAffiliation.YOUNG.ordinal();
+    private static final int OLD = RegionAffiliation.OLD.ordinal();
+
+    private final int regionCount;
+    private final BitSet changed;
+    private final long[] transitions;
+    private final long allocated;
+    private final long promoted;
+    private final long reclaimed;
+
+    private RegionChanges(int regionCount, BitSet changed, long[] transitions, long allocated, long promoted, long reclaimed) {
+        this.regionCount = regionCount;
+        this.changed = changed;
+        this.transitions = transitions;
+        this.allocated = allocated;
+        this.promoted = promoted;
+        this.reclaimed = reclaimed;
+    }
+
+    /**
+     * Roughly how many bytes these changes take up.
+     */
+    long footprint() {
+        long bytes = 48 + 16 + 8L * transitions.length;
+        if (changed != null) {
+            bytes += 32 + 8L * ((changed.size() + 63) / 64);
+        }
+        return bytes;
+    }
+
+    static RegionChanges all(int regionCount) {
+        return new RegionChanges(regionCount, null, NO_TRANSITIONS, 0, 0, 0);
+    }
+
+    /**
+     * @param previous the words of the snapshot before, or null if there
+     *                 is none
+     */
+    static RegionChanges between(long[] previous, long[] current) {
+        if (previous == null || previous.length != current.length) {
+            return all(current.length);
+        }
+        BitSet changed = new BitSet(current.length);
+        long[] transitions = NO_TRANSITIONS;
+        int transitionCount = 0;
+        long allocated = 0, promoted = 0, reclaimed = 0;
+        for (int i = 0; i < current.length; i++) {
+            long before = previous[i];
+            long after = current[i];
+            if (before == after) {
+                continue;
+            }
+            changed.set(i);
+
+            int usedBefore = (int) (before >>> USED_SHIFT) & PERCENT_MASK;
+            int usedAfter = (int) (after >>> USED_SHIFT) & PERCENT_MASK;
+            int grown = Math.max(0, usedAfter - usedBefore);
+            allocated += grown;
+            if (affiliationOrdinal(after) == OLD) {
+                // Promoted in place, or copied into an old region.
+                promoted += affiliationOrdinal(before) == YOUNG ? usedAfter : grown;
+            }
+
+            // State and affiliation are the topmost bits.
+            if ((before ^ after) >>> AFFILIATION_SHIFT != 0) {
+                RegionState from = RegionStat.state(before);
+                RegionState to = RegionStat.state(after);
+                if (isReclaimed(from, to)) {
+                    reclaimed += usedBefore;
+                }
+                if (from != to || affiliationOrdinal(before) != affiliationOrdinal(after)) {
+                    if (transitionCount == transitions.length) {
+                        transitions = Arrays.copyOf(transitions, Math.max(16, transitionCount * 2));
+                    }
+                    transitions[transitionCount++] = pack(i, from, to, affiliationOrdinal(before), affiliationOrdinal(after));
+                }
+            }
+        }
+        return new RegionChanges(current.length, changed, Arrays.copyOf(transitions, transitionCount),
+                allocated, promoted, reclaimed);
+    }
+
+    private static int affiliationOrdinal(long word) {
+        return (int) (word >>> AFFILIATION_SHIFT) & AFFILIATION_MASK;
+    }
+
+    // Regions skip the trash when the samples are far enough apart.
+    private static boolean isReclaimed(RegionState from, RegionState to) {
+        if (to == RegionState.TRASH) {
+            return from != RegionState.TRASH;
+        }
+        return (from == RegionState.CSET || from == RegionState.PINNED_CSET)
+                && (to == RegionState.EMPTY_COMMITTED || to == RegionState.EMPTY_UNCOMMITTED);
+    }
+
+    private static long pack(int region, RegionState from, RegionState to, int fromAffiliation, int toAffiliation) {
+        return region
+                | (long) from.ordinal() << FROM_STATE_SHIFT
+                | (long) to.ordinal() << TO_STATE_SHIFT
+                | (long) fromAffiliation << FROM_AFFILIATION_SHIFT
+                | (long) toAffiliation << TO_AFFILIATION_SHIFT;
+    }
+
+    /**
+     * False if there was no snapshot to compare with, in which case every
+     * region counts as changed.
+     */
+    boolean hasPrevious() {
+        return changed != null;
+    }
+
+    boolean isChanged(int region) {
+        return changed == null ? region < regionCount : changed.get(region);
+    }
+
+    /**
+     * The first changed region from the given one on, or -1 if there is
+     * none, to be used as {@link BitSet#nextSetBit}.
+     */
+    int nextChanged(int from) {
+        if (changed == null) {
+            return from < regionCount ? from : -1;
+        }
+        return changed.nextSetBit(from);
+    }
+
+    int changedCount() {
+        return changed == null ? regionCount : changed.cardinality();
+    }
+
+    int transitionCount() {
+        return transitions.length;
+    }
+
+    Transition transition(int i) {
+        long transition = transitions[i];
+        return new Transition((int) transition,
+                RegionState.values()[(int) (transition >>> FROM_STATE_SHIFT) & 0xff],
+                RegionState.values()[(int) (transition >>> TO_STATE_SHIFT) & 0xff],
+                RegionAffiliation.values()[(int) (transition >>> FROM_AFFILIATION_SHIFT) & 0xff],
+                RegionAffiliation.values()[(int) (transition >>> TO_AFFILIATION_SHIFT) & 0xff]);
+    }
+
+    /**
+     * How much the used levels of the regions grew, in percent of a region,
+     * which is what was allocated since the snapshot before, as far as the
+     * samples tell.
+     */
+    long allocated() {
+        return allocated;
+    }
+
+    /**
+     * How much of that went into old regions, plus the used levels of the
+     * young regions promoted in place, in percent of a region.
+     */
+    long promoted() {
+        return promoted;
+    }
+
+    /**
+     * The used levels, in percent of a region, of the regions that went to
+     * the trash, or were collected and emptied between two samples.
+     */
+    long reclaimed() {
+        return reclaimed;
+    }
+
+    /**
+     * How many regions went from one state to the other.
+     */
+    int count(RegionState from, RegionState to) {
+        int count = 0;
+        for (long transition : transitions) {
+            if (((transition >>> FROM_STATE_SHIFT) & 0xff) == from.ordinal()
+                    && ((transition >>> TO_STATE_SHIFT) & 0xff) == to.ordinal()) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * How many regions went from one generation to the other.
+     */
+    int count(RegionAffiliation from, RegionAffiliation to) {
+        int count = 0;
+        for (long transition : transitions) {
+            if (((transition >>> FROM_AFFILIATION_SHIFT) & 0xff) == from.ordinal()
+                    && ((transition >>> TO_AFFILIATION_SHIFT) & 0xff) == to.ordinal()) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * One region moving to another state, or another generation, or both.
+     */
+    static final class Transition {
+        private final int region;
+        private final RegionState from;
+        private final RegionState to;
+        private final RegionAffiliation fromAffiliation;
+        private final RegionAffiliation toAffiliation;
+
+        Transition(int region, RegionState from, RegionState to,
+                   RegionAffiliation fromAffiliation, RegionAffiliation toAffiliation) {
+            this.region = region;
+            this.from = from;
+            this.to = to;
+            this.fromAffiliation = fromAffiliation;
+            this.toAffiliation = toAffiliation;
+        }
+
+        int region() {
+            return region;
+        }
+
+        RegionState from() {
+            return from;
+        }
+
+        RegionState to() {
+            return to;
+        }
+
+        RegionAffiliation fromAffiliation() {
+            return fromAffiliation;
+        }
+
+        RegionAffiliation toAffiliation() {
+            return toAffiliation;
+        }
+
+        @Override
+        public String toString() {
+            String state = from == to ? String.valueOf(to) : from + "->" + to;
+            String affiliation = fromAffiliation == toAffiliation ? "" : " " + fromAffiliation + "->" + toAffiliation;
+            return region + ": " + state + affiliation;
+        }
+    }
+}
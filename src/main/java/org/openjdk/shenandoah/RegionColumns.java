@@ -0,0 +1,58 @@
+/*
+ * Copyright (c) 2023, Amazon.com, Inc. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Oracle designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package org.openjdk.shenandoah;
+
+/**
+ * Region words decoded into one column per field, for passes over many
+ * regions. States are the ordinals the JVM publishes, see
+ * {@link RegionState#fromOrdinal}, and levels are percentages.
+ */
+final class RegionColumns {
+    final byte[] state;
+    final byte[] affiliation;
+    final byte[] age;
+    final byte[] used;
+    final byte[] live;
+    final byte[] tlab;
+    final byte[] gclab;
+    final byte[] shared;
+    final byte[] plab;
+
+    RegionColumns(int capacity) {
+        state = new byte[capacity];
+        affiliation = new byte[capacity];
+        age = new byte[capacity];
+        used = new byte[capacity];
+        live = new byte[capacity];
+        tlab = new byte[capacity];
+        gclab = new byte[capacity];
+        shared = new byte[capacity];
+        plab = new byte[capacity];
+    }
+
+    int capacity() {
+        return state.length;
+    }
+}
@@ -0,0 +1,110 @@
+/*
+ * Copyright (c) 2023, Amazon.com, Inc. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Oracle designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package org.openjdk.shenandoah;
+
+/**
+ * The block of counters published by -XX:+ShenandoahRegionSampling. All
+ * counter names are resolved once, so taking a sample is a single bulk
+ * read of the region words.
+ */
+class RegionCounters {
+    static final long ORIGINAL_VERSION = 1;
+
+    private static final String PREFIX = "sun.gc.shenandoah.regions.";
+
+    private final PerfCounters counters;
+    private final int maxRegions;
+    private final long protocolVersion;
+    private final long regionSize;
+    private final int status;
+    private final int timestamp;
+    private final int[] regions;
+
+    RegionCounters(PerfCounters counters) {
+        this.counters = counters;
+
+        maxRegions = (int) counters.get(require("max_regions"));
+        // Read in the version of the garbage collector
+        int version = counters.find(PREFIX + "protocol_version");
+        protocolVersion = version == PerfCounters.MISSING ? ORIGINAL_VERSION : counters.get(version);
+        regionSize = counters.get(require("region_size"));
+        status = require("status");
+        timestamp = counters.find(PREFIX + "timestamp");
+
+        regions = new int[maxRegions];
+        for (int i = 0; i < maxRegions; i++) {
+            int handle = counters.find(PREFIX + "region." + i + ".data");
+            if (handle == PerfCounters.MISSING) {
+                throw new IllegalStateException("Insufficient shared memory for all region counters. " +
+                        "Try -XX:PerfDataMemorySize=512K or higher when running the monitored program.");
+            }
+            regions[i] = handle;
+        }
+    }
+
+    private int require(String name) {
+        int handle = counters.find(PREFIX + name);
+        if (handle == PerfCounters.MISSING) {
+            throw new IllegalStateException("Missing counter " + PREFIX + name + ", is ShenandoahRegionSampling enabled?");
+        }
+        return handle;
+    }
+
+    int maxRegions() {
+        return maxRegions;
+    }
+
+    long protocolVersion() {
+        return protocolVersion;
+    }
+
+    long regionSize() {
+        return regionSize;
+    }
+
+    int status() {
+        return (int) counters.get(status);
+    }
+
+    boolean hasTimestamp() {
+        return timestamp != PerfCounters.MISSING;
+    }
+
+    /**
+     * The JVM stamps this counter every time it publishes region data, so
+     * an unchanged value means the region words have not been rewritten.
+     */
+    long timestamp() {
+        return hasTimestamp() ? counters.get(timestamp) : 0;
+    }
+
+    /**
+     * Reads the raw data word of every region into data, which must hold
+     * at least {@link #maxRegions()} elements.
+     */
+    void read(long[] data) {
+        counters.get(regions, data);
+    }
+}
@@ -0,0 +1,56 @@
+/*
+ * Copyright (c) 2023, Amazon.com, Inc. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Oracle designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package org.openjdk.shenandoah;
+
+/**
+ * Decodes region words into columns, many at a time and without
+ * allocating. The vector API decoder is used when the incubating module is
+ * there (--add-modules jdk.incubator.vector) and the CPU has wide enough
+ * vectors, unless -Dregion.decoder=scalar. Otherwise, the scalar one is.
+ */
+interface RegionDecoder {
+    RegionDecoder INSTANCE = select(System.getProperty("region.decoder", "auto"));
+
+    /**
+     * Decodes count words, from words[from], into the first count rows of
+     * the columns.
+     */
+    void decode(long[] words, int from, int count, RegionColumns columns);
+
+    String name();
+
+    private static RegionDecoder select(String choice) {
+        if (!choice.equals("scalar") && ModuleLayer.boot().findModule("jdk.incubator.vector").isPresent()) {
+            try {
+                // Loaded by name, so that nothing links to the incubating module without it.
+                return (RegionDecoder) Class.forName("org.openjdk.shenandoah.VectorRegionDecoder")
+                        .getDeclaredConstructor().newInstance();
+            } catch (ReflectiveOperationException | LinkageError | UnsupportedOperationException e) {
+                System.out.println("Decoding regions without the vector API: " + e);
+            }
+        }
+        return new ScalarRegionDecoder();
+    }
+}
@@ -32,6 +32,7 @@ import javax.swing.text.BadLocationException;
 import javax.swing.text.Document;
 import java.awt.*;
 import java.awt.event.KeyAdapter;
+import java.util.ConcurrentModificationException;
 import java.util.List;
 
 class RegionHistory extends JFrame implements DocumentListener {
@@ -119,18 +120,27 @@ class RegionHistory extends JFrame implements DocumentListener {
             Rectangle viewport = g.getClipBounds();
             int regionSquareSize = clamp(viewport.height / regions.size());
             renderRegionLabels(g, regionSquareSize);
-            renderRegionHistory(g, viewport, regionSquareSize);
+            try {
+                renderRegionHistory(g, viewport, regionSquareSize);
+            } catch (ConcurrentModificationException e) {
+                // Spilled history overwritten meanwhile, gone by the next paint.
+            }
         }
 
         private void renderRegionHistory(Graphics g, Rectangle viewport, int regionSquareSize) {
             int x = 21;
             List<Snapshot> snapshots = renderRunner.snapshots();
+            RegionStat view = new RegionStat(0L);
             for (int i = snapshots.size() - 1; i >= 0; i--) {
                 x += regionSquareSize;
                 Snapshot snapshot = snapshots.get(i);
                 int y = 1;
                 for (var region : regions) {
-                    RegionStat r = snapshot.get(region);
+                    if (region >= snapshot.regionCount()) {
+                        // Earlier session, with a smaller heap.
+                        break;
+                    }
+                    RegionStat r = snapshot.get(region, view);
                     r.render(g, x, y, regionSquareSize, regionSquareSize);
                     y += regionSquareSize;
                     if (y > (viewport.height - regionSquareSize)) {
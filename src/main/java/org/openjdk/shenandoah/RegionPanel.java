@@ -27,12 +27,18 @@ package org.openjdk.shenandoah;
 import javax.swing.*;
 import java.awt.*;
 import java.awt.event.*;
+import java.awt.image.BufferedImage;
 
 class RegionPanel extends JPanel {
     private final RenderRunner renderRunner;
 
     int regionWidth, regionHeight;
 
+    // The regions as last painted. The snapshot right after the painted one
+    // only has the regions it changed painted over.
+    private BufferedImage image;
+    private Snapshot painted;
+
     RegionPanel(RenderRunner renderRunner, KeyAdapter keyboardShortCuts) {
         this.renderRunner = renderRunner;
 
@@ -75,15 +81,47 @@ class RegionPanel extends JPanel {
     @Override
     public void paint(Graphics g) {
         Snapshot snapshot = renderRunner.snapshot();
+        if (regionWidth <= 0 || regionHeight <= 0) {
+            return;
+        }
         int area = regionWidth * regionHeight;
         int sqSize = Math.max(1, (int) Math.sqrt(1D * area / snapshot.regionCount()));
         int cols = regionWidth / sqSize;
         int cellSize = sqSize - 2;
-        for (int i = 0; i < snapshot.regionCount(); i++) {
-            int rectx = (i % cols) * sqSize;
-            int recty = (i / cols) * sqSize;
-            RegionStat s = snapshot.get(i);
-            s.render(g, rectx, recty, cellSize, cellSize);
+        RegionStat view = new RegionStat(0L);
+
+        boolean sameSize = image != null && image.getWidth() == regionWidth && image.getHeight() == regionHeight;
+        if (!sameSize || snapshot != painted) {
+            RegionChanges changes = snapshot.changes();
+            boolean incremental = sameSize && changes.hasPrevious() && renderRunner.isCurrentAfter(snapshot, painted);
+            if (!sameSize) {
+                image = new BufferedImage(regionWidth, regionHeight, BufferedImage.TYPE_INT_RGB);
+            }
+            Graphics2D ig = image.createGraphics();
+            try {
+                if (incremental) {
+                    for (int i = changes.nextChanged(0); i >= 0; i = changes.nextChanged(i + 1)) {
+                        int rectx = (i % cols) * sqSize;
+                        int recty = (i / cols) * sqSize;
+                        ig.setColor(getBackground());
+                        ig.fillRect(rectx, recty, cellSize, cellSize);
+                        snapshot.get(i, view).render(ig, rectx, recty, cellSize, cellSize);
+                    }
+                } else {
+                    ig.setColor(getBackground());
+                    ig.fillRect(0, 0, regionWidth, regionHeight);
+                    for (int i = 0; i < snapshot.regionCount(); i++) {
+                        int rectx = (i % cols) * sqSize;
+                        int recty = (i / cols) * sqSize;
+                        RegionStat s = snapshot.get(i, view);
+                        s.render(ig, rectx, recty, cellSize, cellSize);
+                    }
+                }
+            } finally {
+                ig.dispose();
+            }
+            painted = snapshot;
         }
+        g.drawImage(image, 0, 0, null);
     }
 }
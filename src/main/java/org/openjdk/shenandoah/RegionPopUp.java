@@ -26,6 +26,7 @@ package org.openjdk.shenandoah;
 
 import javax.swing.*;
 import java.awt.*;
+import java.util.ConcurrentModificationException;
 import java.util.List;
 
 class RegionPopUp extends JFrame {
@@ -52,7 +53,11 @@ class RegionPopUp extends JFrame {
 
         JPanel timelinePanel = new JPanel() {
             public void paint(Graphics g) {
-                timelinePaint(g);
+                try {
+                    timelinePaint(g);
+                } catch (ConcurrentModificationException e) {
+                    // The timeline reached history overwritten since; stop there.
+                }
             }
         };
         JPanel spotlightPanel = new JPanel() {
@@ -91,9 +96,14 @@ class RegionPopUp extends JFrame {
 
     synchronized void timelinePaint(Graphics g) {
         int y = initialY;
+        Rectangle clip = g.getClipBounds();
         List<Snapshot> snapshots = renderRunner.snapshots();
-        for (int i = snapshots.size() - 1; i >= 0; i--) {
+        for (int i = snapshots.size() - 1; i >= 0 && (clip == null || y < clip.y + clip.height); i--) {
             Snapshot snapshot = snapshots.get(i);
+            if (regionNumber >= snapshot.regionCount()) {
+                // Earlier session, with a smaller heap.
+                break;
+            }
             RegionStat r = snapshot.get(regionNumber);
             if (y == initialY) {
                 r.render(g, 1, y, spotlightSquareSize, spotlightSquareSize);
@@ -0,0 +1,211 @@
+/*
+ * Copyright (c) 2023, Amazon.com, Inc. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Oracle designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package org.openjdk.shenandoah;
+
+import org.HdrHistogram.Histogram;
+import org.HdrHistogram.Recorder;
+
+import java.util.Arrays;
+import java.util.function.Supplier;
+
+/**
+ * Turns the region counters of one target into snapshots, skipping
+ * samples in which nothing changed. Not thread safe, each target is
+ * sampled by one thread at a time.
+ * <p>
+ * The JVM rewrites the region counters in place while they are read, so a
+ * read may mix regions from before and after a publish. The JVM stamps the
+ * status and timestamp before it writes the regions, which catches a
+ * publish that begins during the read, but not one already under way when
+ * it began. So, given retries, the regions are read a second time, and the
+ * two reads must agree with each other, as well as the status and the
+ * timestamp. When they do not, the second read is checked against a third,
+ * and so on, until the retries run out and the last read is taken as it
+ * is. Without retries, only the status and timestamp are checked.
+ */
+class RegionSampler {
+    static final int DEFAULT_READ_RETRIES = 2;
+
+    private final PerfCounters counters;
+    private final RegionCounters regions;
+    private final AuxiliaryCounters auxiliary;
+    private final PauseCounters pauses;
+    private final int readRetries;
+    private long[] data;
+    private long[] verifyData;
+    private long[] previousData;
+    private boolean hasPrevious;
+    private int previousStatus;
+    private long previousTimestamp;
+    private HeapRates rates = HeapRates.NONE;
+    private volatile boolean cycleActive;
+    private volatile long readNanos;
+    private volatile long maxReadNanos;
+    private volatile long retries;
+    private volatile long inconsistentReads;
+
+    RegionSampler(PerfCounters counters) {
+        this(counters, AuxiliaryCounters.NONE, null, DEFAULT_READ_RETRIES);
+    }
+
+    /**
+     * @param pauseRecorder where to record the pauses seen in the counters,
+     *                      or null when pause times come from elsewhere
+     * @param readRetries   how many times to read the regions again when a
+     *                      read was torn, zero to only check for it
+     */
+    RegionSampler(PerfCounters counters, AuxiliaryCounters auxiliary, Recorder pauseRecorder, int readRetries) {
+        this.counters = counters;
+        this.readRetries = readRetries;
+        regions = new RegionCounters(counters);
+        this.auxiliary = auxiliary.bind(counters);
+        this.pauses = pauseRecorder == null ? null : PauseCounters.find(counters, pauseRecorder);
+        data = new long[regions.maxRegions()];
+        verifyData = new long[regions.maxRegions()];
+        previousData = new long[regions.maxRegions()];
+    }
+
+    /**
+     * Returns a new snapshot, or null if the region data is identical to
+     * that of the last snapshot. The JVM only republishes region data at
+     * ShenandoahRegionSamplingRate, so most samples taken between updates
+     * would otherwise be duplicates. The pause histogram is only asked for
+     * when a snapshot is taken.
+     */
+    Snapshot sample(Supplier<Histogram> pauseHistogram) {
+        long start = System.nanoTime();
+        counters.refresh();
+        if (pauses != null) {
+            pauses.record();
+        }
+
+        // Cheapest check first: the JVM has not published anything new.
+        int status = regions.status();
+        long timestamp = regions.timestamp();
+        cycleActive = Snapshot.isCycleActive(status, regions.protocolVersion());
+        if (hasPrevious && status == previousStatus && regions.hasTimestamp() && timestamp == previousTimestamp) {
+            recordReadTime(start);
+            return null;
+        }
+
+        // Published again, but possibly with the same contents.
+        regions.read(data);
+        boolean consistent;
+        if (readRetries == 0) {
+            consistent = status == regions.status() && timestamp == regions.timestamp();
+        } else {
+            for (int attempt = 0; ; attempt++) {
+                // A copy of the counters has to be fetched again to see any change.
+                counters.refresh();
+                int statusAfter = regions.status();
+                long timestampAfter = regions.timestamp();
+                regions.read(verifyData);
+                consistent = status == statusAfter && timestamp == timestampAfter && Arrays.equals(data, verifyData);
+                if (consistent || attempt == readRetries) {
+                    break;
+                }
+                retries++;
+                status = statusAfter;
+                timestamp = timestampAfter;
+                long[] swap = data;
+                data = verifyData;
+                verifyData = swap;
+            }
+            cycleActive = Snapshot.isCycleActive(status, regions.protocolVersion());
+        }
+        if (!consistent) {
+            inconsistentReads++;
+        }
+        long[] auxiliaryValues = auxiliary.read(counters);
+        recordReadTime(start);
+        if (hasPrevious && status == previousStatus && Arrays.equals(data, previousData)) {
+            previousTimestamp = timestamp;
+            return null;
+        }
+
+        // The snapshot keeps the words, which are also the ones the next
+        // sample is compared with, so they are not read into again.
+        boolean sessionStart = !hasPrevious;
+        RegionChanges changes = RegionChanges.between(sessionStart ? null : previousData, data);
+        previousData = data;
+        data = new long[data.length];
+        previousStatus = status;
+        previousTimestamp = timestamp;
+        hasPrevious = true;
+
+        // Cannot use timestamp value from the dataset itself, because statistics
+        // is not reported continuously
+        long time = System.currentTimeMillis();
+        rates = rates.next(time, regions.regionSize(), changes);
+        return new Snapshot.Builder(time, regions.regionSize(), regions.protocolVersion(), previousData, status)
+                .histogram(pauseHistogram.get())
+                .sessionStart(sessionStart)
+                .auxiliary(auxiliary, auxiliaryValues)
+                .consistent(consistent)
+                .changes(changes)
+                .rates(rates)
+                .build();
+    }
+
+    private void recordReadTime(long start) {
+        long elapsed = System.nanoTime() - start;
+        readNanos = elapsed;
+        maxReadNanos = Math.max(maxReadNanos, elapsed);
+    }
+
+    /**
+     * How long the most recent sample took to read its counters. For a
+     * remote target, this is mostly the round trip to jstatd.
+     */
+    long readNanos() {
+        return readNanos;
+    }
+
+    long maxReadNanos() {
+        return maxReadNanos;
+    }
+
+    /**
+     * How many times the regions were read again because a read was torn.
+     */
+    long retries() {
+        return retries;
+    }
+
+    /**
+     * How many reads were still torn when the retries ran out.
+     */
+    long inconsistentReads() {
+        return inconsistentReads;
+    }
+
+    /**
+     * Whether a collection was running as of the most recent sample, even
+     * if that sample was skipped as unchanged.
+     */
+    boolean isCycleActive() {
+        return cycleActive;
+    }
+}
@@ -25,95 +25,130 @@
 package org.openjdk.shenandoah;
 
 import java.awt.*;
-import java.util.Arrays;
-import java.util.Collections;
 
 import static org.openjdk.shenandoah.Colors.*;
 
+/**
+ * One region, decoded on access from the word the JVM publishes for it.
+ * The static accessors decode a word without an instance, and an instance
+ * can be moved from one region to the next with {@link #at(long)}.
+ */
 class RegionStat {
 
-    private static final int PERCENT_MASK      = 0x7f;
-    private static final int AGE_MASK          = 0x0f;
-    private static final int AFFILIATION_MASK  = 0x03;
-    private static final int STATUS_MASK       = 0x3f;
-
-    private static final int USED_SHIFT        = 0;
-    private static final int LIVE_SHIFT        = 7;
-    private static final int TLAB_SHIFT        = 14;
-    private static final int GCLAB_SHIFT       = 21;
-    private static final int SHARED_SHIFT      = 28;
-    private static final int PLAB_SHIFT        = 35;
-    private static final int AGE_SHIFT         = 51;
-    private static final int AFFILIATION_SHIFT = 56;
-    private static final int FLAGS_SHIFT       = 58;
-
-    private final RegionState state;
-    private final float liveLvl;
-    private final float usedLvl;
-    private final float tlabLvl;
-    private final float gclabLvl;
-    private final float plabLvl;
-    private final float sharedLvl;
-    private final long age;
-    private final RegionAffiliation affiliation;
-    private final boolean showLivenessDetail;
+    static final int PERCENT_MASK      = 0x7f;
+    static final int AGE_MASK          = 0x0f;
+    static final int AFFILIATION_MASK  = 0x03;
+    static final int STATUS_MASK       = 0x3f;
+
+    static final int USED_SHIFT        = 0;
+    static final int LIVE_SHIFT        = 7;
+    static final int TLAB_SHIFT        = 14;
+    static final int GCLAB_SHIFT       = 21;
+    static final int SHARED_SHIFT      = 28;
+    static final int PLAB_SHIFT        = 35;
+    static final int AGE_SHIFT         = 51;
+    static final int AFFILIATION_SHIFT = 56;
+    static final int FLAGS_SHIFT       = 58;
+
+    private static final boolean SHOW_LIVENESS_DETAIL = Boolean.getBoolean("show.liveness");
 
     private static final Stroke STROKE = new BasicStroke(2);
 
+    private long data;
+    private final boolean hasAge;
+
     // This constructor is for the legend.
     RegionStat(float usedLvl, float liveLvl, float tlabLvl, float gclabLvl, float plabLvl, float sharedLvl, RegionState state) {
-        this.usedLvl = usedLvl;
-        this.liveLvl = liveLvl;
-        this.tlabLvl = tlabLvl;
-        this.gclabLvl = gclabLvl;
-        this.plabLvl = plabLvl;
-        this.sharedLvl = sharedLvl;
-        this.state = state;
-        this.age = -1;
-        this.affiliation = RegionAffiliation.YOUNG;
-        this.showLivenessDetail = Boolean.getBoolean("show.liveness");
+        this(usedLvl, liveLvl, tlabLvl, gclabLvl, plabLvl, sharedLvl, RegionAffiliation.YOUNG, state);
     }
     // This constructor is for CounterTest
     RegionStat(float usedLvl, float liveLvl, float tlabLvl, float gclabLvl, float plabLvl, float sharedLvl, RegionAffiliation affiliation,RegionState state) {
-        this.usedLvl = usedLvl;
-        this.liveLvl = liveLvl;
-        this.tlabLvl = tlabLvl;
-        this.gclabLvl = gclabLvl;
-        this.plabLvl = plabLvl;
-        this.sharedLvl = sharedLvl;
-        this.state = state;
-        this.age = -1;
-        this.affiliation = affiliation;
-        this.showLivenessDetail = Boolean.getBoolean("show.liveness");
+        this.data = encode(usedLvl, liveLvl, tlabLvl, gclabLvl, plabLvl, sharedLvl, 0, affiliation, state);
+        this.hasAge = false;
     }
 
     // Also only used for the legend.
     RegionStat(RegionState state, int age) {
-        this.usedLvl = 0;
-        this.liveLvl = 0;
-        this.tlabLvl = 0;
-        this.gclabLvl = 0;
-        this.plabLvl = 0;
-        this.sharedLvl = 0;
-        this.state = state;
-        this.age = age;
-        this.affiliation = RegionAffiliation.YOUNG;
-        this.showLivenessDetail = Boolean.getBoolean("show.liveness");
+        this.data = encode(0, 0, 0, 0, 0, 0, age, RegionAffiliation.YOUNG, state);
+        this.hasAge = true;
     }
 
     RegionStat(long data) {
-        this.showLivenessDetail = Boolean.getBoolean("show.liveness");
+        this.data = data;
+        this.hasAge = true;
+    }
 
-        usedLvl  = ((data >>> USED_SHIFT)  & PERCENT_MASK) / 100F;
-        liveLvl  = ((data >>> LIVE_SHIFT)  & PERCENT_MASK) / 100F;
-        tlabLvl  = ((data >>> TLAB_SHIFT)  & PERCENT_MASK) / 100F;
-        gclabLvl = ((data >>> GCLAB_SHIFT) & PERCENT_MASK) / 100F;
-        plabLvl =  ((data >>> PLAB_SHIFT)  & PERCENT_MASK) / 100F;
-        sharedLvl = ((data >>> SHARED_SHIFT) & PERCENT_MASK) / 100F;
+    /**
+     * Points this region at another region word, so that one instance can
+     * serve as a view of each region in turn.
+     */
+    RegionStat at(long data) {
+        this.data = data;
+        return this;
+    }
+
+    /**
+     * The region word, as published by the JVM.
+     */
+    long data() {
+        return data;
+    }
 
-        age = ((data >>> AGE_SHIFT) & AGE_MASK);
-        affiliation = RegionAffiliation.fromOrdinal((int) (data >>> AFFILIATION_SHIFT) & AFFILIATION_MASK);
-        state = RegionState.fromOrdinal((int) (data >>> FLAGS_SHIFT) & STATUS_MASK);
+    private static long encode(float usedLvl, float liveLvl, float tlabLvl, float gclabLvl, float plabLvl, float sharedLvl,
+                               int age, RegionAffiliation affiliation, RegionState state) {
+        return percent(usedLvl) << USED_SHIFT
+             | percent(liveLvl) << LIVE_SHIFT
+             | percent(tlabLvl) << TLAB_SHIFT
+             | percent(gclabLvl) << GCLAB_SHIFT
+             | percent(sharedLvl) << SHARED_SHIFT
+             | percent(plabLvl) << PLAB_SHIFT
+             | (long) (age & AGE_MASK) << AGE_SHIFT
+             | (long) affiliation.ordinal() << AFFILIATION_SHIFT
+             | (long) state.publishedOrdinal() << FLAGS_SHIFT;
+    }
+
+    private static long percent(float level) {
+        return Math.round(level * 100) & PERCENT_MASK;
+    }
+
+    private static float level(long data, int shift) {
+        return ((data >>> shift) & PERCENT_MASK) / 100F;
+    }
+
+    static float used(long data) {
+        return level(data, USED_SHIFT);
+    }
+
+    static float live(long data) {
+        return level(data, LIVE_SHIFT);
+    }
+
+    static float tlabAllocs(long data) {
+        return level(data, TLAB_SHIFT);
+    }
+
+    static float gclabAllocs(long data) {
+        return level(data, GCLAB_SHIFT);
+    }
+
+    static float plabAllocs(long data) {
+        return level(data, PLAB_SHIFT);
+    }
+
+    static float sharedAllocs(long data) {
+        return level(data, SHARED_SHIFT);
+    }
+
+    static long age(long data) {
+        return (data >>> AGE_SHIFT) & AGE_MASK;
+    }
+
+    static RegionAffiliation affiliation(long data) {
+        return RegionAffiliation.fromOrdinal((int) (data >>> AFFILIATION_SHIFT) & AFFILIATION_MASK);
+    }
+
+    static RegionState state(long data) {
+        return RegionState.fromOrdinal((int) (data >>> FLAGS_SHIFT) & STATUS_MASK);
     }
 
     private Color selectLive(RegionState s) {
@@ -140,12 +175,24 @@ class RegionStat {
         }
     }
 
+    /**
+     * A single color for the region, for views where regions are drawn a
+     * few pixels wide.
+     */
+    Color summaryColor() {
+        RegionState state = state();
+        if (state == RegionState.REGULAR) {
+            return mixAlpha(LIVE_REGULAR, used());
+        }
+        return selectLive(state);
+    }
+
     private Color mixAlpha(Color c, float alpha) {
         return new Color(c.getRed(), c.getGreen(), c.getBlue(), (int)(alpha * 100 + 55));
     }
 
     private void drawShape(Graphics2D g, int x, int y, int width, int height) {
-        switch (affiliation) {
+        switch (affiliation()) {
             case FREE:
                 break;
             case YOUNG:
@@ -158,7 +205,7 @@ class RegionStat {
     }
 
     private void fillShape(Graphics2D g, int x, int y, int width, int height) {
-        switch (affiliation) {
+        switch (affiliation()) {
             case FREE:
                 break;
             case YOUNG:
@@ -172,11 +219,19 @@ class RegionStat {
 
     void render(Graphics graphics, int x, int y, int width, int height) {
         Graphics2D g = (Graphics2D) graphics;
+        RegionState state = state();
+        float usedLvl = used();
+        float liveLvl = live();
+        long age = age();
         g.setColor(Color.WHITE);
         fillShape(g, x, y, width, height);
 
         switch (state) {
             case REGULAR: {
+                float tlabLvl = tlabAllocs();
+                float gclabLvl = gclabAllocs();
+                float plabLvl = plabAllocs();
+                float sharedLvl = sharedAllocs();
                 if (gclabLvl > 0 || tlabLvl > 0 || sharedLvl > 0 || plabLvl > 0) {
                     int sharedWidth = (int) (width * sharedLvl);
                     int tlabWidth = (int) (width * tlabLvl);
@@ -262,17 +317,17 @@ class RegionStat {
         }
 
         if (age > -1) {
-            g.setColor(getColorForAge());
+            g.setColor(getColorForAge(age));
             g.setStroke(STROKE);
             drawShape(g, x, y, width, height);
-            if (showLivenessDetail) {
+            if (SHOW_LIVENESS_DETAIL) {
                 g.setColor(Color.BLACK);
                 g.drawString(String.valueOf(liveLvl), x + 2, y + height - 2);
             }
         }
     }
 
-    private Color getColorForAge() {
+    private static Color getColorForAge(long age) {
         final int THRESHOLD = 15;
         final int categorySize = THRESHOLD / AGE_COLORS.length;
         int category = (int) (age / categorySize);
@@ -289,60 +344,60 @@ class RegionStat {
 
         RegionStat that = (RegionStat) o;
 
-        if (Float.compare(that.liveLvl, liveLvl) != 0) return false;
-        if (Float.compare(that.usedLvl, usedLvl) != 0) return false;
-        if (Float.compare(that.tlabLvl, tlabLvl) != 0) return false;
-        if (Float.compare(that.gclabLvl, gclabLvl) != 0) return false;
-        return state.equals(that.state);
+        if (Float.compare(that.live(), live()) != 0) return false;
+        if (Float.compare(that.used(), used()) != 0) return false;
+        if (Float.compare(that.tlabAllocs(), tlabAllocs()) != 0) return false;
+        if (Float.compare(that.gclabAllocs(), gclabAllocs()) != 0) return false;
+        return state().equals(that.state());
     }
 
     @Override
     public int hashCode() {
-        int result = state.hashCode();
-        result = 31 * result + (liveLvl != 0.0f ? Float.floatToIntBits(liveLvl) : 0);
-        result = 31 * result + (usedLvl != 0.0f ? Float.floatToIntBits(usedLvl) : 0);
-        result = 31 * result + (tlabLvl != 0.0f ? Float.floatToIntBits(tlabLvl) : 0);
-        result = 31 * result + (gclabLvl != 0.0f ? Float.floatToIntBits(gclabLvl) : 0);
+        int result = state().hashCode();
+        result = 31 * result + (live() != 0.0f ? Float.floatToIntBits(live()) : 0);
+        result = 31 * result + (used() != 0.0f ? Float.floatToIntBits(used()) : 0);
+        result = 31 * result + (tlabAllocs() != 0.0f ? Float.floatToIntBits(tlabAllocs()) : 0);
+        result = 31 * result + (gclabAllocs() != 0.0f ? Float.floatToIntBits(gclabAllocs()) : 0);
         return result;
     }
 
     RegionAffiliation affiliation() {
-        return affiliation;
+        return affiliation(data);
     }
 
     float live() {
-        return liveLvl;
+        return live(data);
     }
 
     float used() {
-        return usedLvl;
+        return used(data);
     }
 
     float tlabAllocs() {
-        return tlabLvl;
+        return tlabAllocs(data);
     }
 
     float gclabAllocs() {
-        return gclabLvl;
+        return gclabAllocs(data);
     }
 
     float plabAllocs() {
-        return plabLvl;
+        return plabAllocs(data);
     }
 
     float maxAllocsYoung() {
-        return Collections.max(Arrays.asList(tlabLvl, gclabLvl, sharedLvl));
+        return Math.max(tlabAllocs(), Math.max(gclabAllocs(), sharedAllocs()));
     }
     float maxAllocsOld() {
-        return Collections.max(Arrays.asList(plabLvl, sharedLvl));
+        return Math.max(plabAllocs(), sharedAllocs());
     }
 
     float sharedAllocs() {
-        return sharedLvl;
+        return sharedAllocs(data);
     }
 
     RegionState state() {
-        return state;
+        return state(data);
     }
-    long age() { return age; }
+    long age() { return hasAge ? age(data) : -1; }
 }
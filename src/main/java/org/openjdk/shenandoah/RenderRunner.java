@@ -24,20 +24,30 @@
  */
 package org.openjdk.shenandoah;
 
+import org.HdrHistogram.Histogram;
+
 import javax.swing.*;
 import java.awt.*;
-import java.util.ArrayList;
-import java.util.HashSet;
 import java.util.List;
 import java.util.Set;
+import java.util.concurrent.CopyOnWriteArraySet;
 import java.util.concurrent.Executors;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 class RenderRunner implements Runnable {
+    private static final long FRAME_INTERVAL_MS = 100;
+
     private final ScheduledExecutorService service;
+    private final ScheduledExecutorService sampler;
+    private final SamplingPolicy samplingPolicy;
+    private final AtomicBoolean framePending;
+    private volatile long samplesTaken;
+    private volatile long framesRendered;
+    private volatile long framesDropped;
     private long lastUpdateNanos;
-    private volatile EventLog<Snapshot> events;
+    private volatile SnapshotLog events;
     private boolean isPaused;
     private boolean isLive;
     private double playbackSpeed;
@@ -46,17 +56,36 @@ class RenderRunner implements Runnable {
     private Runnable recordingLoaded;
 
     private final DataProvider liveData;
+    private TargetMonitor targetMonitor;
+    private volatile LiveTarget viewedTarget;
+    private String host;
+    private AuxiliaryCounters auxiliaryCounters = AuxiliaryCounters.parse(AuxiliaryCounters.DEFAULT_SPEC);
+    private int readRetries = RegionSampler.DEFAULT_READ_RETRIES;
+    private RetentionPolicy retention = RetentionPolicy.DEFAULT;
 
     private final Set<JFrame> frames;
 
     RenderRunner(JFrame frame) {
-        this.frames = new HashSet<>();
+        this(frame, SamplingPolicy.fixed(SamplingPolicy.DEFAULT_INTERVAL_MS));
+    }
+
+    RenderRunner(JFrame frame, SamplingPolicy samplingPolicy) {
+        this.frames = new CopyOnWriteArraySet<>();
         this.frames.add(frame);
         this.playbackSpeed = 1.0;
         this.liveData = new DataProvider();
-        this.events = new EventLog<>(TimeUnit.MILLISECONDS, 1);
+        this.events = new SnapshotLog(RetentionPolicy.lastSnapshots(1));
+        this.framePending = new AtomicBoolean();
+        this.samplingPolicy = samplingPolicy;
         this.service = Executors.newScheduledThreadPool(2);
-        service.scheduleAtFixedRate(this, 0, 100, TimeUnit.MILLISECONDS);
+        this.sampler = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r);
+            t.setDaemon(true);
+            t.setName("Sampler");
+            return t;
+        });
+        service.scheduleAtFixedRate(this, 0, FRAME_INTERVAL_MS, TimeUnit.MILLISECONDS);
+        sampler.execute(this::sample);
     }
 
     void onRecordingLoaded(Runnable runnable) {
@@ -66,9 +95,16 @@ class RenderRunner implements Runnable {
     synchronized void loadPlayback(String filePath) {
         lastUpdateNanos = 0;
         liveData.stopConnector();
+        leaveEvents();
+        SnapshotLog recording = new SnapshotLog(RetentionPolicy.DEFAULT);
+        events = recording;
         playbackStatus = "Loading";
         service.submit(() -> {
-            DataLogProvider.loadSnapshots(filePath, events);
+            if (JfrLogProvider.isRecording(filePath)) {
+                JfrLogProvider.loadSnapshots(filePath, recording);
+            } else {
+                DataLogProvider.loadSnapshots(filePath, recording);
+            }
             isLive = false;
             playbackStatus = "Recorded";
             if (recordingLoaded != null) {
@@ -78,26 +114,121 @@ class RenderRunner implements Runnable {
         });
     }
 
+    synchronized void setHost(String host) {
+        this.host = host;
+        liveData.setHost(host);
+    }
+
+    void setReconnect(DataConnector.Reconnect reconnect) {
+        liveData.setReconnect(reconnect);
+    }
+
+    synchronized void setAuxiliaryCounters(AuxiliaryCounters auxiliaryCounters) {
+        this.auxiliaryCounters = auxiliaryCounters;
+        liveData.setAuxiliaryCounters(auxiliaryCounters);
+    }
+
+    synchronized void setReadRetries(int readRetries) {
+        this.readRetries = readRetries;
+        liveData.setReadRetries(readRetries);
+    }
+
+    /**
+     * How much history to keep of live targets connected to from now on.
+     */
+    synchronized void setRetentionPolicy(RetentionPolicy retention) {
+        this.retention = retention;
+    }
+
+    void setJmxEnabled(boolean jmxEnabled) {
+        liveData.setJmxEnabled(jmxEnabled);
+    }
+
+    void setEventStreaming(boolean streamEvents) {
+        liveData.setEventStreaming(streamEvents);
+    }
+
     synchronized void loadLive(String vmIdentifier) {
         if (vmIdentifier != null) {
             liveData.setConnectionTarget(vmIdentifier);
         }
 
         lastUpdateNanos = 0;
+        leaveEvents();
         liveData.startConnector();
-        events = new EventLog<>(TimeUnit.MILLISECONDS, 5_000);
+        events = new SnapshotLog(retention);
         isLive = true;
     }
 
-    public synchronized void run() {
+    /**
+     * Starts sampling every local Shenandoah JVM, in addition to the one
+     * shown in the main view.
+     */
+    synchronized TargetMonitor monitorAll() {
+        if (targetMonitor == null) {
+            targetMonitor = new TargetMonitor(samplingPolicy, host, auxiliaryCounters, readRetries, retention);
+        }
+        targetMonitor.start();
+        return targetMonitor;
+    }
+
+    /**
+     * Shows one of the targets of the monitor in the main view, picking up
+     * at its most recent snapshot.
+     */
+    synchronized void view(LiveTarget target) {
+        lastUpdateNanos = 0;
+        liveData.stopConnector();
+        if (target != viewedTarget) {
+            leaveEvents();
+            target.setViewed(true);
+        }
+        target.events().stepToEnd();
+        events = target.events();
+        viewedTarget = target;
+        isLive = true;
+    }
+
+    // Closes the log shown so far, unless it still belongs to a monitored
+    // target, which closes it once it is neither viewed nor sampled.
+    private void leaveEvents() {
+        LiveTarget target = viewedTarget;
+        if (target == null) {
+            events.close();
+        } else {
+            target.setViewed(false);
+        }
+        viewedTarget = null;
+    }
+
+    LiveTarget viewedTarget() {
+        return viewedTarget;
+    }
+
+    /**
+     * Runs on its own thread, at its own rate, so that a slow paint never
+     * delays a sample. Samples always go into the event log; it is frames
+     * that get dropped when the UI cannot keep up.
+     */
+    private void sample() {
+        long start = System.nanoTime();
         try {
             if (liveData.isConnected()) {
-                Snapshot snapshot = liveData.snapshot();
-                if (snapshot != null) {
-                    events.add(snapshot);
-                }
+                samplesTaken += liveData.drainSnapshots(events::add);
+            }
+        } catch (Exception e) {
+            e.printStackTrace();
+        } finally {
+            long interval = TimeUnit.MILLISECONDS.toNanos(samplingPolicy.next(liveData.isCycleActive()));
+            long delay = Math.max(0, interval - (System.nanoTime() - start));
+            if (!sampler.isShutdown()) {
+                sampler.schedule(this::sample, delay, TimeUnit.NANOSECONDS);
             }
+        }
+    }
 
+    public synchronized void run() {
+        try {
             long now = System.nanoTime();
             if (lastUpdateNanos != 0) {
                 if (!isPaused) {
@@ -106,17 +237,55 @@ class RenderRunner implements Runnable {
                 }
             }
             lastUpdateNanos = now;
-            frames.forEach(JFrame::repaint);
+            requestFrame();
         } catch (Exception e) {
             e.printStackTrace();
         }
     }
 
+    // At most one frame is in flight: if the previous one has not been
+    // painted yet, this one is dropped rather than queued behind it.
+    private void requestFrame() {
+        if (!framePending.compareAndSet(false, true)) {
+            framesDropped++;
+            return;
+        }
+        SwingUtilities.invokeLater(() -> {
+            try {
+                frames.forEach(JFrame::repaint);
+                framesRendered++;
+            } finally {
+                framePending.set(false);
+            }
+        });
+    }
+
     synchronized Snapshot snapshot() {
         Snapshot latest = events.current();
         return latest != null ? latest : DataProvider.DISCONNECTED;
     }
 
+    /**
+     * The pauses in the given span of time up to the current snapshot, or
+     * all of them if the history does not go back that far.
+     */
+    synchronized Histogram recentPauses(long windowMillis) {
+        Snapshot latest = events.current();
+        if (latest == null) {
+            return null;
+        }
+        Snapshot earlier = events.latestAt(latest.time() - windowMillis);
+        return PauseHistogram.between(earlier != null ? earlier.getSafepointTime() : null, latest.getSafepointTime());
+    }
+
+    /**
+     * Whether the given snapshot is the current one, and directly follows
+     * the other one, so that its changes are relative to that.
+     */
+    boolean isCurrentAfter(Snapshot current, Snapshot earlier) {
+        return events.isCurrentAfter(current, earlier);
+    }
+
     void addPopup(JFrame popup) {
         frames.add(popup);
     }
@@ -125,8 +294,15 @@ class RenderRunner implements Runnable {
         frames.remove(popup);
     }
 
+    /**
+     * The snapshots up to the current one, oldest first, as a view that
+     * stays the same while new ones come in, and can be read from any
+     * thread. Walk it by index; it is not a copy. Reading the oldest may
+     * throw {@link java.util.ConcurrentModificationException}, once they
+     * are dropped from the spill.
+     */
     List<Snapshot> snapshots() {
-        return new ArrayList<>(events.inRange());
+        return events.inRange();
     }
 
     void setPlaybackSpeed(double speed) {
@@ -151,6 +327,22 @@ class RenderRunner implements Runnable {
         events.stepToEnd();
     }
 
+    /**
+     * Steps to the start of the next, or previous, GC cycle, or degenerated
+     * or full cycle if anomaly is set. Returns false if there is none.
+     */
+    boolean stepToCycle(boolean forward, boolean anomaly) {
+        return events.stepToCycle(forward, anomaly);
+    }
+
+    /**
+     * The GC cycle the current snapshot is part of, or null if the
+     * collector was idle then.
+     */
+    CycleIndex.Cycle currentCycle() {
+        return events.currentCycle();
+    }
+
     double getPlaybackSpeed() {
         return playbackSpeed;
     }
@@ -167,12 +359,134 @@ class RenderRunner implements Runnable {
         return events.cursor();
     }
 
+    /**
+     * Moves to the latest snapshot taken no later than the given time, in
+     * milliseconds, or the first one if they were all taken later.
+     */
+    void seekTo(long time) {
+        events.seekTo(time, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Roughly how many bytes the snapshots held take up.
+     */
+    long historyBytes() {
+        return events.bytes();
+    }
+
+    /**
+     * Roughly how many bytes the snapshots spilled to disk take up.
+     */
+    long historyDiskBytes() {
+        return events.diskBytes();
+    }
+
+    /**
+     * The time between the oldest and newest snapshots held, in ms.
+     */
+    long historySpan() {
+        return events.span();
+    }
+
+    RetentionPolicy retention() {
+        return events.retention();
+    }
+
+    /**
+     * The time of the oldest snapshot held, or 0 if there is none.
+     */
+    long firstTime() {
+        Snapshot first = events.first();
+        return first != null ? first.time() : 0;
+    }
+
+    /**
+     * The time of the newest snapshot held, or 0 if there is none.
+     */
+    long lastTime() {
+        Snapshot last = events.last();
+        return last != null ? last.time() : 0;
+    }
+
     String status() {
+        LiveTarget target = viewedTarget;
+        if (target != null) {
+            return (target.isAlive() ? "Monitoring " : "Exited ") + target.pid();
+        }
         return isLive ? liveData.status() : playbackStatus;
     }
 
+    long samplesTaken() {
+        LiveTarget target = viewedTarget;
+        return target != null ? target.samplesTaken() : samplesTaken;
+    }
+
+    long samplesUnchanged() {
+        LiveTarget target = viewedTarget;
+        return target != null ? target.unchangedSamples() : liveData.unchangedSamples();
+    }
+
+    /**
+     * How long the most recent sample took to read the target's counters,
+     * which for a remote target is mostly the round trip to jstatd.
+     */
+    long sampleReadNanos() {
+        LiveTarget target = viewedTarget;
+        return target != null ? target.readNanos() : liveData.readNanos();
+    }
+
+    long maxSampleReadNanos() {
+        LiveTarget target = viewedTarget;
+        return target != null ? target.maxReadNanos() : liveData.maxReadNanos();
+    }
+
+    /**
+     * How many times the regions were read again because a read was torn.
+     */
+    long sampleReadRetries() {
+        LiveTarget target = viewedTarget;
+        return target != null ? target.readRetries() : liveData.readRetries();
+    }
+
+    /**
+     * How many reads were still torn when the retries ran out, and were
+     * taken on a best effort basis.
+     */
+    long inconsistentReads() {
+        LiveTarget target = viewedTarget;
+        return target != null ? target.inconsistentReads() : liveData.inconsistentReads();
+    }
+
+    boolean isRemote() {
+        return host != null;
+    }
+
+    long sampleInterval() {
+        LiveTarget target = viewedTarget;
+        return target != null ? target.sampleInterval() : samplingPolicy.interval();
+    }
+
+    boolean isAdaptiveSampling() {
+        return samplingPolicy.isAdaptive();
+    }
+
+    long framesRendered() {
+        return framesRendered;
+    }
+
+    long framesDropped() {
+        return framesDropped;
+    }
+
     void shutdown() {
+        sampler.shutdown();
         service.shutdown();
+        if (targetMonitor != null) {
+            targetMonitor.shutdown();
+        }
+        synchronized (this) {
+            leaveEvents();
+        }
         frames.forEach(Window::dispose);
         System.exit(0);
     }
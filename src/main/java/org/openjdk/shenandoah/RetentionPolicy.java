@@ -0,0 +1,133 @@
+/*
+ * Copyright (c) 2023, Amazon.com, Inc. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Oracle designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package org.openjdk.shenandoah;
+
+import java.nio.file.Path;
+
+/**
+ * Decides how much history a live event log keeps: the snapshots of the
+ * last so many minutes, or as many as fit in so many megabytes, or both.
+ * Without either, it keeps a fixed number of snapshots, as it always has.
+ * Snapshots are evicted, oldest first, as new ones come in, and can be
+ * spilled to disk rather than dropped. The disk allowed is one budget for
+ * the logs of all targets, each of which spills up to an equal share of
+ * it; see {@link SpillBudget}.
+ */
+class RetentionPolicy {
+    static final int DEFAULT_SNAPSHOTS = 5_000;
+    static final RetentionPolicy DEFAULT = lastSnapshots(DEFAULT_SNAPSHOTS);
+
+    private final int maxSnapshots;
+    private final long maxMillis;
+    private final long maxBytes;
+    private final SpillBudget spillBudget;
+
+    private RetentionPolicy(int maxSnapshots, long maxMillis, long maxBytes) {
+        this(maxSnapshots, maxMillis, maxBytes, null);
+    }
+
+    private RetentionPolicy(int maxSnapshots, long maxMillis, long maxBytes, SpillBudget spillBudget) {
+        if (maxSnapshots < 1 || maxMillis < 0 || maxBytes < 0) {
+            throw new IllegalArgumentException("History limits must be positive");
+        }
+        this.maxSnapshots = maxSnapshots;
+        this.maxMillis = maxMillis;
+        this.maxBytes = maxBytes;
+        this.spillBudget = spillBudget;
+    }
+
+    static RetentionPolicy lastSnapshots(int count) {
+        return new RetentionPolicy(count, 0, 0);
+    }
+
+    /**
+     * @param minutes   how far back to keep snapshots, or 0 for no limit
+     * @param megabytes how much memory snapshots may take up, or 0 for no
+     *                  limit
+     */
+    static RetentionPolicy of(long minutes, long megabytes) {
+        if (minutes == 0 && megabytes == 0) {
+            return DEFAULT;
+        }
+        return new RetentionPolicy(Integer.MAX_VALUE, minutes * 60_000, megabytes * 1024 * 1024);
+    }
+
+    /**
+     * The same policy, with the snapshots it evicts spilled to segment
+     * files in the given directory, up to the given number of megabytes
+     * for all logs following the policy together.
+     */
+    RetentionPolicy spillingTo(Path directory, long megabytes) {
+        if (megabytes <= 0) {
+            throw new IllegalArgumentException("History on disk must be limited to a positive size");
+        }
+        return new RetentionPolicy(maxSnapshots, maxMillis, maxBytes, new SpillBudget(directory, megabytes * 1024 * 1024));
+    }
+
+    /**
+     * The disk to spill evicted snapshots to, or null to drop them.
+     */
+    SpillBudget spillBudget() {
+        return spillBudget;
+    }
+
+    /**
+     * Whether a log holding the given number of snapshots, of the given
+     * size in bytes, and taken over the given span of time, holds too
+     * much. The newest snapshot is always kept.
+     */
+    boolean isExceeded(int snapshots, long bytes, long spanMillis) {
+        if (snapshots <= 1) {
+            return false;
+        }
+        return snapshots > maxSnapshots
+                || (maxMillis > 0 && spanMillis > maxMillis)
+                || (maxBytes > 0 && bytes > maxBytes);
+    }
+
+    /**
+     * A size to start the log at, which it grows from as needed.
+     */
+    int initialSize() {
+        return Math.min(maxSnapshots, 1024);
+    }
+
+    @Override
+    public String toString() {
+        String limits;
+        if (maxMillis == 0 && maxBytes == 0) {
+            limits = "last " + maxSnapshots + " snapshots";
+        } else {
+            limits = maxMillis > 0 ? "last " + maxMillis / 60_000 + " min" : "";
+        }
+        if (maxBytes > 0) {
+            limits += (limits.isEmpty() ? "" : ", ") + "at most " + maxBytes / (1024 * 1024) + " MB";
+        }
+        if (spillBudget != null) {
+            limits += ", then up to " + spillBudget.maxBytes() / (1024 * 1024) + " MB on disk in all";
+        }
+        return limits;
+    }
+}
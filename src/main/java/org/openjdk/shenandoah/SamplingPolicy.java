@@ -0,0 +1,91 @@
+/*
+ * Copyright (c) 2023, Amazon.com, Inc. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Oracle designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package org.openjdk.shenandoah;
+
+/**
+ * Decides how long the sampler waits before taking the next live sample.
+ * An adaptive policy drops to its floor as soon as a cycle is running and
+ * doubles the interval, up to its ceiling, for every sample taken while
+ * the collector is idle. A fixed policy has the same floor and ceiling.
+ */
+class SamplingPolicy {
+    static final long DEFAULT_INTERVAL_MS = 100;
+    static final long MIN_INTERVAL_MS = 5;
+    static final long MAX_INTERVAL_MS = 1_000;
+
+    private final long floor;
+    private final long ceiling;
+    private long interval;
+
+    private SamplingPolicy(long floor, long ceiling) {
+        if (floor < MIN_INTERVAL_MS || ceiling > MAX_INTERVAL_MS || floor > ceiling) {
+            throw new IllegalArgumentException("Sample intervals must be between " + MIN_INTERVAL_MS +
+                    " and " + MAX_INTERVAL_MS + " milliseconds, with the floor not above the ceiling");
+        }
+        this.floor = floor;
+        this.ceiling = ceiling;
+        this.interval = floor;
+    }
+
+    static SamplingPolicy fixed(long interval) {
+        return new SamplingPolicy(interval, interval);
+    }
+
+    static SamplingPolicy adaptive(long floor, long ceiling) {
+        return new SamplingPolicy(floor, ceiling);
+    }
+
+    /**
+     * A policy with the same bounds, but its own current interval, for
+     * sampling another target.
+     */
+    SamplingPolicy copy() {
+        return new SamplingPolicy(floor, ceiling);
+    }
+
+    /**
+     * Parses the "floor:ceiling" argument of -adaptiveSampling.
+     */
+    static SamplingPolicy parseAdaptive(String range) {
+        String[] bounds = range.split(":");
+        if (bounds.length != 2) {
+            throw new IllegalArgumentException("Expected floor:ceiling in milliseconds, got: " + range);
+        }
+        return adaptive(Long.parseLong(bounds[0].trim()), Long.parseLong(bounds[1].trim()));
+    }
+
+    synchronized long next(boolean cycleActive) {
+        interval = cycleActive ? floor : Math.min(ceiling, interval * 2);
+        return interval;
+    }
+
+    synchronized long interval() {
+        return interval;
+    }
+
+    boolean isAdaptive() {
+        return floor != ceiling;
+    }
+}
@@ -0,0 +1,58 @@
+/*
+ * Copyright (c) 2023, Amazon.com, Inc. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Oracle designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package org.openjdk.shenandoah;
+
+import static org.openjdk.shenandoah.RegionStat.*;
+
+final class ScalarRegionDecoder implements RegionDecoder {
+    @Override
+    public void decode(long[] words, int from, int count, RegionColumns columns) {
+        decode(words, from, 0, count, columns);
+    }
+
+    /**
+     * Decodes words[from + row] into each row, from the given one up to
+     * count.
+     */
+    static void decode(long[] words, int from, int row, int count, RegionColumns columns) {
+        for (; row < count; row++) {
+            long word = words[from + row];
+            columns.used[row] = (byte) ((word >>> USED_SHIFT) & PERCENT_MASK);
+            columns.live[row] = (byte) ((word >>> LIVE_SHIFT) & PERCENT_MASK);
+            columns.tlab[row] = (byte) ((word >>> TLAB_SHIFT) & PERCENT_MASK);
+            columns.gclab[row] = (byte) ((word >>> GCLAB_SHIFT) & PERCENT_MASK);
+            columns.shared[row] = (byte) ((word >>> SHARED_SHIFT) & PERCENT_MASK);
+            columns.plab[row] = (byte) ((word >>> PLAB_SHIFT) & PERCENT_MASK);
+            columns.age[row] = (byte) ((word >>> AGE_SHIFT) & AGE_MASK);
+            columns.affiliation[row] = (byte) ((word >>> AFFILIATION_SHIFT) & AFFILIATION_MASK);
+            columns.state[row] = (byte) ((word >>> FLAGS_SHIFT) & STATUS_MASK);
+        }
+    }
+
+    @Override
+    public String name() {
+        return "scalar";
+    }
+}
@@ -29,12 +29,25 @@
  import java.awt.event.KeyEvent;
  import java.awt.event.WindowAdapter;
  import java.awt.event.WindowEvent;
+ import java.nio.file.Path;
 
  class ShenandoahVisualizer extends JFrame {
 
      public static void main(String[] args) {
          String vmIdentifier = null;
          String filePath = null;
+         String host = null;
+         SamplingPolicy samplingPolicy = SamplingPolicy.fixed(SamplingPolicy.DEFAULT_INTERVAL_MS);
+         DataConnector.Reconnect reconnect = DataConnector.Reconnect.NEVER;
+         boolean monitorAll = false;
+         boolean streamEvents = false;
+         boolean jmxEnabled = false;
+         int readRetries = RegionSampler.DEFAULT_READ_RETRIES;
+         long historyMinutes = 0;
+         long historyMegabytes = 0;
+         String historyDirectory = null;
+         long historyDiskMegabytes = 1024;
+         AuxiliaryCounters auxiliaryCounters = AuxiliaryCounters.parse(AuxiliaryCounters.DEFAULT_SPEC);
 
          int i = 0;
          String arg;
@@ -47,6 +60,13 @@
                      System.out.println("-vm requires a vm identifier");
                      return;
                  }
+             } else if (arg.equals("-host")) {
+                 if (i < args.length) {
+                     host = args[i++];
+                 } else {
+                     System.out.println("-host requires a jstatd host identifier");
+                     return;
+                 }
              } else if (arg.equals("-logFile")) {
                  if (i < args.length) {
                      filePath = args[i++];
@@ -54,23 +74,138 @@
                      System.out.println("-logFile requires a file path");
                      return;
                  }
+             } else if (arg.equals("-sampleInterval")) {
+                 if (i < args.length) {
+                     try {
+                         samplingPolicy = SamplingPolicy.fixed(Long.parseLong(args[i++]));
+                     } catch (IllegalArgumentException e) {
+                         System.out.println("-sampleInterval: " + e.getMessage());
+                         return;
+                     }
+                 } else {
+                     System.out.println("-sampleInterval requires a number of milliseconds");
+                     return;
+                 }
+             } else if (arg.equals("-adaptiveSampling")) {
+                 if (i < args.length) {
+                     try {
+                         samplingPolicy = SamplingPolicy.parseAdaptive(args[i++]);
+                     } catch (IllegalArgumentException e) {
+                         System.out.println("-adaptiveSampling: " + e.getMessage());
+                         return;
+                     }
+                 } else {
+                     System.out.println("-adaptiveSampling requires floor:ceiling in milliseconds");
+                     return;
+                 }
+             } else if (arg.equals("-reconnect")) {
+                 if (i < args.length) {
+                     switch (args[i++]) {
+                         case "any" -> reconnect = DataConnector.Reconnect.ANY;
+                         case "mainClass" -> reconnect = DataConnector.Reconnect.MAIN_CLASS;
+                         case "commandLine" -> reconnect = DataConnector.Reconnect.COMMAND_LINE;
+                         default -> {
+                             System.out.println("-reconnect must be one of: any, mainClass, commandLine");
+                             return;
+                         }
+                     }
+                 } else {
+                     System.out.println("-reconnect requires one of: any, mainClass, commandLine");
+                     return;
+                 }
+             } else if (arg.equals("-all")) {
+                 monitorAll = true;
+             } else if (arg.equals("-counters")) {
+                 if (i < args.length) {
+                     try {
+                         auxiliaryCounters = AuxiliaryCounters.parse(args[i++]);
+                     } catch (IllegalArgumentException e) {
+                         System.out.println("-counters: " + e.getMessage());
+                         return;
+                     }
+                 } else {
+                     System.out.println("-counters requires counter names separated by commas, or none");
+                     return;
+                 }
+             } else if (arg.equals("-jfr")) {
+                 streamEvents = true;
+             } else if (arg.equals("-readRetries")) {
+                 if (i < args.length) {
+                     try {
+                         readRetries = Integer.parseInt(args[i++]);
+                     } catch (NumberFormatException e) {
+                         System.out.println("-readRetries: " + e.getMessage());
+                         return;
+                     }
+                     if (readRetries < 0) {
+                         System.out.println("-readRetries must not be negative");
+                         return;
+                     }
+                 } else {
+                     System.out.println("-readRetries requires a number of retries");
+                     return;
+                 }
+             } else if (arg.equals("-historyDir")) {
+                 if (i < args.length) {
+                     historyDirectory = args[i++];
+                 } else {
+                     System.out.println("-historyDir requires a directory");
+                     return;
+                 }
+             } else if (arg.equals("-historyMinutes") || arg.equals("-historyMB") || arg.equals("-historyDiskMB")) {
+                 if (i < args.length) {
+                     long limit;
+                     try {
+                         limit = Long.parseLong(args[i++]);
+                     } catch (NumberFormatException e) {
+                         System.out.println(arg + ": " + e.getMessage());
+                         return;
+                     }
+                     if (limit <= 0) {
+                         System.out.println(arg + " must be positive");
+                         return;
+                     }
+                     switch (arg) {
+                         case "-historyMinutes" -> historyMinutes = limit;
+                         case "-historyMB" -> historyMegabytes = limit;
+                         default -> historyDiskMegabytes = limit;
+                     }
+                 } else {
+                     System.out.println(arg + (arg.equals("-historyMinutes") ? " requires a number of minutes" : " requires a number of megabytes"));
+                     return;
+                 }
+             } else if (arg.equals("-jmx")) {
+                 jmxEnabled = true;
              } else {
                  System.out.println("ShenandoahVisualizer: Illegal option " + arg);
-                 System.out.println("Usage: [-vm vmIdentifier] [-logFile filePath]");
+                 System.out.println("Usage: [-vm vmIdentifier] [-host hostname[:port]] [-logFile filePath] [-sampleInterval millis] [-adaptiveSampling floor:ceiling] [-reconnect any|mainClass|commandLine] [-all] [-jfr] [-jmx] [-counters name[/s],...] [-readRetries n] [-historyMinutes n] [-historyMB n] [-historyDir dir] [-historyDiskMB n]");
                  return;
              }
          }
 
-         ShenandoahVisualizer visualizer = new ShenandoahVisualizer(filePath, vmIdentifier);
+         RetentionPolicy retention = RetentionPolicy.of(historyMinutes, historyMegabytes);
+         if (historyDirectory != null) {
+             retention = retention.spillingTo(Path.of(historyDirectory), historyDiskMegabytes);
+         }
+         ShenandoahVisualizer visualizer = new ShenandoahVisualizer(filePath, vmIdentifier, host, samplingPolicy, reconnect, monitorAll, streamEvents, jmxEnabled, auxiliaryCounters, readRetries,
+                 retention);
          visualizer.setVisible(true);
      }
 
-     ShenandoahVisualizer(String filePath, String vmIdentifier) {
+     ShenandoahVisualizer(String filePath, String vmIdentifier, String host, SamplingPolicy samplingPolicy, DataConnector.Reconnect reconnect, boolean monitorAll, boolean streamEvents,
+                          boolean jmxEnabled, AuxiliaryCounters auxiliaryCounters, int readRetries, RetentionPolicy retention) {
          setLayout(new BorderLayout());
          setTitle("Shenandoah GC Visualizer");
          setSize(LayoutConstants.INITIAL_WIDTH, LayoutConstants.INITIAL_HEIGHT);
 
-         final RenderRunner renderRunner = new RenderRunner(this);
+         final RenderRunner renderRunner = new RenderRunner(this, samplingPolicy);
+         renderRunner.setHost(host);
+         renderRunner.setReconnect(reconnect);
+         renderRunner.setEventStreaming(streamEvents);
+         renderRunner.setJmxEnabled(jmxEnabled);
+         renderRunner.setReadRetries(readRetries);
+         renderRunner.setRetentionPolicy(retention);
+         renderRunner.setAuxiliaryCounters(auxiliaryCounters);
 
          KeyAdapter keyShortcutAdapter = new KeyboardShortcuts(renderRunner);
 
@@ -143,6 +278,9 @@
          }
 
          add(toolbarPanel, BorderLayout.SOUTH);
+         if (monitorAll) {
+             toolbarPanel.showHeaps();
+         }
          add(content, BorderLayout.CENTER);
 
          addWindowListener(new WindowAdapter() {
@@ -169,6 +307,8 @@
                  case KeyEvent.VK_UP -> renderRunner.stepBy(5);
                  case KeyEvent.VK_SPACE -> renderRunner.togglePlayback();
                  case KeyEvent.VK_ENTER -> renderRunner.stepToEnd();
+                 case KeyEvent.VK_PAGE_DOWN -> renderRunner.stepToCycle(true, e.isShiftDown());
+                 case KeyEvent.VK_PAGE_UP -> renderRunner.stepToCycle(false, e.isShiftDown());
              }
          }
      }
@@ -26,8 +26,9 @@ package org.openjdk.shenandoah;
 
 import org.HdrHistogram.Histogram;
 
+import java.nio.LongBuffer;
+import java.util.Arrays;
 import java.util.List;
-import java.util.function.Function;
 
 class Snapshot implements Timed {
     protected String collectionMode() {
@@ -81,44 +82,59 @@ class Snapshot implements Timed {
         }
     }
 
+    /**
+     * True if any generation is in a concurrent phase, or a degenerated or
+     * full cycle is running, according to the given status word.
+     */
+    static boolean isCycleActive(int status, long protocolVersion) {
+        if ((status & 0xc0) != 0) {
+            return true;
+        }
+        if (protocolVersion == 1) {
+            return Generation.GLOBAL.version1_phase(status) != Phase.IDLE;
+        }
+        return Generation.GLOBAL.phase(status) != Phase.IDLE
+            || Generation.OLD.phase(status) != Phase.IDLE
+            || Generation.YOUNG.phase(status) != Phase.IDLE;
+    }
+
+    // The snapshot itself, its rates and its summary.
+    private static final long SNAPSHOT_BYTES = 96 + 48 + 160;
+
     private final long time;
     private final long regionSize;
-    private final List<RegionStat> stats;
+    private final long[] regions;
     private final Phase globalPhase;
     private final Phase oldPhase;
     private final Phase youngPhase;
     private final boolean degenActive;
     private final boolean fullActive;
     private final Histogram histogram;
-
-    private int emptyUncommittedCount;
-    private int emptyCommittedCount;
-    private int trashCount;
-    private int tlabCount;
-    private int gclabCount;
-    private int plabCount;
-    private int sharedCount;
-    private int humongousCount;
-    private int pinnedHumongousCount;
-    private int cSetCount;
-    private int pinnedCount;
-    private int pinnedCSetCount;
-    private int age0Count;
-    private int age3Count;
-    private int age6Count;
-    private int age9Count;
-    private int age12Count;
-    private int age15Count;
-
-    Snapshot(long time, long regionSize, long protocolVersion, List<RegionStat> stats, int status, Histogram histogram) {
-        this.time = time;
-        this.regionSize = regionSize;
-        this.stats = stats;
-        this.histogram = histogram;
+    private final boolean sessionStart;
+    private final AuxiliaryCounters auxiliaryCounters;
+    private final long[] auxiliaryValues;
+    private final boolean consistent;
+    private final RegionChanges changes;
+    private final HeapRates rates;
+
+    private volatile SnapshotSummary summary;
+
+    private Snapshot(Builder builder) {
+        this.time = builder.time;
+        this.sessionStart = builder.sessionStart;
+        this.auxiliaryCounters = builder.auxiliaryCounters;
+        this.auxiliaryValues = builder.auxiliaryValues;
+        this.consistent = builder.consistent;
+        this.regionSize = builder.regionSize;
+        this.regions = builder.regions;
+        this.changes = builder.changes == null ? RegionChanges.all(regions.length) : builder.changes;
+        this.rates = builder.rates;
+        this.histogram = builder.histogram;
+        int status = builder.status;
         this.degenActive = ((status & 0x40) >> 6) == 1;
         this.fullActive  = ((status & 0x80) >> 7) == 1;
         // Decode differently according to different version value
-        if (protocolVersion == 1) {
+        if (builder.protocolVersion == 1) {
             this.globalPhase = Generation.GLOBAL.version1_phase(status);
             this.oldPhase = Phase.IDLE;
             this.youngPhase = Phase.IDLE;
@@ -127,7 +143,98 @@ class Snapshot implements Timed {
             this.oldPhase = Generation.OLD.phase(status);
             this.youngPhase = Generation.YOUNG.phase(status);
         }
-        this.stateCounter();
+    }
+
+    /**
+     * Collects what goes into a snapshot. Only the time, region size,
+     * protocol version, regions and status are needed; the rest defaults to
+     * no pause histogram, no auxiliary counters, not the start of a session,
+     * consistent regions that all changed, and unknown rates.
+     */
+    static final class Builder {
+        private final long time;
+        private final long regionSize;
+        private final long protocolVersion;
+        private final long[] regions;
+        private final int status;
+        private Histogram histogram;
+        private boolean sessionStart;
+        private AuxiliaryCounters auxiliaryCounters = AuxiliaryCounters.NONE;
+        private long[] auxiliaryValues = new long[0];
+        private boolean consistent = true;
+        private RegionChanges changes;
+        private HeapRates rates = HeapRates.NONE;
+
+        /**
+         * @param regions the region words as published by the JVM, which the
+         *                snapshot keeps, and nobody may change afterwards
+         */
+        Builder(long time, long regionSize, long protocolVersion, long[] regions, int status) {
+            this.time = time;
+            this.regionSize = regionSize;
+            this.protocolVersion = protocolVersion;
+            this.regions = regions;
+            this.status = status;
+        }
+
+        Builder(long time, long regionSize, long protocolVersion, List<RegionStat> stats, int status) {
+            this(time, regionSize, protocolVersion, words(stats), status);
+        }
+
+        Builder histogram(Histogram histogram) {
+            this.histogram = histogram;
+            return this;
+        }
+
+        /**
+         * @param sessionStart true for the first snapshot taken from a target
+         *                     after (re)connecting to it
+         */
+        Builder sessionStart(boolean sessionStart) {
+            this.sessionStart = sessionStart;
+            return this;
+        }
+
+        /**
+         * @param auxiliaryValues the values of the given counters at the time
+         *                        of the snapshot, one per counter
+         */
+        Builder auxiliary(AuxiliaryCounters auxiliaryCounters, long[] auxiliaryValues) {
+            this.auxiliaryCounters = auxiliaryCounters;
+            this.auxiliaryValues = auxiliaryValues;
+            return this;
+        }
+
+        /**
+         * @param consistent false if the regions may have been read while
+         *                   the JVM was rewriting them
+         */
+        Builder consistent(boolean consistent) {
+            this.consistent = consistent;
+            return this;
+        }
+
+        /**
+         * @param changes how the regions differ from those of the snapshot
+         *                before, see {@link RegionChanges#between}
+         */
+        Builder changes(RegionChanges changes) {
+            this.changes = changes;
+            return this;
+        }
+
+        /**
+         * @param rates the heap rates as of this snapshot, see
+         *              {@link HeapRates#next}
+         */
+        Builder rates(HeapRates rates) {
+            this.rates = rates;
+            return this;
+        }
+
+        Snapshot build() {
+            return new Snapshot(this);
+        }
     }
 
     Phase phase() {
@@ -168,8 +275,73 @@ class Snapshot implements Timed {
         return fullActive;
     }
 
+    boolean isSessionStart() {
+        return sessionStart;
+    }
+
+    /**
+     * Whether the regions were read in one piece, rather than on a best
+     * effort basis.
+     */
+    boolean isConsistent() {
+        return consistent;
+    }
+
+    AuxiliaryCounters auxiliaryCounters() {
+        return auxiliaryCounters;
+    }
+
+    long auxiliaryValue(int column) {
+        return auxiliaryValues[column];
+    }
+
+    private static long[] words(List<RegionStat> stats) {
+        long[] words = new long[stats.size()];
+        for (int i = 0; i < words.length; i++) {
+            words[i] = stats.get(i).data();
+        }
+        return words;
+    }
+
+    /**
+     * Decodes one region. To go over many of them, pass a view to
+     * {@link #get(int, RegionStat)} instead, or decode {@link #region(int)}
+     * with the static accessors of {@link RegionStat}.
+     */
     RegionStat get(int i) {
-        return stats.get(i);
+        return new RegionStat(regions[i]);
+    }
+
+    /**
+     * Points the given view at one region and returns it.
+     */
+    RegionStat get(int i, RegionStat view) {
+        return view.at(regions[i]);
+    }
+
+    /**
+     * The regions that changed since the snapshot before, and how.
+     */
+    RegionChanges changes() {
+        return changes;
+    }
+
+    HeapRates rates() {
+        return rates;
+    }
+
+    /**
+     * Puts the words of all regions in the given buffer.
+     */
+    void putRegions(LongBuffer buffer) {
+        buffer.put(regions);
+    }
+
+    /**
+     * The word the JVM published for one region.
+     */
+    long region(int i) {
+        return regions[i];
     }
 
     @Override
@@ -185,7 +357,7 @@ class Snapshot implements Timed {
         Snapshot snapshot = (Snapshot) o;
 
         if (time != snapshot.time) return false;
-        if (!stats.equals(snapshot.stats)) return false;
+        if (!Arrays.equals(regions, snapshot.regions)) return false;
         return youngPhase == snapshot.youngPhase
             && globalPhase == snapshot.globalPhase
             && oldPhase == snapshot.oldPhase;
@@ -194,212 +366,77 @@ class Snapshot implements Timed {
     @Override
     public int hashCode() {
         int result = (int) (time ^ (time >>> 32));
-        result = 31 * result + stats.hashCode();
+        result = 31 * result + Arrays.hashCode(regions);
         result = 31 * result + youngPhase.hashCode();
         result = 31 * result + oldPhase.hashCode();
         result = 31 * result + globalPhase.hashCode();
         return result;
     }
 
+    /**
+     * The status word this snapshot was made from, in the layout of the
+     * current protocol version.
+     */
+    int status() {
+        // The phases are declared in the order of their codes.
+        int status = globalPhase.ordinal() << Generation.GLOBAL.shift
+                | oldPhase.ordinal() << Generation.OLD.shift
+                | youngPhase.ordinal() << Generation.YOUNG.shift;
+        return status | (degenActive ? 0x40 : 0) | (fullActive ? 0x80 : 0);
+    }
+
+    long regionSize() {
+        return regionSize;
+    }
+
     int regionCount() {
-        return stats.size();
+        return regions.length;
     }
 
     long total() {
         return regionSize * regionCount();
     }
 
+    /**
+     * How much of the heap is used, as in the summary, but summed straight
+     * from the region words when the summary has not been taken, rather
+     * than taking and keeping it.
+     */
     long used() {
-        long used = 0L;
-        for (RegionStat rs : stats) {
-            used += regionSize * rs.used();
+        SnapshotSummary summary = this.summary;
+        if (summary != null) {
+            return summary.used();
         }
-        return used;
-    }
-
-    long generationStat(RegionAffiliation affiliation, Function<RegionStat, Float> stat) {
-        long used = 0L;
-        for (RegionStat rs : stats) {
-            if (rs.affiliation() == affiliation) {
-                used += regionSize * stat.apply(rs);
-            }
+        long percent = 0;
+        for (long region : regions) {
+            percent += (region >>> RegionStat.USED_SHIFT) & RegionStat.PERCENT_MASK;
         }
-        return used;
-    }
-
-    long collectionSet() {
-        long used = 0L;
-        for (RegionStat rs : stats) {
-            if (rs.state() == RegionState.CSET || rs.state() == RegionState.PINNED_CSET) {
-                used += regionSize * rs.live();
-            }
+        return regionSize * percent / 100;
+    }
+
+    /**
+     * The totals over all regions, taken on first use and kept.
+     */
+    SnapshotSummary summary() {
+        SnapshotSummary summary = this.summary;
+        if (summary == null) {
+            // Any thread that races here computes the same summary.
+            summary = new SnapshotSummary(regionSize, regions);
+            this.summary = summary;
         }
-        return used;
+        return summary;
     }
 
-    long live() {
-        long live = 0L;
-        for (RegionStat rs : stats) {
-            live += regionSize * rs.live();
-        }
-        return live;
+    /**
+     * Roughly how many bytes the snapshot keeps alive, with its regions
+     * and changes, and its summary once taken. The pause histogram and
+     * counter names are shared with other snapshots, and not counted.
+     */
+    long footprint() {
+        return SNAPSHOT_BYTES + 16 + 8L * regions.length + 16 + 8L * auxiliaryValues.length + changes.footprint();
     }
 
-    double percentageOfOldRegionsInCollectionSet() {
-        long totalInCset = 0, oldInCset = 0;
-        for (RegionStat rs : stats) {
-            if (rs.state() == RegionState.CSET || rs.state() == RegionState.PINNED_CSET) {
-                if (rs.affiliation() == RegionAffiliation.OLD) {
-                    ++oldInCset;
-                }
-                ++totalInCset;
-            }
-        }
-        return totalInCset == 0 ? 0 : ((double) (oldInCset)) / totalInCset;
-    }
-
-    private void stateCounter() {
-        emptyUncommittedCount = 0;
-        emptyCommittedCount = 0;
-        trashCount = 0;
-        tlabCount = 0;
-        gclabCount = 0;
-        plabCount = 0;
-        sharedCount = 0;
-        humongousCount = 0;
-        pinnedHumongousCount = 0;
-        cSetCount = 0;
-        pinnedCount = 0;
-        pinnedCSetCount = 0;
-        age0Count = 0;
-        age3Count = 0;
-        age6Count = 0;
-        age9Count = 0;
-        age12Count = 0;
-        age15Count = 0;
-        for (RegionStat rs : stats) {
-            switch (rs.state()) {
-                case EMPTY_UNCOMMITTED:
-                    emptyUncommittedCount++;
-                    break;
-                case EMPTY_COMMITTED:
-                    emptyCommittedCount++;
-                    break;
-                case TRASH:
-                    trashCount++;
-                    break;
-                case REGULAR:
-                    if (rs.affiliation() == RegionAffiliation.YOUNG) {
-                        if (rs.maxAllocsYoung() == rs.tlabAllocs()) {
-                            tlabCount++;
-                        }
-                        if ((rs.maxAllocsYoung() == rs.gclabAllocs()) && (rs.maxAllocsYoung() > rs.tlabAllocs())) {
-                            gclabCount++;
-                        }
-                        if (((rs.maxAllocsYoung() == rs.sharedAllocs()) && (rs.maxAllocsYoung() > rs.tlabAllocs()) && (rs.maxAllocsYoung() > rs.gclabAllocs()))) {
-                            sharedCount++;
-                        }
-                    }
-                    if (rs.affiliation() == RegionAffiliation.OLD) {
-                        if (rs.maxAllocsOld() == rs.plabAllocs()) {
-                            plabCount++;
-                        }
-                        if ((rs.maxAllocsOld() == rs.sharedAllocs()) && (rs.maxAllocsOld() > rs.plabAllocs())) {
-                            sharedCount++;
-                        }
-                    }
-                    break;
-                case HUMONGOUS:
-                    humongousCount++;
-                    break;
-                case PINNED_HUMONGOUS:
-                    pinnedHumongousCount++;
-                    break;
-                case CSET:
-                    cSetCount++;
-                    break;
-                case PINNED:
-                    pinnedCount++;
-                    break;
-                case PINNED_CSET:
-                    pinnedCSetCount++;
-                    break;
-            }
-            if (rs.age() >= 0 && rs.age() < 3) {
-                age0Count++;
-            }
-            if (rs.age() >= 3  && rs.age() < 6) {
-                age3Count++;
-            }
-            if (rs.age() >= 6  && rs.age() < 9) {
-                age6Count++;
-            }
-            if (rs.age() >= 9  && rs.age() < 12) {
-                age9Count++;
-            }
-            if (rs.age() >= 12  && rs.age() < 15) {
-                age12Count++;
-            }
-            if (rs.age() >= 15) {
-                age15Count++;
-            }
-        }
-    }
-    int getEmptyUncommittedCount() {
-        return emptyUncommittedCount;
-    }
-    int getEmptyCommittedCount() {
-        return emptyCommittedCount;
-    }
-    int getTrashCount() {
-        return trashCount;
-    }
-    int getTlabCount() {
-        return tlabCount;
-    }
-    int getGclabCount() {
-        return gclabCount;
-    }
-    int getPlabCount() {
-        return plabCount;
-    }
-    int getSharedCount() {
-        return sharedCount;
-    }
-    int getHumongousCount() {
-        return humongousCount;
-    }
-    int getPinnedHumongousCount() {
-        return pinnedHumongousCount;
-    }
-    int getCSetCount() {
-        return cSetCount;
-    }
-    int getPinnedCount() {
-        return pinnedCount;
-    }
-    int getPinnedCSetCount() {
-        return pinnedCSetCount;
-    }
-    int getAge0Count() {
-        return age0Count;
-    }
-    int getAge3Count() {
-        return age3Count;
-    }
-    int getAge6Count() {
-        return age6Count;
-    }
-    int getAge9Count() {
-        return age9Count;
-    }
-    int getAge12Count() {
-        return age12Count;
-    }
-    int getAge15Count() {
-        return age15Count;
-    }
     int statsSize() {
-        return stats.size();
+        return regions.length;
     }
 }
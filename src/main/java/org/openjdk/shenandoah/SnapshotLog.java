@@ -0,0 +1,169 @@
+/*
+ * Copyright (c) 2023, Amazon.com, Inc. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Oracle designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package org.openjdk.shenandoah;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * An event log of snapshots that also splits them into GC cycles as they
+ * are added, so that the cursor can step a cycle, or a degenerated or full
+ * cycle, at a time. It keeps as many snapshots as its retention policy
+ * allows, by their age and by their estimated footprint, evicting the
+ * oldest as new ones come in.
+ */
+class SnapshotLog extends EventLog<Snapshot> {
+    private final CycleIndex cycles = new CycleIndex();
+    private final RetentionPolicy retention;
+    private SnapshotSpill spill;
+    private long bytes;
+
+    SnapshotLog(RetentionPolicy retention) {
+        super(TimeUnit.MILLISECONDS, retention.initialSize(), true);
+        this.retention = retention;
+        SpillBudget budget = retention.spillBudget();
+        if (budget != null) {
+            try {
+                spill = budget.open();
+                spillTo(spill);
+            } catch (IOException e) {
+                System.out.println("Cannot keep history on disk, only in memory: " + e);
+            }
+        }
+    }
+
+    @Override
+    void added(long sequence, Snapshot snapshot) {
+        bytes += snapshot.footprint();
+        while (retention.isExceeded(inMemory(), bytes, snapshot.time() - oldestInMemory().time())) {
+            bytes -= evictOldest().footprint();
+        }
+        cycles.add(sequence, snapshot);
+        cycles.trim(firstSequence());
+    }
+
+    @Override
+    void loaded(List<Snapshot> snapshots) {
+        synchronized (this) {
+            bytes = 0;
+            cycles.clear();
+            for (int i = 0; i < snapshots.size(); i++) {
+                bytes += snapshots.get(i).footprint();
+                cycles.add(i, snapshots.get(i));
+            }
+        }
+    }
+
+    /**
+     * Roughly how many bytes the snapshots held take up.
+     */
+    synchronized long bytes() {
+        return bytes;
+    }
+
+    /**
+     * Roughly how many bytes of disk the snapshots spilled take up.
+     */
+    synchronized long diskBytes() {
+        return spill == null ? 0 : spill.bytes();
+    }
+
+    /**
+     * Deletes the snapshots spilled, once the log is no longer used.
+     */
+    synchronized void close() {
+        if (spill != null) {
+            spill.close();
+            spill = null;
+            spillTo(null);
+        }
+    }
+
+    /**
+     * The time between the oldest and the newest snapshot held, in
+     * milliseconds.
+     */
+    synchronized long span() {
+        return size() == 0 ? 0 : last().time() - first().time();
+    }
+
+    RetentionPolicy retention() {
+        return retention;
+    }
+
+    /**
+     * Moves the cursor to the first snapshot of the next, or previous,
+     * cycle, or degenerated or full cycle if anomaly is set. Returns false,
+     * leaving the cursor where it is, if there is no such cycle.
+     */
+    synchronized boolean stepToCycle(boolean forward, boolean anomaly) {
+        long sequence = currentSequence();
+        if (sequence < 0) {
+            return false;
+        }
+        if (!forward) {
+            // Going back from within a cycle goes to its start first.
+            int at = cycles.at(sequence);
+            if (at >= 0 && (!anomaly || cycles.cycle(at).type().isAnomaly())
+                    && startOf(at) < sequence) {
+                stepToSequence(startOf(at));
+                return true;
+            }
+        }
+        int cycle = forward ? cycles.next(sequence, anomaly) : cycles.previous(sequence, anomaly);
+        if (cycle < 0 || startOf(cycle) == sequence) {
+            return false;
+        }
+        stepToSequence(startOf(cycle));
+        return true;
+    }
+
+    // Where a cycle starts, as far as the log still holds it.
+    private long startOf(int cycle) {
+        return Math.max(cycles.cycle(cycle).start(), firstSequence());
+    }
+
+    /**
+     * The cycle the current snapshot is part of, or null if the collector
+     * was idle then.
+     */
+    synchronized CycleIndex.Cycle currentCycle() {
+        int cycle = cycles.at(currentSequence());
+        return cycle < 0 ? null : cycles.cycle(cycle, this::usedAt);
+    }
+
+    private long usedAt(long sequence) {
+        Snapshot snapshot = atSequence(sequence);
+        return snapshot == null ? 0 : snapshot.used();
+    }
+
+    /**
+     * The number of cycles indexed.
+     */
+    synchronized int cycleCount() {
+        return cycles.size();
+    }
+}
@@ -0,0 +1,544 @@
+/*
+ * Copyright (c) 2023, Amazon.com, Inc. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Oracle designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package org.openjdk.shenandoah;
+
+import org.HdrHistogram.Histogram;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.AbstractList;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.ConcurrentModificationException;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.RandomAccess;
+import java.util.zip.DataFormatException;
+
+/**
+ * Keeps the snapshots evicted from a live event log in segment files, so
+ * that history older than what fits in memory can still be gone back to.
+ * The segments make up a ring within the spill's share of the disk: they
+ * are filled one after the other, and once the share is taken, the oldest
+ * is overwritten in place. No file grows past its capacity, so the spill
+ * stays within its share by construction. When the share shrinks, because
+ * more targets are watched, the oldest segments are deleted instead, as
+ * the next one is started.
+ * <p>
+ * Each snapshot is kept as a record of its time, status, region words,
+ * counter values and rates. A pause histogram is written once for all the
+ * snapshots of a segment that share it. The changes of a snapshot read back
+ * are not kept, so it reads as if all its regions had changed. Records are
+ * written and read with positional reads and writes, so nothing keeps a
+ * file, or its disk, once it is deleted.
+ * <p>
+ * Only changed while holding the lock of its event log. Views, see
+ * {@link #view()}, can be read from any thread, until the segments they
+ * read from are overwritten or deleted.
+ */
+final class SnapshotSpill implements EventLog.Spill<Snapshot> {
+    static final long DEFAULT_SEGMENT_BYTES = 64L * 1024 * 1024;
+    // Enough decoded snapshots to paint a screen of history from, for most heaps.
+    private static final long DECODED_BYTES = 32L * 1024 * 1024;
+
+    // Time, region size, rates time, three rates, status, region and counter counts, histogram, flags.
+    private static final int HEADER_BYTES = 8 + 8 + 8 + 3 * 8 + 4 + 4 + 4 + 4 + 4;
+    private static final int NO_HISTOGRAM = -1;
+    // The status is kept in the layout of this version, see Snapshot#status.
+    private static final long PROTOCOL_VERSION = 2;
+    private static final int SESSION_START = 1;
+    private static final int CONSISTENT = 2;
+    private static final int RATES_KNOWN = 4;
+
+    private final Path directory;
+    private final SpillBudget budget;
+    private final long segmentBytes;
+    private final ArrayDeque<Segment> segments = new ArrayDeque<>();
+    private final DecodedSnapshots decoded = new DecodedSnapshots();
+    private int size;
+    private long bytes;
+    private int nextSegment;
+    // Numbers each filling of a segment, so that views can tell it was overwritten.
+    private long nextGeneration;
+    private ByteBuffer record = ByteBuffer.allocate(0);
+
+    /**
+     * @param directory    where to create the segment files, which must be
+     *                     used by nothing else
+     * @param budget       the disk this spill shares with others
+     * @param segmentBytes how large to make each segment, at most
+     */
+    SnapshotSpill(Path directory, SpillBudget budget, long segmentBytes) throws IOException {
+        this.directory = Files.createDirectories(directory);
+        this.directory.toFile().deleteOnExit();
+        this.budget = budget;
+        this.segmentBytes = segmentBytes;
+        budget.opened();
+    }
+
+    @Override
+    public int add(Snapshot snapshot) {
+        int dropped = 0;
+        long share = budget.share();
+        while (bytes > share && segments.size() > 1) {
+            // The share shrank, as more targets are watched.
+            Segment oldest = segments.removeFirst();
+            dropped += oldest.count;
+            size -= oldest.count;
+            bytes -= oldest.capacity;
+            oldest.delete();
+        }
+
+        Segment segment = segments.peekLast();
+        if (segment == null || !segment.fits(snapshot)) {
+            long needed = HEADER_BYTES + 8L * (snapshot.regionCount() + snapshot.auxiliaryCounters().size()) + histogramBytes(snapshot);
+            // Several segments to a share, so that little is dropped at a time.
+            long capacity = Math.max(Math.min(segmentBytes, share / 4), needed);
+            if (capacity > Integer.MAX_VALUE) {
+                throw new IllegalArgumentException("Snapshot too large to spill: " + needed + " bytes");
+            }
+
+            // Make room for the next segment, keeping the file of the first
+            // one dropped to overwrite if it is of the right size.
+            Segment reused = null;
+            while (!segments.isEmpty() && bytes + capacity > share) {
+                Segment oldest = segments.removeFirst();
+                dropped += oldest.count;
+                size -= oldest.count;
+                bytes -= oldest.capacity;
+                if (reused == null && oldest.capacity == capacity) {
+                    reused = oldest;
+                } else {
+                    oldest.delete();
+                }
+            }
+            segment = reused != null ? reused : createSegment((int) capacity);
+            segment.fill(nextGeneration++, snapshot.auxiliaryCounters());
+            segments.addLast(segment);
+            bytes += capacity;
+        }
+        segment.append(snapshot, recordBuffer(snapshot));
+        size++;
+        return dropped;
+    }
+
+    private Segment createSegment(int capacity) {
+        try {
+            return new Segment(directory.resolve(String.format("segment-%06d.snapshots", nextSegment++)), capacity);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    // A buffer to lay out the record of the snapshot in, kept for the next.
+    private ByteBuffer recordBuffer(Snapshot snapshot) {
+        int needed = HEADER_BYTES + 8 * (snapshot.regionCount() + snapshot.auxiliaryCounters().size()) + histogramBytes(snapshot);
+        if (record.capacity() < needed) {
+            record = ByteBuffer.allocate(needed).order(ByteOrder.nativeOrder());
+        }
+        return record.clear();
+    }
+
+    private static int histogramBytes(Snapshot snapshot) {
+        Histogram histogram = snapshot.getSafepointTime();
+        // The compressed histogram can come out a little larger than the raw one.
+        return histogram == null ? 0 : 4 + histogram.getNeededByteBufferCapacity() + 64;
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    /**
+     * How much disk the segments may take up, in bytes, which is what they
+     * hold once they are full.
+     */
+    long bytes() {
+        return bytes;
+    }
+
+    @Override
+    public Snapshot get(int index) {
+        for (Segment segment : segments) {
+            if (index < segment.count) {
+                return decoded.read(segment, segment.generation, segment.offsets[index]);
+            }
+            index -= segment.count;
+        }
+        throw new IndexOutOfBoundsException(index);
+    }
+
+    @Override
+    public long time(int index) {
+        for (Segment segment : segments) {
+            if (index < segment.count) {
+                return segment.times[index];
+            }
+            index -= segment.count;
+        }
+        throw new IndexOutOfBoundsException(index);
+    }
+
+    @Override
+    public List<Snapshot> view() {
+        return new View(segments.toArray(new Segment[0]), size, decoded);
+    }
+
+    /**
+     * Deletes the segments, and gives up this spill's share of the disk.
+     */
+    void close() {
+        clear();
+        budget.closed();
+    }
+
+    @Override
+    public void clear() {
+        for (Segment segment : segments) {
+            segment.delete();
+        }
+        segments.clear();
+        decoded.clear();
+        size = 0;
+        bytes = 0;
+    }
+
+    /**
+     * The snapshots spilled at the time it was taken. The generations,
+     * offsets and counts of the segments are taken with the lock of the
+     * event log held, which publishes them to any thread the view is handed
+     * to. Reading a snapshot from a segment that was overwritten or deleted
+     * since throws {@link ConcurrentModificationException}, unless it is
+     * still decoded.
+     */
+    private static final class View extends AbstractList<Snapshot> implements RandomAccess {
+        private final Segment[] segments;
+        private final long[] generations;
+        private final int[][] offsets;
+        private final int[] counts;
+        private final int size;
+        private final DecodedSnapshots decoded;
+
+        View(Segment[] segments, int size, DecodedSnapshots decoded) {
+            this.segments = segments;
+            this.size = size;
+            this.decoded = decoded;
+            this.generations = new long[segments.length];
+            this.offsets = new int[segments.length][];
+            this.counts = new int[segments.length];
+            for (int i = 0; i < segments.length; i++) {
+                generations[i] = segments[i].generation;
+                offsets[i] = segments[i].offsets;
+                counts[i] = segments[i].count;
+            }
+        }
+
+        @Override
+        public Snapshot get(int index) {
+            if (index < 0 || index >= size) {
+                throw new IndexOutOfBoundsException(index);
+            }
+            int i = 0;
+            while (index >= counts[i]) {
+                index -= counts[i++];
+            }
+            return decoded.read(segments[i], generations[i], offsets[i][index]);
+        }
+
+        @Override
+        public int size() {
+            return size;
+        }
+    }
+
+    /**
+     * One file, of a fixed capacity, with the snapshots appended to it one
+     * after the other. Only the offsets and times of the records are kept
+     * in memory. Each time the segment is filled anew its generation
+     * changes, before anything is written, and reads check it afterwards,
+     * so that a read that overlaps overwriting the record fails rather than
+     * decode a mix of two.
+     */
+    private static final class Segment {
+        private static final long DELETED = -1;
+
+        private final Path path;
+        private final FileChannel channel;
+        private final int capacity;
+        private volatile long generation = DELETED;
+        private AuxiliaryCounters counters;
+        private int[] offsets;
+        private long[] times;
+        private int count;
+        private int position;
+
+        // The histogram last written, and where.
+        private Histogram lastHistogram;
+        private int lastHistogramOffset;
+
+        // The histogram last read, so that snapshots sharing it still do.
+        private volatile DecodedHistogram decoded;
+
+        Segment(Path path, int capacity) throws IOException {
+            this.path = path;
+            this.capacity = capacity;
+            this.channel = FileChannel.open(path, StandardOpenOption.CREATE_NEW,
+                    StandardOpenOption.READ, StandardOpenOption.WRITE);
+            path.toFile().deleteOnExit();
+        }
+
+        /**
+         * Starts filling the segment from the beginning, for snapshots with
+         * the given counters.
+         */
+        void fill(long generation, AuxiliaryCounters counters) {
+            this.generation = generation;
+            this.counters = counters;
+            // Views keep the arrays they were taken with.
+            offsets = new int[256];
+            times = new long[256];
+            count = 0;
+            position = 0;
+            lastHistogram = null;
+            lastHistogramOffset = NO_HISTOGRAM;
+        }
+
+        boolean fits(Snapshot snapshot) {
+            long needed = HEADER_BYTES + 8L * (snapshot.regionCount() + snapshot.auxiliaryCounters().size());
+            if (snapshot.getSafepointTime() != lastHistogram) {
+                needed += histogramBytes(snapshot);
+            }
+            return snapshot.auxiliaryCounters() == counters && position + needed <= capacity;
+        }
+
+        void append(Snapshot snapshot, ByteBuffer record) {
+            int start = position;
+            Histogram histogram = snapshot.getSafepointTime();
+            if (histogram != lastHistogram) {
+                lastHistogram = histogram;
+                lastHistogramOffset = histogram == null ? NO_HISTOGRAM : position;
+                if (histogram != null) {
+                    int length = histogram.encodeIntoCompressedByteBuffer(record.duplicate().position(4));
+                    record.putInt(0, length);
+                    position += 4 + length;
+                }
+            }
+
+            if (count == offsets.length) {
+                offsets = Arrays.copyOf(offsets, count * 2);
+                times = Arrays.copyOf(times, count * 2);
+            }
+            offsets[count] = position;
+            times[count] = snapshot.time();
+
+            HeapRates rates = snapshot.rates();
+            int flags = (snapshot.isSessionStart() ? SESSION_START : 0)
+                    | (snapshot.isConsistent() ? CONSISTENT : 0)
+                    | (rates.isKnown() ? RATES_KNOWN : 0);
+            int columns = counters.size();
+            int at = position - start;
+            record.putLong(at, snapshot.time());
+            record.putLong(at + 8, snapshot.regionSize());
+            record.putLong(at + 16, rates.time());
+            record.putDouble(at + 24, rates.allocation());
+            record.putDouble(at + 32, rates.promotion());
+            record.putDouble(at + 40, rates.reclamation());
+            record.putInt(at + 48, snapshot.status());
+            record.putInt(at + 52, snapshot.regionCount());
+            record.putInt(at + 56, columns);
+            record.putInt(at + 60, lastHistogramOffset);
+            record.putInt(at + 64, flags);
+            int data = at + HEADER_BYTES;
+            snapshot.putRegions(record.duplicate().order(ByteOrder.nativeOrder()).position(data).asLongBuffer());
+            data += 8 * snapshot.regionCount();
+            for (int column = 0; column < columns; column++) {
+                record.putLong(data + 8 * column, snapshot.auxiliaryValue(column));
+            }
+            int length = data + 8 * columns;
+
+            try {
+                writeFully(record.limit(length).position(0), start);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            position = start + length;
+            count++;
+        }
+
+        /**
+         * Reads the record at the given offset, as written in the given
+         * generation of the segment.
+         */
+        Snapshot read(long generation, int offset) {
+            try {
+                ByteBuffer header = readFully(offset, HEADER_BYTES);
+                checkGeneration(generation);
+                int regionCount = header.getInt(52);
+                int columns = header.getInt(56);
+                int flags = header.getInt(64);
+                ByteBuffer data = readFully(offset + HEADER_BYTES, 8 * (regionCount + columns));
+                Histogram histogram = histogram(generation, header.getInt(60));
+                checkGeneration(generation);
+
+                long[] regions = new long[regionCount];
+                data.asLongBuffer().get(regions);
+                long[] values = new long[columns];
+                for (int column = 0; column < columns; column++) {
+                    values[column] = data.getLong(8 * (regionCount + column));
+                }
+                HeapRates rates = HeapRates.restore(header.getLong(16), header.getDouble(24),
+                        header.getDouble(32), header.getDouble(40), (flags & RATES_KNOWN) != 0);
+                return new Snapshot.Builder(header.getLong(0), header.getLong(8), PROTOCOL_VERSION,
+                        regions, header.getInt(48))
+                        .histogram(histogram)
+                        .sessionStart((flags & SESSION_START) != 0)
+                        .auxiliary(counters(generation), values)
+                        .consistent((flags & CONSISTENT) != 0)
+                        .rates(rates)
+                        .build();
+            } catch (IOException e) {
+                checkGeneration(generation);
+                throw new UncheckedIOException(e);
+            }
+        }
+
+        // The counters are only replaced when the segment is filled anew.
+        private AuxiliaryCounters counters(long generation) {
+            AuxiliaryCounters counters = this.counters;
+            checkGeneration(generation);
+            return counters;
+        }
+
+        private Histogram histogram(long generation, int offset) throws IOException {
+            if (offset == NO_HISTOGRAM) {
+                return null;
+            }
+            DecodedHistogram decoded = this.decoded;
+            if (decoded == null || decoded.generation != generation || decoded.offset != offset) {
+                int length = readFully(offset, 4).getInt(0);
+                checkGeneration(generation);
+                // Encoded in the order of a fresh buffer, not the native one.
+                ByteBuffer compressed = readFully(offset + 4, length).order(ByteOrder.BIG_ENDIAN);
+                checkGeneration(generation);
+                try {
+                    decoded = new DecodedHistogram(generation, offset, Histogram.decodeFromCompressedByteBuffer(compressed, 0));
+                } catch (DataFormatException e) {
+                    throw new IllegalStateException("Corrupt pause histogram in " + path, e);
+                }
+                this.decoded = decoded;
+            }
+            return decoded.histogram;
+        }
+
+        private void checkGeneration(long generation) {
+            if (this.generation != generation) {
+                throw new ConcurrentModificationException("Spilled snapshots were overwritten in " + path);
+            }
+        }
+
+        private ByteBuffer readFully(long offset, int length) throws IOException {
+            ByteBuffer buffer = ByteBuffer.allocate(length).order(ByteOrder.nativeOrder());
+            while (buffer.hasRemaining()) {
+                if (channel.read(buffer, offset + buffer.position()) < 0) {
+                    throw new EOFException("Spilled snapshot cut short in " + path);
+                }
+            }
+            return buffer.flip();
+        }
+
+        private void writeFully(ByteBuffer buffer, long offset) throws IOException {
+            while (buffer.hasRemaining()) {
+                channel.write(buffer, offset + buffer.position());
+            }
+        }
+
+        /**
+         * Closes and deletes the file, so that it takes up no disk at all.
+         */
+        void delete() {
+            generation = DELETED;
+            try {
+                channel.close();
+                Files.deleteIfExists(path);
+            } catch (IOException e) {
+                // Left for deleteOnExit.
+                System.out.println("Cannot delete " + path + ": " + e);
+            }
+        }
+    }
+
+    /**
+     * The snapshots read last, kept so that painting the same history again
+     * does not decode it again, and so that reading a record twice gives
+     * the same snapshot. Shared by the spill and its views.
+     */
+    private static final class DecodedSnapshots {
+        private final LinkedHashMap<Long, Snapshot> snapshots = new LinkedHashMap<>(16, 0.75f, true);
+        private long bytes;
+
+        synchronized Snapshot read(Segment segment, long generation, int offset) {
+            // Generations are numbered across all segments of the spill.
+            Long record = generation << 32 | offset;
+            Snapshot snapshot = snapshots.get(record);
+            if (snapshot == null) {
+                snapshot = segment.read(generation, offset);
+                snapshots.put(record, snapshot);
+                bytes += snapshot.footprint();
+                Iterator<Snapshot> oldest = snapshots.values().iterator();
+                while (bytes > DECODED_BYTES && snapshots.size() > 1) {
+                    bytes -= oldest.next().footprint();
+                    oldest.remove();
+                }
+            }
+            return snapshot;
+        }
+
+        synchronized void clear() {
+            snapshots.clear();
+            bytes = 0;
+        }
+    }
+
+    private static final class DecodedHistogram {
+        final long generation;
+        final int offset;
+        final Histogram histogram;
+
+        DecodedHistogram(long generation, int offset, Histogram histogram) {
+            this.generation = generation;
+            this.offset = offset;
+            this.histogram = histogram;
+        }
+    }
+}
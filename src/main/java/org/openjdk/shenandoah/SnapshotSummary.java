@@ -0,0 +1,355 @@
+/*
+ * Copyright (c) 2023, Amazon.com, Inc. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Oracle designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package org.openjdk.shenandoah;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * The totals of one snapshot, for the panels to read. They are all taken
+ * in one pass over the regions, the first time any of them is needed, with
+ * the regions decoded by {@link RegionDecoder}.
+ * <p>
+ * Snapshots of at least -Dsummary.parallelThreshold regions are summarized
+ * in parts on the common fork-join pool. That is off by default, until
+ * {@code SnapshotSummaryBenchmark} has shown where it starts to pay off on
+ * machines with several cores. Levels are added up as whole percentages,
+ * so the parts add up to exactly what one pass would have.
+ */
+final class SnapshotSummary {
+    static final int PARALLEL_THRESHOLD = Integer.getInteger("summary.parallelThreshold", Integer.MAX_VALUE);
+
+    // Regions are decoded a chunk at a time, which keeps the columns small.
+    private static final int CHUNK = 1024;
+
+    // No part is split below this many regions, to keep the tasks worth forking.
+    private static final int SPLIT = 16 * CHUNK;
+
+    private final long used;
+    private final long live;
+    private final long collectionSet;
+    private final long[] usedByAffiliation;
+    private final long[] liveByAffiliation;
+    private final double oldInCollectionSet;
+
+    private final int emptyUncommittedCount;
+    private final int emptyCommittedCount;
+    private final int trashCount;
+    private final int tlabCount;
+    private final int gclabCount;
+    private final int plabCount;
+    private final int sharedCount;
+    private final int humongousCount;
+    private final int pinnedHumongousCount;
+    private final int cSetCount;
+    private final int pinnedCount;
+    private final int pinnedCSetCount;
+    private final int age0Count;
+    private final int age3Count;
+    private final int age6Count;
+    private final int age9Count;
+    private final int age12Count;
+    private final int age15Count;
+
+    SnapshotSummary(long regionSize, long[] regions) {
+        this(regionSize, regions, ForkJoinPool.commonPool(), PARALLEL_THRESHOLD);
+    }
+
+    /**
+     * @param pool              the pool to summarize parts of the regions on
+     * @param parallelThreshold the number of regions from which on they are
+     *                          summarized in parts, rather than in one pass
+     */
+    SnapshotSummary(long regionSize, long[] regions, ForkJoinPool pool, int parallelThreshold) {
+        Totals totals = regions.length >= parallelThreshold
+                ? pool.invoke(new Part(regions, 0, regions.length))
+                : new Totals().add(regions, 0, regions.length);
+
+        int[] states = new int[RegionState.values().length];
+        for (int ordinal = 0; ordinal < totals.states.length; ordinal++) {
+            if (totals.states[ordinal] != 0) {
+                states[RegionState.fromOrdinal(ordinal).ordinal()] += totals.states[ordinal];
+            }
+        }
+        long[] usedByAffiliation = new long[RegionAffiliation.values().length];
+        long[] liveByAffiliation = new long[RegionAffiliation.values().length];
+        long usedPercent = 0, livePercent = 0;
+        for (int ordinal = 0; ordinal < totals.used.length; ordinal++) {
+            if (totals.used[ordinal] != 0 || totals.live[ordinal] != 0) {
+                int affiliation = RegionAffiliation.fromOrdinal(ordinal).ordinal();
+                usedByAffiliation[affiliation] = bytes(regionSize, totals.used[ordinal]);
+                liveByAffiliation[affiliation] = bytes(regionSize, totals.live[ordinal]);
+                usedPercent += totals.used[ordinal];
+                livePercent += totals.live[ordinal];
+            }
+        }
+
+        this.used = bytes(regionSize, usedPercent);
+        this.live = bytes(regionSize, livePercent);
+        this.collectionSet = bytes(regionSize, totals.collectionSet);
+        this.usedByAffiliation = usedByAffiliation;
+        this.liveByAffiliation = liveByAffiliation;
+        this.oldInCollectionSet = totals.inCset == 0 ? 0 : ((double) (totals.oldInCset)) / totals.inCset;
+        this.emptyUncommittedCount = states[RegionState.EMPTY_UNCOMMITTED.ordinal()];
+        this.emptyCommittedCount = states[RegionState.EMPTY_COMMITTED.ordinal()];
+        this.trashCount = states[RegionState.TRASH.ordinal()];
+        this.tlabCount = totals.tlabCount;
+        this.gclabCount = totals.gclabCount;
+        this.plabCount = totals.plabCount;
+        this.sharedCount = totals.sharedCount;
+        this.humongousCount = states[RegionState.HUMONGOUS.ordinal()];
+        this.pinnedHumongousCount = states[RegionState.PINNED_HUMONGOUS.ordinal()];
+        this.cSetCount = states[RegionState.CSET.ordinal()];
+        this.pinnedCount = states[RegionState.PINNED.ordinal()];
+        this.pinnedCSetCount = states[RegionState.PINNED_CSET.ordinal()];
+        this.age0Count = totals.ages[0];
+        this.age3Count = totals.ages[1];
+        this.age6Count = totals.ages[2];
+        this.age9Count = totals.ages[3];
+        this.age12Count = totals.ages[4];
+        this.age15Count = totals.ages[5];
+    }
+
+    private static long bytes(long regionSize, long percent) {
+        return regionSize * percent / 100;
+    }
+
+    /**
+     * Sums over a range of regions, kept by the ordinals the JVM publishes,
+     * which are only mapped to states and affiliations once at the end.
+     */
+    private static final class Totals {
+        private static final int STATUS_ORDINALS = RegionStat.STATUS_MASK + 1;
+        private static final int AFFILIATION_ORDINALS = RegionStat.AFFILIATION_MASK + 1;
+        private static final int REGULAR = RegionState.REGULAR.publishedOrdinal();
+        private static final int CSET = RegionState.CSET.publishedOrdinal();
+        private static final int PINNED_CSET = RegionState.PINNED_CSET.publishedOrdinal();
+        private static final int YOUNG = RegionAffiliation.YOUNG.ordinal();
+        private static final int OLD = RegionAffiliation.OLD.ordinal();
+
+        final int[] states = new int[STATUS_ORDINALS];
+        final long[] used = new long[AFFILIATION_ORDINALS];
+        final long[] live = new long[AFFILIATION_ORDINALS];
+        final int[] ages = new int[6];
+        long collectionSet;
+        int inCset;
+        int oldInCset;
+        int tlabCount;
+        int gclabCount;
+        int plabCount;
+        int sharedCount;
+
+        Totals add(long[] regions, int from, int to) {
+            RegionColumns columns = new RegionColumns(Math.min(CHUNK, to - from));
+            for (int start = from; start < to; start += CHUNK) {
+                int count = Math.min(CHUNK, to - start);
+                RegionDecoder.INSTANCE.decode(regions, start, count, columns);
+                add(columns, count);
+            }
+            return this;
+        }
+
+        private void add(RegionColumns columns, int count) {
+            for (int r = 0; r < count; r++) {
+                int state = columns.state[r];
+                int affiliation = columns.affiliation[r];
+                int live = columns.live[r];
+
+                states[state]++;
+                used[affiliation] += columns.used[r];
+                this.live[affiliation] += live;
+
+                if (state == REGULAR) {
+                    int tlab = columns.tlab[r];
+                    int gclab = columns.gclab[r];
+                    int plab = columns.plab[r];
+                    int shared = columns.shared[r];
+                    if (affiliation == YOUNG) {
+                        int max = Math.max(tlab, Math.max(gclab, shared));
+                        if (max == tlab) {
+                            tlabCount++;
+                        }
+                        if (max == gclab && max > tlab) {
+                            gclabCount++;
+                        }
+                        if (max == shared && max > tlab && max > gclab) {
+                            sharedCount++;
+                        }
+                    }
+                    if (affiliation == OLD) {
+                        int max = Math.max(plab, shared);
+                        if (max == plab) {
+                            plabCount++;
+                        }
+                        if (max == shared && max > plab) {
+                            sharedCount++;
+                        }
+                    }
+                }
+
+                if (state == CSET || state == PINNED_CSET) {
+                    collectionSet += live;
+                    if (affiliation == OLD) {
+                        ++oldInCset;
+                    }
+                    ++inCset;
+                }
+
+                // Ages are buckets of three, up to 15 and over.
+                ages[Math.min(columns.age[r], 15) / 3]++;
+            }
+        }
+
+        Totals add(Totals other) {
+            for (int i = 0; i < states.length; i++) {
+                states[i] += other.states[i];
+            }
+            for (int i = 0; i < used.length; i++) {
+                used[i] += other.used[i];
+                live[i] += other.live[i];
+            }
+            for (int i = 0; i < ages.length; i++) {
+                ages[i] += other.ages[i];
+            }
+            collectionSet += other.collectionSet;
+            inCset += other.inCset;
+            oldInCset += other.oldInCset;
+            tlabCount += other.tlabCount;
+            gclabCount += other.gclabCount;
+            plabCount += other.plabCount;
+            sharedCount += other.sharedCount;
+            return this;
+        }
+    }
+
+    /**
+     * Halves its range of regions until the halves are small enough to sum
+     * in one pass.
+     */
+    private static final class Part extends RecursiveTask<Totals> {
+        private static final long serialVersionUID = 1L;
+
+        private final long[] regions;
+        private final int from;
+        private final int to;
+
+        Part(long[] regions, int from, int to) {
+            this.regions = regions;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected Totals compute() {
+            if (to - from <= SPLIT) {
+                return new Totals().add(regions, from, to);
+            }
+            int middle = (from + to) >>> 1;
+            Part left = new Part(regions, from, middle);
+            left.fork();
+            Totals right = new Part(regions, middle, to).compute();
+            return left.join().add(right);
+        }
+    }
+
+    long used() {
+        return used;
+    }
+
+    long live() {
+        return live;
+    }
+
+    long collectionSet() {
+        return collectionSet;
+    }
+
+    long used(RegionAffiliation affiliation) {
+        return usedByAffiliation[affiliation.ordinal()];
+    }
+
+    long live(RegionAffiliation affiliation) {
+        return liveByAffiliation[affiliation.ordinal()];
+    }
+
+    double percentageOfOldRegionsInCollectionSet() {
+        return oldInCollectionSet;
+    }
+
+    int getEmptyUncommittedCount() {
+        return emptyUncommittedCount;
+    }
+    int getEmptyCommittedCount() {
+        return emptyCommittedCount;
+    }
+    int getTrashCount() {
+        return trashCount;
+    }
+    int getTlabCount() {
+        return tlabCount;
+    }
+    int getGclabCount() {
+        return gclabCount;
+    }
+    int getPlabCount() {
+        return plabCount;
+    }
+    int getSharedCount() {
+        return sharedCount;
+    }
+    int getHumongousCount() {
+        return humongousCount;
+    }
+    int getPinnedHumongousCount() {
+        return pinnedHumongousCount;
+    }
+    int getCSetCount() {
+        return cSetCount;
+    }
+    int getPinnedCount() {
+        return pinnedCount;
+    }
+    int getPinnedCSetCount() {
+        return pinnedCSetCount;
+    }
+    int getAge0Count() {
+        return age0Count;
+    }
+    int getAge3Count() {
+        return age3Count;
+    }
+    int getAge6Count() {
+        return age6Count;
+    }
+    int getAge9Count() {
+        return age9Count;
+    }
+    int getAge12Count() {
+        return age12Count;
+    }
+    int getAge15Count() {
+        return age15Count;
+    }
+}
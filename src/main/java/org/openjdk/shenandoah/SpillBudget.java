@@ -0,0 +1,79 @@
+/*
+ * Copyright (c) 2023, Amazon.com, Inc. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Oracle designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package org.openjdk.shenandoah;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * The disk all event logs of one visualizer may spill snapshots to. Each
+ * open spill gets an equal share of it, which shrinks as more targets are
+ * watched; spills give up their oldest segments to stay within their share
+ * as they are added to.
+ */
+final class SpillBudget {
+    private final Path directory;
+    private final long maxBytes;
+    private int spills;
+
+    /**
+     * @param directory where to make a directory of segment files for
+     *                  each spill
+     * @param maxBytes  how much disk all spills may take up together
+     */
+    SpillBudget(Path directory, long maxBytes) {
+        this.directory = directory;
+        this.maxBytes = maxBytes;
+    }
+
+    /**
+     * Opens a spill with a directory of its own, which shares this budget
+     * until it is closed.
+     */
+    SnapshotSpill open() throws IOException {
+        Path own = Files.createTempDirectory(Files.createDirectories(directory), "history");
+        return new SnapshotSpill(own, this, SnapshotSpill.DEFAULT_SEGMENT_BYTES);
+    }
+
+    synchronized void opened() {
+        spills++;
+    }
+
+    synchronized void closed() {
+        spills--;
+    }
+
+    /**
+     * How much disk each open spill may take up.
+     */
+    synchronized long share() {
+        return maxBytes / Math.max(1, spills);
+    }
+
+    long maxBytes() {
+        return maxBytes;
+    }
+}
@@ -33,6 +33,7 @@ import static org.openjdk.shenandoah.LayoutConstants.LINE;
 
 class StatusPanel extends JPanel {
     static final int KILO = 1024;
+    private static final long RECENT_PAUSES_MS = 60_000;
     private final RenderRunner renderRunner;
 
     StatusPanel(RenderRunner renderRunner) {
@@ -61,12 +62,53 @@ class StatusPanel extends JPanel {
         g.drawString("Total: " + (snapshot.total() / KILO) + " MB", 0, ++line * LINE);
         g.drawString(usageStatusLine(snapshot), 0, ++line * LINE);
         g.drawString(liveStatusLine(snapshot), 0, ++line * LINE);
+        HeapRates rates = snapshot.rates();
+        if (rates.isKnown()) {
+            g.drawString(String.format("Rates (MB/s): alloc %.1f, promo %.1f, reclaim %.1f",
+                    rates.allocation() / KILO, rates.promotion() / KILO, rates.reclamation() / KILO), 0, ++line * LINE);
+        }
+        CycleIndex.Cycle cycle = renderRunner.currentCycle();
+        if (cycle != null) {
+            g.drawString(String.format("Cycle: %s, snapshots %d-%d, peak used %d MB",
+                    cycle.type(), cycle.start(), cycle.end(), cycle.peakUsed() / KILO), 0, ++line * LINE);
+        }
+        if (snapshot.changes().hasPrevious()) {
+            g.drawString(changesLine(snapshot.changes()), 0, ++line * LINE);
+        }
 
         Histogram histogram = snapshot.getSafepointTime();
         if (histogram != null) {
-            String pausesText = String.format("GC Pauses: P100=%d, P95=%d, P90=%d",
-                    histogram.getMaxValue(), histogram.getValueAtPercentile(95), histogram.getValueAtPercentile(90));
-            g.drawString(pausesText, 0, ++line * LINE);
+            g.drawString(pausesLine("GC Pauses", histogram), 0, ++line * LINE);
+            Histogram recent = renderRunner.recentPauses(RECENT_PAUSES_MS);
+            if (recent != null) {
+                g.drawString(pausesLine("Last " + RECENT_PAUSES_MS / 1000 + " s", recent), 0, ++line * LINE);
+            }
+        }
+
+        if (renderRunner.isLive()) {
+            String framesText = String.format("Samples: %d (unchanged %d), Frames: %d (dropped %d)",
+                    renderRunner.samplesTaken(), renderRunner.samplesUnchanged(),
+                    renderRunner.framesRendered(), renderRunner.framesDropped());
+            g.drawString(framesText, 0, ++line * LINE);
+            String intervalText = String.format("Sampling every %d ms%s",
+                    renderRunner.sampleInterval(), renderRunner.isAdaptiveSampling() ? " (adaptive)" : "");
+            g.drawString(intervalText, 0, ++line * LINE);
+            String readText = String.format("%s: %.2f ms (max %.2f ms)",
+                    renderRunner.isRemote() ? "Round trip" : "Read",
+                    renderRunner.sampleReadNanos() / 1e6, renderRunner.maxSampleReadNanos() / 1e6);
+            g.drawString(readText, 0, ++line * LINE);
+            String retriesText = String.format("Read retries: %d, best effort: %d%s",
+                    renderRunner.sampleReadRetries(), renderRunner.inconsistentReads(),
+                    snapshot.isConsistent() ? "" : " (this one)");
+            g.drawString(retriesText, 0, ++line * LINE);
+            String historyText = String.format("History: %d snapshots, %.1f MB, %d s (%s)",
+                    renderRunner.snapshotCount(), renderRunner.historyBytes() / (double) (KILO * KILO),
+                    renderRunner.historySpan() / 1000, renderRunner.retention());
+            g.drawString(historyText, 0, ++line * LINE);
+            long diskBytes = renderRunner.historyDiskBytes();
+            if (diskBytes > 0) {
+                g.drawString(String.format("History on disk: %.1f MB", diskBytes / (double) (KILO * KILO)), 0, ++line * LINE);
+            }
         }
 
         renderTimeLineLegendItem(g, Colors.OLD[1], ++line, "Old Marking (OM)");
@@ -82,6 +124,21 @@ class StatusPanel extends JPanel {
         renderTimeLineLegendItem(g, Colors.FULL, ++line, "Full");
     }
 
+    private static String pausesLine(String label, Histogram histogram) {
+        return String.format("%s: P100=%d, P95=%d, P90=%d (%d)", label,
+                histogram.getMaxValue(), histogram.getValueAtPercentile(95), histogram.getValueAtPercentile(90),
+                histogram.getTotalCount());
+    }
+
+    private static String changesLine(RegionChanges changes) {
+        return String.format("Changed: %d, to CSet: %d, to Trash: %d, freed: %d, promoted: %d",
+                changes.changedCount(),
+                changes.count(RegionState.REGULAR, RegionState.CSET),
+                changes.count(RegionState.CSET, RegionState.TRASH),
+                changes.count(RegionState.TRASH, RegionState.EMPTY_COMMITTED),
+                changes.count(RegionAffiliation.YOUNG, RegionAffiliation.OLD));
+    }
+
     private static String getStatus(Snapshot snapshot) {
         switch (snapshot.phase()) {
             case IDLE:
@@ -104,16 +161,18 @@ class StatusPanel extends JPanel {
     }
 
     protected String liveStatusLine(Snapshot snapshot) {
+        SnapshotSummary summary = snapshot.summary();
         return "Live (Green): MB: T:" +
-                snapshot.live() / KILO + " Y:" +
-                snapshot.generationStat(RegionAffiliation.YOUNG, RegionStat::live) / KILO + " O:" +
-                snapshot.generationStat(RegionAffiliation.OLD, RegionStat::live) / KILO;
+                summary.live() / KILO + " Y:" +
+                summary.live(RegionAffiliation.YOUNG) / KILO + " O:" +
+                summary.live(RegionAffiliation.OLD) / KILO;
     }
 
     protected String usageStatusLine(Snapshot snapshot) {
+        SnapshotSummary summary = snapshot.summary();
         return "Used (White): MB: T:" +
-                snapshot.used() / KILO + " Y:" +
-                snapshot.generationStat(RegionAffiliation.YOUNG, RegionStat::used) / KILO + " O:" +
-                snapshot.generationStat(RegionAffiliation.OLD, RegionStat::used) / KILO;
+                summary.used() / KILO + " Y:" +
+                summary.used(RegionAffiliation.YOUNG) / KILO + " O:" +
+                summary.used(RegionAffiliation.OLD) / KILO;
     }
 }
@@ -0,0 +1,216 @@
+/*
+ * Copyright (c) 2023, Amazon.com, Inc. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Oracle designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package org.openjdk.shenandoah;
+
+import sun.jvmstat.monitor.HostIdentifier;
+import sun.jvmstat.monitor.MonitorException;
+import sun.jvmstat.monitor.MonitoredHost;
+import sun.jvmstat.monitor.MonitoredVm;
+import sun.jvmstat.monitor.MonitoredVmUtil;
+import sun.jvmstat.monitor.VmIdentifier;
+
+import java.net.URISyntaxException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Samples every local JVM running with ShenandoahRegionSampling at once.
+ * All targets share a small pool of sampler threads. Each target schedules
+ * its own next sample when the current one completes, so a target is never
+ * sampled by two threads at once, and a slow target only holds on to the
+ * one thread it is sampled on. New JVMs are picked up on a discovery thread
+ * of their own. Given a host, the JVMs served by jstatd there are sampled
+ * instead of the local ones.
+ */
+class TargetMonitor {
+    private static final int MAX_SAMPLER_THREADS = 4;
+    private static final long MAX_BACKOFF_MS = 30_000;
+
+    private final SamplingPolicy samplingPolicy;
+    private final String host;
+    private final AuxiliaryCounters auxiliaryCounters;
+    private final int readRetries;
+    private final RetentionPolicy retention;
+    private final Map<Integer, LiveTarget> targets;
+    private final ScheduledExecutorService samplers;
+    private final ExecutorService discoverer;
+    private final VmDiscovery discovery;
+    private volatile boolean running;
+
+    TargetMonitor(SamplingPolicy samplingPolicy, String host, AuxiliaryCounters auxiliaryCounters, int readRetries,
+                  RetentionPolicy retention) {
+        this.samplingPolicy = samplingPolicy;
+        this.host = DataConnector.remoteHost(host);
+        this.auxiliaryCounters = auxiliaryCounters;
+        this.readRetries = readRetries;
+        this.retention = retention;
+        this.targets = new ConcurrentSkipListMap<>();
+        this.discovery = new VmDiscovery(this.host == null);
+        AtomicInteger threads = new AtomicInteger();
+        int poolSize = Math.min(Runtime.getRuntime().availableProcessors(), MAX_SAMPLER_THREADS);
+        this.samplers = Executors.newScheduledThreadPool(poolSize, r -> {
+            Thread t = new Thread(r);
+            t.setDaemon(true);
+            t.setName("Sampler-" + threads.incrementAndGet());
+            return t;
+        });
+        this.discoverer = Executors.newSingleThreadExecutor(r -> {
+            Thread t = new Thread(r);
+            t.setDaemon(true);
+            t.setName("Discovery");
+            return t;
+        });
+    }
+
+    synchronized void start() {
+        if (!running) {
+            running = true;
+            discoverer.execute(this::discover);
+        }
+    }
+
+    void shutdown() {
+        running = false;
+        discoverer.shutdownNow();
+        samplers.shutdownNow();
+        discovery.close();
+        targets.values().forEach(this::retire);
+    }
+
+    /**
+     * The targets currently being sampled, ordered by pid.
+     */
+    List<LiveTarget> targets() {
+        return new ArrayList<>(targets.values());
+    }
+
+    private void discover() {
+        long backoff = 250;
+        while (running) {
+            try {
+                MonitoredHost host = MonitoredHost.getMonitoredHost(new HostIdentifier(this.host));
+                Set<Integer> active = host.activeVms();
+                discovery.retainActive(active);
+                for (LiveTarget target : targets.values()) {
+                    if (!active.contains(target.pid())) {
+                        retire(target);
+                    }
+                }
+                for (Integer pid : active) {
+                    if (!targets.containsKey(pid) && discovery.shouldExamine(pid)) {
+                        examine(host, pid);
+                    }
+                }
+                backoff = 250;
+                discovery.awaitChange();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (Exception e) {
+                e.printStackTrace();
+                try {
+                    Thread.sleep(backoff);
+                    backoff = Math.min(MAX_BACKOFF_MS, backoff * 2);
+                } catch (InterruptedException ie) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+            }
+        }
+    }
+
+    private void examine(MonitoredHost host, int pid) throws URISyntaxException {
+        MonitoredVm vm = null;
+        try {
+            VmIdentifier id = new VmIdentifier(String.valueOf(pid));
+            vm = host.getMonitoredVm(this.host == null ? id : host.getHostIdentifier().resolve(id));
+            if (!MonitoredVmUtil.jvmArgs(vm).contains("ShenandoahRegionSampling")) {
+                vm.detach();
+                discovery.reject(pid);
+                return;
+            }
+
+            String mainClass = MonitoredVmUtil.mainClass(vm, false);
+            PerfCounters counters = DataProvider.openCounters(vm);
+            if (!(counters instanceof JvmstatCounters)) {
+                // Already detached, the counters are read directly.
+                vm = null;
+            }
+
+            LiveTarget target = new LiveTarget(pid, mainClass, vm, counters, auxiliaryCounters, readRetries, samplingPolicy.copy(),
+                    retention);
+            targets.put(pid, target);
+            System.out.println("Monitoring: " + target);
+            samplers.execute(() -> sample(target));
+        } catch (MonitorException | IllegalStateException e) {
+            // Most likely still starting up and yet to create its region counters.
+            if (vm != null) {
+                vm.detach();
+            }
+            discovery.retryLater(pid);
+        }
+    }
+
+    private void sample(LiveTarget target) {
+        if (!running || !target.isAlive()) {
+            return;
+        }
+
+        long start = System.nanoTime();
+        long interval;
+        try {
+            interval = TimeUnit.MILLISECONDS.toNanos(target.sample());
+        } catch (Exception e) {
+            e.printStackTrace();
+            retire(target);
+            return;
+        }
+
+        long delay = Math.max(0, interval - (System.nanoTime() - start));
+        if (!samplers.isShutdown()) {
+            samplers.schedule(() -> sample(target), delay, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    private void retire(LiveTarget target) {
+        if (!targets.remove(target.pid(), target)) {
+            return;
+        }
+        System.out.println("No longer monitoring: " + target);
+        target.exited();
+        discovery.forget(target.pid());
+        if (target.vm() != null) {
+            target.vm().detach();
+        }
+    }
+}
@@ -41,6 +41,10 @@ class ToolbarPanel extends JPanel
     private static final String FORWARD_1 = "Step forward 1";
     private static final String FORWARD_5 = "Step forward 5";
     private static final String END_SNAPSHOT = "End snapshot";
+    private static final String PREVIOUS_CYCLE = "Previous cycle";
+    private static final String NEXT_CYCLE = "Next cycle";
+    private static final String PREVIOUS_ANOMALY = "Previous degenerated or full cycle";
+    private static final String NEXT_ANOMALY = "Next degenerated or full cycle";
 
     private static final String REALTIME = "Realtime";
     private static final String CHOOSE_FILE = "choose file";
@@ -51,14 +55,17 @@ class ToolbarPanel extends JPanel
     private final RenderRunner renderRunner;
     private final JToolBar replayToolbar, statusToolbar, speedToolbar;
     private JButton backOneButton, backFiveButton, playPauseButton, forwardOneButton, forwardFiveButton, endSnapshotButton;
+    private JButton previousCycleButton, nextCycleButton, previousAnomalyButton, nextAnomalyButton;
     private final JButton realtimeModeButton;
     private JButton halfSpeedButton, doubleSpeedButton, resetSpeedMultiplierButton;
     private JSpinner speedSpinner;
     private JSpinner.NumberEditor speedEditor;
     private final JTextField fileNameField, lastActionField, modeField, timestampField;
     private final JSlider slider;
+    private HeapOverview heapOverview;
 
     boolean speedButtonPressed = false;
+    private boolean updatingSlider = false;
 
 
     ToolbarPanel(RenderRunner renderRunner, KeyAdapter keyShortcutAdapter) {
@@ -78,6 +85,11 @@ class ToolbarPanel extends JPanel
         historyButton.addActionListener(e -> history.setVisible(true));
         fileToolbar.add(historyButton);
 
+        var heapsButton = new JButton("Show Heaps");
+        heapsButton.addActionListener(e -> showHeaps());
+        heapsButton.setFocusable(false);
+        fileToolbar.add(heapsButton);
+
         realtimeModeButton = new JButton("Switch to Live");
         realtimeModeButton.setActionCommand(REALTIME);
         realtimeModeButton.addActionListener(this);
@@ -102,7 +114,7 @@ class ToolbarPanel extends JPanel
         slider.setFocusable(false);
         renderRunner.onRecordingLoaded(() -> {
             SwingUtilities.invokeLater(() -> {
-                slider.setMaximum(renderRunner.snapshotCount());
+                updateSlider();
             });
         });
 
@@ -139,8 +151,8 @@ class ToolbarPanel extends JPanel
         timestampToolBar.add(timestampLabel);
 
         timestampField = new JTextField();
-        timestampField.setEditable(false);
-        timestampField.setFocusable(false);
+        timestampField.setToolTipText("Enter a time in ms to go to the snapshot taken then");
+        timestampField.addActionListener(this::onTimestampEntered);
         timestampToolBar.add(timestampField);
 
         addPlaybackButtons();
@@ -219,7 +231,15 @@ class ToolbarPanel extends JPanel
         forwardOneButton.addActionListener(event -> renderRunner.stepBy(1));
         forwardFiveButton.addActionListener(event -> renderRunner.stepBy(5));
         endSnapshotButton.addActionListener(event -> renderRunner.stepToEnd());
-        slider.addChangeListener(changeEvent -> renderRunner.stepTo(slider.getValue()));
+        previousCycleButton.addActionListener(event -> renderRunner.stepToCycle(false, false));
+        nextCycleButton.addActionListener(event -> renderRunner.stepToCycle(true, false));
+        previousAnomalyButton.addActionListener(event -> renderRunner.stepToCycle(false, true));
+        nextAnomalyButton.addActionListener(event -> renderRunner.stepToCycle(true, true));
+        slider.addChangeListener(changeEvent -> {
+            if (!updatingSlider) {
+                renderRunner.seekTo(renderRunner.firstTime() + slider.getValue());
+            }
+        });
         speedSpinner.addChangeListener(this::onSpeedSpinnerChanged);
         halfSpeedButton.addActionListener(event -> {
             double speed = Math.max(0.1, renderRunner.getPlaybackSpeed() * 0.5);
@@ -232,6 +252,14 @@ class ToolbarPanel extends JPanel
         resetSpeedMultiplierButton.addActionListener(event -> changeSpeed(1.0));
     }
 
+    void showHeaps() {
+        if (heapOverview == null) {
+            heapOverview = new HeapOverview(renderRunner, renderRunner.monitorAll());
+            renderRunner.addPopup(heapOverview);
+        }
+        heapOverview.setVisible(true);
+    }
+
     private void changeSpeed(double speed) {
         speedButtonPressed = true;
         renderRunner.setPlaybackSpeed(speed);
@@ -262,6 +290,10 @@ class ToolbarPanel extends JPanel
         forwardOneButton.setEnabled(true);
         forwardFiveButton.setEnabled(true);
         endSnapshotButton.setEnabled(true);
+        previousCycleButton.setEnabled(true);
+        nextCycleButton.setEnabled(true);
+        previousAnomalyButton.setEnabled(true);
+        nextAnomalyButton.setEnabled(true);
         slider.setEnabled(true);
     }
 
@@ -273,6 +305,18 @@ class ToolbarPanel extends JPanel
     }
 
     private void addPlaybackButtons() {
+        this.previousAnomalyButton = new JButton("<< DG/F");
+        previousAnomalyButton.setActionCommand(PREVIOUS_ANOMALY);
+        previousAnomalyButton.addActionListener(this);
+        previousAnomalyButton.setFocusable(false);
+        replayToolbar.add(this.previousAnomalyButton);
+
+        this.previousCycleButton = new JButton("<< GC");
+        previousCycleButton.setActionCommand(PREVIOUS_CYCLE);
+        previousCycleButton.addActionListener(this);
+        previousCycleButton.setFocusable(false);
+        replayToolbar.add(this.previousCycleButton);
+
         this.backFiveButton = new JButton("-5");
         backFiveButton.setActionCommand(BACK_5);
         backFiveButton.addActionListener(this);
@@ -303,6 +347,18 @@ class ToolbarPanel extends JPanel
         forwardFiveButton.setFocusable(false);
         replayToolbar.add(this.forwardFiveButton);
 
+        this.nextCycleButton = new JButton("GC >>");
+        nextCycleButton.setActionCommand(NEXT_CYCLE);
+        nextCycleButton.addActionListener(this);
+        nextCycleButton.setFocusable(false);
+        replayToolbar.add(this.nextCycleButton);
+
+        this.nextAnomalyButton = new JButton("DG/F >>");
+        nextAnomalyButton.setActionCommand(NEXT_ANOMALY);
+        nextAnomalyButton.addActionListener(this);
+        nextAnomalyButton.setFocusable(false);
+        replayToolbar.add(this.nextAnomalyButton);
+
         this.endSnapshotButton = new JButton("End Snapshot");
         endSnapshotButton.setActionCommand(END_SNAPSHOT);
         endSnapshotButton.setFocusable(false);
@@ -404,6 +460,34 @@ class ToolbarPanel extends JPanel
         }
     }
 
+    private void onTimestampEntered(ActionEvent ae) {
+        String text = timestampField.getText().trim();
+        if (text.endsWith("ms")) {
+            text = text.substring(0, text.length() - 2).trim();
+        }
+        try {
+            long time = Long.parseLong(text);
+            renderRunner.seekTo(time);
+            setLastActionField("Went to " + time + " ms");
+        } catch (NumberFormatException e) {
+            setLastActionField("Timestamp must be a number of ms: " + text);
+        }
+        requestFocusInWindow();
+    }
+
+    // The slider goes by the time since the oldest snapshot held, in ms.
+    private void updateSlider() {
+        long first = renderRunner.firstTime();
+        updatingSlider = true;
+        slider.setMaximum(sliderValue(renderRunner.lastTime() - first));
+        slider.setValue(sliderValue(renderRunner.snapshot().time() - first));
+        updatingSlider = false;
+    }
+
+    private static int sliderValue(long millis) {
+        return (int) Math.max(0, Math.min(millis, Integer.MAX_VALUE));
+    }
+
     void setFileNameField(String s) {
         fileNameField.setText(s);
     }
@@ -425,8 +509,10 @@ class ToolbarPanel extends JPanel
 
     @Override
     public void paint(Graphics g) {
-        timestampField.setText(renderRunner.snapshot().time() + " ms");
-        slider.setValue(renderRunner.cursor());
+        if (!timestampField.isFocusOwner()) {
+            timestampField.setText(renderRunner.snapshot().time() + " ms");
+        }
+        updateSlider();
         realtimeModeButton.setEnabled(!renderRunner.isLive());
         modeField.setText(renderRunner.status());
         playPauseButton.setText(renderRunner.isPaused() ? "Play" : "Pause");
@@ -0,0 +1,87 @@
+/*
+ * Copyright (c) 2023, Amazon.com, Inc. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Oracle designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package org.openjdk.shenandoah;
+
+import jdk.incubator.vector.ByteVector;
+import jdk.incubator.vector.LongVector;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorShape;
+import jdk.incubator.vector.VectorSpecies;
+
+import static org.openjdk.shenandoah.RegionStat.*;
+
+/**
+ * Decodes a vector of words at a time, narrowing each field to a byte per
+ * lane. That takes at least 8 lanes of longs, so that the bytes fill the
+ * smallest vector there is.
+ */
+final class VectorRegionDecoder implements RegionDecoder {
+    private static final VectorSpecies<Long> LONGS = LongVector.SPECIES_PREFERRED;
+
+    // Must be a constant for the vector operations to be compiled as such.
+    private static final VectorSpecies<Byte> BYTES = LONGS.length() < 8 ? null
+            : VectorSpecies.of(byte.class, VectorShape.forBitSize(LONGS.length() * Byte.SIZE));
+
+    private static final LongVector PERCENT = LongVector.broadcast(LONGS, PERCENT_MASK);
+    private static final LongVector AGE = LongVector.broadcast(LONGS, AGE_MASK);
+    private static final LongVector AFFILIATION = LongVector.broadcast(LONGS, AFFILIATION_MASK);
+    private static final LongVector STATUS = LongVector.broadcast(LONGS, STATUS_MASK);
+
+    VectorRegionDecoder() {
+        if (BYTES == null) {
+            throw new UnsupportedOperationException("Only " + LONGS.length() + " long lanes");
+        }
+    }
+
+    @Override
+    public void decode(long[] words, int from, int count, RegionColumns columns) {
+        int row = 0;
+        for (int bound = LONGS.loopBound(count); row < bound; row += LONGS.length()) {
+            LongVector word = LongVector.fromArray(LONGS, words, from + row);
+            column(word, USED_SHIFT, PERCENT, columns.used, row);
+            column(word, LIVE_SHIFT, PERCENT, columns.live, row);
+            column(word, TLAB_SHIFT, PERCENT, columns.tlab, row);
+            column(word, GCLAB_SHIFT, PERCENT, columns.gclab, row);
+            column(word, SHARED_SHIFT, PERCENT, columns.shared, row);
+            column(word, PLAB_SHIFT, PERCENT, columns.plab, row);
+            column(word, AGE_SHIFT, AGE, columns.age, row);
+            column(word, AFFILIATION_SHIFT, AFFILIATION, columns.affiliation, row);
+            column(word, FLAGS_SHIFT, STATUS, columns.state, row);
+        }
+        ScalarRegionDecoder.decode(words, from, row, count, columns);
+    }
+
+    private static void column(LongVector word, int shift, LongVector mask, byte[] column, int row) {
+        ((ByteVector) word.lanewise(VectorOperators.LSHR, shift)
+                .and(mask)
+                .convertShape(VectorOperators.L2B, BYTES, 0))
+                .intoArray(column, row);
+    }
+
+    @Override
+    public String name() {
+        return "vector";
+    }
+}
@@ -0,0 +1,231 @@
+/*
+ * Copyright (c) 2023, Amazon.com, Inc. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Oracle designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package org.openjdk.shenandoah;
+
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Keeps the search for a Shenandoah JVM from re-examining every local JVM
+ * over and over. JVMs found to lack ShenandoahRegionSampling are remembered
+ * along with the identity of their hsperfdata file, and only looked at
+ * again if that file is replaced. Between searches, the caller blocks on a
+ * watch of the hsperfdata directories instead of polling.
+ * <p>
+ * JVMs on a remote host have no file to watch or identify. They are
+ * polled for, and remembered by pid for as long as they keep running.
+ */
+class VmDiscovery {
+    private static final long POLL_INTERVAL_MS = 250;
+    private static final long IDLE_INTERVAL_MS = 5_000;
+
+    private static final Object REMOTE = new Object();
+
+    private final boolean local;
+    private final Map<Integer, Object> rejected;
+    private final Set<Integer> retry;
+    private final Set<Path> watched;
+    private WatchService watcher;
+
+    VmDiscovery() {
+        this(true);
+    }
+
+    VmDiscovery(boolean local) {
+        this.local = local;
+        this.rejected = new HashMap<>();
+        this.retry = new HashSet<>();
+        this.watched = new HashSet<>();
+        if (!local) {
+            return;
+        }
+        try {
+            watcher = FileSystems.getDefault().newWatchService();
+            for (Path tmp : PerfDataFile.temporaryDirectories()) {
+                watch(tmp);
+                try (DirectoryStream<Path> userDirs = Files.newDirectoryStream(tmp, PerfDataFile.DIR_PREFIX + "*")) {
+                    userDirs.forEach(this::watch);
+                }
+            }
+        } catch (IOException | UnsupportedOperationException e) {
+            System.out.println("Cannot watch for new JVMs, falling back to polling: " + e.getMessage());
+            close();
+        }
+    }
+
+    private void watch(Path dir) {
+        if (watcher == null || !Files.isDirectory(dir) || !watched.add(dir)) {
+            return;
+        }
+        try {
+            dir.register(watcher, StandardWatchEventKinds.ENTRY_CREATE, StandardWatchEventKinds.ENTRY_DELETE);
+        } catch (IOException e) {
+            // Another user's directory we may not read; polling picks up the slack.
+            System.out.println("Cannot watch " + dir + ": " + e.getMessage());
+        }
+    }
+
+    /**
+     * False if the given JVM was already examined and its hsperfdata file
+     * has not been replaced since. Replacement is detected both from watch
+     * events and from the file's identity, in case events were lost.
+     */
+    synchronized boolean shouldExamine(int pid) {
+        Object identity = rejected.get(pid);
+        return identity == null || !identity.equals(identity(pid));
+    }
+
+    synchronized void reject(int pid) {
+        retry.remove(pid);
+        Object identity = identity(pid);
+        if (identity != null) {
+            rejected.put(pid, identity);
+        }
+    }
+
+    /**
+     * The JVM could not be examined yet, most likely because it is still
+     * starting up. Keep polling until it can be.
+     */
+    synchronized void retryLater(int pid) {
+        retry.add(pid);
+    }
+
+    synchronized void forget(int pid) {
+        retry.remove(pid);
+        rejected.remove(pid);
+    }
+
+    /**
+     * Forgets the JVMs that are no longer running, so that a new JVM
+     * reusing a pid is examined again.
+     */
+    synchronized void retainActive(Set<Integer> active) {
+        retry.retainAll(active);
+        rejected.keySet().retainAll(active);
+    }
+
+    /**
+     * Blocks until an hsperfdata file may have been created or replaced, or
+     * until a JVM waiting to be retried is due.
+     */
+    void awaitChange() throws InterruptedException {
+        WatchService watcher = this.watcher;
+        boolean polling;
+        synchronized (this) {
+            polling = watcher == null || !retry.isEmpty();
+        }
+        if (watcher == null) {
+            Thread.sleep(POLL_INTERVAL_MS);
+            return;
+        }
+
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(polling ? POLL_INTERVAL_MS : IDLE_INTERVAL_MS);
+        try {
+            boolean changed = false;
+            while (!changed) {
+                long remaining = deadline - System.nanoTime();
+                WatchKey key = remaining > 0 ? watcher.poll(remaining, TimeUnit.NANOSECONDS) : null;
+                if (key == null) {
+                    return;
+                }
+                changed = handleEvents(key);
+            }
+        } catch (ClosedWatchServiceException e) {
+            Thread.sleep(POLL_INTERVAL_MS);
+        }
+    }
+
+    // The temporary directories see plenty of unrelated traffic, only new
+    // hsperfdata directories and files count as a change.
+    private boolean handleEvents(WatchKey key) {
+        Path dir = (Path) key.watchable();
+        boolean userDir = dir.getFileName() != null && dir.getFileName().toString().startsWith(PerfDataFile.DIR_PREFIX);
+        boolean changed = false;
+        for (WatchEvent<?> event : key.pollEvents()) {
+            if (event.kind() == StandardWatchEventKinds.OVERFLOW) {
+                changed = true;
+                continue;
+            }
+            String name = event.context().toString();
+            if (userDir) {
+                try {
+                    forget(Integer.parseInt(name));
+                    changed = true;
+                } catch (NumberFormatException e) {
+                    // Temporary files of a JVM creating its hsperfdata file.
+                }
+            } else if (name.startsWith(PerfDataFile.DIR_PREFIX)) {
+                watch(dir.resolve(name));
+                changed = true;
+            }
+        }
+        key.reset();
+        return changed;
+    }
+
+    void close() {
+        if (watcher != null) {
+            try {
+                watcher.close();
+            } catch (IOException e) {
+                e.printStackTrace();
+            }
+            watcher = null;
+        }
+    }
+
+    private Object identity(int pid) {
+        if (!local) {
+            return REMOTE;
+        }
+        Path path = PerfDataFile.locate(pid);
+        if (path == null) {
+            return null;
+        }
+        try {
+            // Not the modification time, the target's writes to the mapping update that.
+            BasicFileAttributes attributes = Files.readAttributes(path, BasicFileAttributes.class);
+            return Objects.requireNonNullElse(attributes.fileKey(), path);
+        } catch (IOException e) {
+            return null;
+        }
+    }
+}
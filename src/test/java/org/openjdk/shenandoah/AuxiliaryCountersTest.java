@@ -0,0 +1,100 @@
+/*
+ * Copyright (c) 2023, Amazon.com, Inc. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Oracle designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package org.openjdk.shenandoah;
+
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+public class AuxiliaryCountersTest {
+    private static final long REGULAR = 2L << 58;
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void testParsesRatesAndValues() {
+        AuxiliaryCounters counters = AuxiliaryCounters.parse("sun.rt.safepoints/s, sun.gc.generation.1.capacity");
+        Assert.assertEquals(2, counters.size());
+        Assert.assertEquals("sun.rt.safepoints", counters.name(0));
+        Assert.assertTrue(counters.isPerSecond(0));
+        Assert.assertEquals("sun.rt.safepoints/s", counters.label(0));
+        Assert.assertFalse(counters.isPerSecond(1));
+        Assert.assertEquals(1, counters.indexOf("sun.gc.generation.1.capacity"));
+        Assert.assertSame(AuxiliaryCounters.NONE, AuxiliaryCounters.parse("none"));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testRejectsEmptyNames() {
+        AuxiliaryCounters.parse("sun.rt.safepoints,,sun.gc.tlab.fills");
+    }
+
+    @Test
+    public void testSamplesCountersWithRegions() throws Exception {
+        Path path = folder.newFile("1234").toPath();
+        new PerfDataWriter()
+                .add("sun.rt.safepoints", 17)
+                .add("sun.gc.tlab.fills", 300)
+                .regions(256, 0, new long[] {REGULAR | 10, REGULAR | 20})
+                .write(path);
+
+        AuxiliaryCounters counters = AuxiliaryCounters.parse("sun.rt.safepoints/s,sun.rt.missing,sun.gc.tlab.fills");
+        Snapshot snapshot = new RegionSampler(PerfDataFile.open(path), counters, null, 0).sample(() -> null);
+
+        AuxiliaryCounters bound = snapshot.auxiliaryCounters();
+        Assert.assertEquals(2, bound.size());
+        Assert.assertEquals(-1, bound.indexOf("sun.rt.missing"));
+        Assert.assertEquals(17, snapshot.auxiliaryValue(bound.indexOf("sun.rt.safepoints")));
+        Assert.assertEquals(300, snapshot.auxiliaryValue(bound.indexOf("sun.gc.tlab.fills")));
+    }
+
+    @Test
+    public void testGraphsRatePerSecond() {
+        AuxiliaryCounters counters = AuxiliaryCounters.parse("sun.rt.safepoints/s");
+        List<Snapshot> snapshots = new ArrayList<>();
+        snapshots.add(snapshot(1_000, counters, 10, true));
+        snapshots.add(snapshot(1_500, counters, 20, false));
+        snapshots.add(snapshot(2_000, counters, 25, true));
+
+        Assert.assertTrue(Double.isNaN(GraphPanel.counterValue(snapshots, 0, "sun.rt.safepoints", true)));
+        Assert.assertEquals(20.0, GraphPanel.counterValue(snapshots, 1, "sun.rt.safepoints", true), 0.0);
+        Assert.assertEquals(20.0, GraphPanel.counterValue(snapshots, 1, "sun.rt.safepoints", false), 0.0);
+        // No rate across a reconnect.
+        Assert.assertTrue(Double.isNaN(GraphPanel.counterValue(snapshots, 2, "sun.rt.safepoints", true)));
+        Assert.assertTrue(Double.isNaN(GraphPanel.counterValue(snapshots, 1, "sun.rt.missing", false)));
+    }
+
+    private static Snapshot snapshot(long time, AuxiliaryCounters counters, long value, boolean sessionStart) {
+        return new Snapshot.Builder(time, 256, 2, new long[0], 0)
+                .sessionStart(sessionStart)
+                .auxiliary(counters, new long[] {value})
+                .build();
+    }
+}
@@ -84,4 +84,45 @@ public class CircularBufferTest {
             assertEquals(String.valueOf(c), String.valueOf(buffer.get(buffer.size() - 1)));
         }
     }
+
+    @Test
+    public void testGrowableKeepsEverythingUntilRemoved() {
+        buffer = new CircularBuffer<>(2, true);
+        buffer.add('A');
+        buffer.add('B');
+        assertEquals(Character.valueOf('A'), buffer.removeFirst());
+        for (int i = 0; i < CircularBuffer.DEFAULT_SIZE + 1; i++) {
+            buffer.add((char) ('C' + i));
+        }
+        assertEquals(CircularBuffer.DEFAULT_SIZE + 2, buffer.size());
+        assertEquals(Arrays.asList('B', 'C', 'D'), buffer.subList(0, 3));
+        assertEquals(Character.valueOf('K'), buffer.get(buffer.size() - 1));
+    }
+
+    @Test
+    public void testSubListIsNotChangedByLaterAddsOrRemoves() {
+        for (int i = 0; i < CircularBuffer.DEFAULT_SIZE; i++) {
+            buffer.add((char) ('A' + i));
+        }
+        var view = buffer.subList(2, 6);
+        for (int i = 0; i < 3 * CircularBuffer.DEFAULT_SIZE; i++) {
+            buffer.add('Z');
+        }
+        assertEquals(Arrays.asList('C', 'D', 'E', 'F'), view);
+
+        CircularBuffer<Integer> growable = new CircularBuffer<>(4, true);
+        for (int i = 0; i < 1000; i++) {
+            growable.add(i);
+        }
+        var numbers = growable.subList(0, growable.size());
+        for (int i = 1000; i < 5000; i++) {
+            growable.add(i);
+            growable.removeFirst();
+        }
+        for (int i = 0; i < numbers.size(); i++) {
+            assertEquals(Integer.valueOf(i), numbers.get(i));
+        }
+        assertEquals(Integer.valueOf(4000), growable.get(0));
+        assertEquals(1000, growable.size());
+    }
 }
@@ -31,6 +31,8 @@ import org.junit.Test;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
 
 import static org.openjdk.shenandoah.RegionAffiliation.OLD;
 import static org.openjdk.shenandoah.RegionAffiliation.YOUNG;
@@ -72,94 +74,192 @@ public class CounterTest {
 
     @Test
     public void testEmptyUncommittedCounter() {
-        Snapshot snapshot = new Snapshot(0, 1024, 1, emptyUncommittedAge0, 0, new Histogram(2));
-        Assert.assertEquals(snapshot.getEmptyUncommittedCount(), 10);
+        Snapshot snapshot = new Snapshot.Builder(0, 1024, 1, emptyUncommittedAge0, 0).histogram(new Histogram(2)).build();
+        Assert.assertEquals(snapshot.summary().getEmptyUncommittedCount(), 10);
     }
     @Test
     public void testEmptyCommittedCounter() {
-        Snapshot snapshot = new Snapshot(0, 1024, 1, emptyCommittedAge3, 0, new Histogram(2));
-        Assert.assertEquals(snapshot.getEmptyCommittedCount(), 10);
+        Snapshot snapshot = new Snapshot.Builder(0, 1024, 1, emptyCommittedAge3, 0).histogram(new Histogram(2)).build();
+        Assert.assertEquals(snapshot.summary().getEmptyCommittedCount(), 10);
     }
     @Test
     public void testTrashCounter() {
-        Snapshot snapshot = new Snapshot(0, 1024, 1, trashAge6, 0, new Histogram(2));
-        Assert.assertEquals(snapshot.getTrashCount(), 10);
+        Snapshot snapshot = new Snapshot.Builder(0, 1024, 1, trashAge6, 0).histogram(new Histogram(2)).build();
+        Assert.assertEquals(snapshot.summary().getTrashCount(), 10);
     }
     @Test
     public void testHumongousCounter() {
-        Snapshot snapshot = new Snapshot(0, 1024, 1, humongousAge9, 0, new Histogram(2));
-        Assert.assertEquals(snapshot.getHumongousCount(), 10);
+        Snapshot snapshot = new Snapshot.Builder(0, 1024, 1, humongousAge9, 0).histogram(new Histogram(2)).build();
+        Assert.assertEquals(snapshot.summary().getHumongousCount(), 10);
     }
     @Test
     public void testPinnedHumongousCounter() {
-        Snapshot snapshot = new Snapshot(0, 1024, 1, pinnedHumongousAge12, 0, new Histogram(2));
-        Assert.assertEquals(snapshot.getPinnedHumongousCount(), 10);
+        Snapshot snapshot = new Snapshot.Builder(0, 1024, 1, pinnedHumongousAge12, 0).histogram(new Histogram(2)).build();
+        Assert.assertEquals(snapshot.summary().getPinnedHumongousCount(), 10);
     }
     @Test
     public void testCSetCounter() {
-        Snapshot snapshot = new Snapshot(0, 1024, 1, cSetAge15, 0, new Histogram(2));
-        Assert.assertEquals(snapshot.getCSetCount(), 10);
+        Snapshot snapshot = new Snapshot.Builder(0, 1024, 1, cSetAge15, 0).histogram(new Histogram(2)).build();
+        Assert.assertEquals(snapshot.summary().getCSetCount(), 10);
     }
     @Test
     public void testPinnedCounter() {
-        Snapshot snapshot = new Snapshot(0, 1024, 1, pinned, 0, new Histogram(2));
-        Assert.assertEquals(snapshot.getPinnedCount(), 10);
+        Snapshot snapshot = new Snapshot.Builder(0, 1024, 1, pinned, 0).histogram(new Histogram(2)).build();
+        Assert.assertEquals(snapshot.summary().getPinnedCount(), 10);
     }
     @Test
     public void testPinnedCSetCounter() {
-        Snapshot snapshot = new Snapshot(0, 1024, 1, pinnedCSet, 0, new Histogram(2));
-        Assert.assertEquals(snapshot.getPinnedCSetCount(), 10);
+        Snapshot snapshot = new Snapshot.Builder(0, 1024, 1, pinnedCSet, 0).histogram(new Histogram(2)).build();
+        Assert.assertEquals(snapshot.summary().getPinnedCSetCount(), 10);
     }
     @Test
     public void testAge0Counter() {
-        Snapshot snapshot = new Snapshot(0, 1024, 1, emptyUncommittedAge0, 0, new Histogram(2));
-        Assert.assertEquals(snapshot.getAge0Count(), 10);
+        Snapshot snapshot = new Snapshot.Builder(0, 1024, 1, emptyUncommittedAge0, 0).histogram(new Histogram(2)).build();
+        Assert.assertEquals(snapshot.summary().getAge0Count(), 10);
     }
     @Test
     public void testAge3Counter() {
-        Snapshot snapshot = new Snapshot(0, 1024, 1, emptyCommittedAge3, 0, new Histogram(2));
-        Assert.assertEquals(snapshot.getAge3Count(), 10);
+        Snapshot snapshot = new Snapshot.Builder(0, 1024, 1, emptyCommittedAge3, 0).histogram(new Histogram(2)).build();
+        Assert.assertEquals(snapshot.summary().getAge3Count(), 10);
     }
     @Test
     public void testAge6Counter() {
-        Snapshot snapshot = new Snapshot(0, 1024, 1, trashAge6, 0, new Histogram(2));
-        Assert.assertEquals(snapshot.getAge6Count(), 10);
+        Snapshot snapshot = new Snapshot.Builder(0, 1024, 1, trashAge6, 0).histogram(new Histogram(2)).build();
+        Assert.assertEquals(snapshot.summary().getAge6Count(), 10);
     }
     @Test
     public void testAge9Counter() {
-        Snapshot snapshot = new Snapshot(0, 1024, 1, humongousAge9, 0, new Histogram(2));
-        Assert.assertEquals(snapshot.getAge9Count(), 10);
+        Snapshot snapshot = new Snapshot.Builder(0, 1024, 1, humongousAge9, 0).histogram(new Histogram(2)).build();
+        Assert.assertEquals(snapshot.summary().getAge9Count(), 10);
     }
     @Test
     public void testAge12Counter() {
-        Snapshot snapshot = new Snapshot(0, 1024, 1, pinnedHumongousAge12, 0, new Histogram(2));
-        Assert.assertEquals(snapshot.getAge12Count(), 10);
+        Snapshot snapshot = new Snapshot.Builder(0, 1024, 1, pinnedHumongousAge12, 0).histogram(new Histogram(2)).build();
+        Assert.assertEquals(snapshot.summary().getAge12Count(), 10);
     }
     @Test
     public void testAge15Counter() {
-        Snapshot snapshot = new Snapshot(0, 1024, 1, cSetAge15, 0, new Histogram(2));
-        Assert.assertEquals(snapshot.getAge15Count(), 10);
+        Snapshot snapshot = new Snapshot.Builder(0, 1024, 1, cSetAge15, 0).histogram(new Histogram(2)).build();
+        Assert.assertEquals(snapshot.summary().getAge15Count(), 10);
     }
     @Test
     public void testTlabCounter() {
-        Snapshot snapshot = new Snapshot(0, 1024, 1, tLab, 0, new Histogram(2));
-        Assert.assertEquals(snapshot.getTlabCount(), 10);
+        Snapshot snapshot = new Snapshot.Builder(0, 1024, 1, tLab, 0).histogram(new Histogram(2)).build();
+        Assert.assertEquals(snapshot.summary().getTlabCount(), 10);
     }
     @Test
     public void testGClabCounter() {
-        Snapshot snapshot = new Snapshot(0, 1024, 1, gcLab, 0, new Histogram(2));
-        Assert.assertEquals(snapshot.getGclabCount(), 10);
+        Snapshot snapshot = new Snapshot.Builder(0, 1024, 1, gcLab, 0).histogram(new Histogram(2)).build();
+        Assert.assertEquals(snapshot.summary().getGclabCount(), 10);
     }
     @Test
     public void testPlabCounter() {
-        Snapshot snapshot = new Snapshot(0, 1024, 1, pLab, 0, new Histogram(2));
-        Assert.assertEquals(snapshot.getPlabCount(), 10);
+        Snapshot snapshot = new Snapshot.Builder(0, 1024, 1, pLab, 0).histogram(new Histogram(2)).build();
+        Assert.assertEquals(snapshot.summary().getPlabCount(), 10);
     }
     @Test
     public void testSharedCounter() {
-        Snapshot snapshotYoung = new Snapshot(0, 1024, 1, sharedLabYoung, 0, new Histogram(2));
-        Snapshot snapshotOld = new Snapshot(0, 1024, 1, sharedLabOld, 0, new Histogram(2));
-        Assert.assertEquals(snapshotYoung.getSharedCount(), 10);
-        Assert.assertEquals(snapshotOld.getSharedCount(), 10);
+        Snapshot snapshotYoung = new Snapshot.Builder(0, 1024, 1, sharedLabYoung, 0).histogram(new Histogram(2)).build();
+        Snapshot snapshotOld = new Snapshot.Builder(0, 1024, 1, sharedLabOld, 0).histogram(new Histogram(2)).build();
+        Assert.assertEquals(snapshotYoung.summary().getSharedCount(), 10);
+        Assert.assertEquals(snapshotOld.summary().getSharedCount(), 10);
+    }
+
+    @Test
+    public void testGenerationTotals() {
+        List<RegionStat> mixed = new ArrayList<>(pLab);
+        mixed.addAll(tLab);
+        Snapshot snapshot = new Snapshot.Builder(0, 1024, 1, mixed, 0).histogram(new Histogram(2)).build();
+        SnapshotSummary summary = snapshot.summary();
+        Assert.assertEquals(10 * 1024, summary.used(OLD));
+        Assert.assertEquals(10 * 1024, summary.live(YOUNG));
+        Assert.assertEquals(20 * 1024, summary.used());
+        Assert.assertEquals(0, summary.collectionSet());
+    }
+
+    @Test
+    public void testRegionsAreCountedByTheAgeTheirWordsCarry() {
+        // Regions built from levels carry no age of their own, so give them one.
+        List<RegionStat> mixed = aged(tLab, 4);
+        mixed.addAll(emptyUncommittedAge0);
+        mixed.addAll(emptyCommittedAge3);
+        Snapshot snapshot = new Snapshot.Builder(0, 1024, 1, mixed, 0).histogram(new Histogram(2)).build();
+        Assert.assertEquals(10, snapshot.summary().getAge0Count());
+        Assert.assertEquals(20, snapshot.summary().getAge3Count());
+    }
+
+    @Test
+    public void testSummaryIsTakenOnce() {
+        Snapshot snapshot = new Snapshot.Builder(0, 1024, 1, cSetAge15, 0).histogram(new Histogram(2)).build();
+        Assert.assertSame(snapshot.summary(), snapshot.summary());
+        Assert.assertEquals(10, snapshot.summary().getCSetCount());
+    }
+
+    @Test
+    public void testParallelSummaryMatchesSequential() {
+        Random random = new Random(42);
+        long[] words = new long[100_003];
+        for (int i = 0; i < words.length; i++) {
+            RegionState state = RegionState.values()[random.nextInt(RegionState.values().length)];
+            long affiliation = random.nextInt(RegionAffiliation.values().length);
+            words[i] = (long) state.publishedOrdinal() << 58 | affiliation << 56 | (long) random.nextInt(16) << 51
+                    | (long) random.nextInt(101) << 35 | (long) random.nextInt(101) << 28
+                    | (long) random.nextInt(101) << 21 | (long) random.nextInt(101) << 14
+                    | (long) random.nextInt(101) << 7 | random.nextInt(101);
+        }
+        ForkJoinPool pool = new ForkJoinPool(4);
+        try {
+            SnapshotSummary sequential = new SnapshotSummary(4096, words, pool, Integer.MAX_VALUE);
+            SnapshotSummary parallel = new SnapshotSummary(4096, words, pool, 0);
+            Assert.assertEquals(sequential.used(), parallel.used());
+            Assert.assertEquals(sequential.live(), parallel.live());
+            Assert.assertEquals(sequential.collectionSet(), parallel.collectionSet());
+            for (RegionAffiliation affiliation : RegionAffiliation.values()) {
+                Assert.assertEquals(sequential.used(affiliation), parallel.used(affiliation));
+                Assert.assertEquals(sequential.live(affiliation), parallel.live(affiliation));
+            }
+            Assert.assertEquals(sequential.percentageOfOldRegionsInCollectionSet(),
+                    parallel.percentageOfOldRegionsInCollectionSet(), 0);
+            Assert.assertEquals(sequential.getEmptyUncommittedCount(), parallel.getEmptyUncommittedCount());
+            Assert.assertEquals(sequential.getEmptyCommittedCount(), parallel.getEmptyCommittedCount());
+            Assert.assertEquals(sequential.getTrashCount(), parallel.getTrashCount());
+            Assert.assertEquals(sequential.getTlabCount(), parallel.getTlabCount());
+            Assert.assertEquals(sequential.getGclabCount(), parallel.getGclabCount());
+            Assert.assertEquals(sequential.getPlabCount(), parallel.getPlabCount());
+            Assert.assertEquals(sequential.getSharedCount(), parallel.getSharedCount());
+            Assert.assertEquals(sequential.getHumongousCount(), parallel.getHumongousCount());
+            Assert.assertEquals(sequential.getPinnedHumongousCount(), parallel.getPinnedHumongousCount());
+            Assert.assertEquals(sequential.getCSetCount(), parallel.getCSetCount());
+            Assert.assertEquals(sequential.getPinnedCount(), parallel.getPinnedCount());
+            Assert.assertEquals(sequential.getPinnedCSetCount(), parallel.getPinnedCSetCount());
+            Assert.assertEquals(sequential.getAge0Count(), parallel.getAge0Count());
+            Assert.assertEquals(sequential.getAge3Count(), parallel.getAge3Count());
+            Assert.assertEquals(sequential.getAge6Count(), parallel.getAge6Count());
+            Assert.assertEquals(sequential.getAge9Count(), parallel.getAge9Count());
+            Assert.assertEquals(sequential.getAge12Count(), parallel.getAge12Count());
+            Assert.assertEquals(sequential.getAge15Count(), parallel.getAge15Count());
+            Assert.assertEquals(words.length, sequential.getEmptyUncommittedCount() + sequential.getEmptyCommittedCount()
+                    + sequential.getTrashCount() + sequential.getHumongousCount() + sequential.getPinnedHumongousCount()
+                    + sequential.getCSetCount() + sequential.getPinnedCount() + sequential.getPinnedCSetCount()
+                    + regular(words));
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    private static int regular(long[] words) {
+        int regular = 0;
+        for (long word : words) {
+            regular += RegionStat.state(word) == REGULAR ? 1 : 0;
+        }
+        return regular;
+    }
+
+    private static List<RegionStat> aged(List<RegionStat> stats, int age) {
+        List<RegionStat> aged = new ArrayList<>();
+        for (RegionStat stat : stats) {
+            aged.add(new RegionStat(stat.data() | (long) age << RegionStat.AGE_SHIFT));
+        }
+        return aged;
     }
 }
@@ -0,0 +1,174 @@
+/*
+ * Copyright (c) 2023, Amazon.com, Inc. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Oracle designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package org.openjdk.shenandoah;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.LongUnaryOperator;
+
+public class CycleIndexTest {
+    // Status words, by generation phase and cycle kind.
+    private static final int IDLE = 0;
+    private static final int GLOBAL_MARKING = 0x01;
+    private static final int GLOBAL_EVACUATING = 0x02;
+    private static final int OLD_MARKING = 0x04;
+    private static final int YOUNG_MARKING = 0x10;
+    private static final int YOUNG_EVACUATING = 0x20;
+    private static final int DEGENERATED = 0x40;
+    private static final int FULL = 0x80;
+
+    @Test
+    public void testSplitsCyclesAtIdle() {
+        CycleIndex index = index(IDLE, YOUNG_MARKING, YOUNG_EVACUATING, IDLE, GLOBAL_MARKING, GLOBAL_EVACUATING, IDLE);
+        Assert.assertEquals(2, index.size());
+        assertCycle(index.cycle(0), 1, 2, CycleIndex.Type.YOUNG);
+        assertCycle(index.cycle(1), 4, 5, CycleIndex.Type.GLOBAL);
+        Assert.assertEquals(-1, index.at(0));
+        Assert.assertEquals(0, index.at(2));
+        Assert.assertEquals(-1, index.at(3));
+        Assert.assertEquals(1, index.at(4));
+    }
+
+    @Test
+    public void testSplitsYoungCyclesDuringOldMarking() {
+        CycleIndex index = index(OLD_MARKING, OLD_MARKING | YOUNG_MARKING, OLD_MARKING | YOUNG_EVACUATING,
+                OLD_MARKING, OLD_MARKING | YOUNG_MARKING, IDLE);
+        Assert.assertEquals(3, index.size());
+        assertCycle(index.cycle(0), 0, 0, CycleIndex.Type.OLD);
+        assertCycle(index.cycle(1), 1, 3, CycleIndex.Type.YOUNG);
+        assertCycle(index.cycle(2), 4, 4, CycleIndex.Type.YOUNG);
+    }
+
+    @Test
+    public void testNavigatesCyclesAndAnomalies() {
+        CycleIndex index = index(YOUNG_MARKING, IDLE, YOUNG_MARKING, YOUNG_MARKING | DEGENERATED, IDLE,
+                GLOBAL_MARKING, IDLE, FULL, IDLE);
+        Assert.assertEquals(4, index.size());
+        assertCycle(index.cycle(1), 2, 3, CycleIndex.Type.DEGENERATED);
+        assertCycle(index.cycle(3), 7, 7, CycleIndex.Type.FULL);
+
+        Assert.assertEquals(1, index.next(0, false));
+        Assert.assertEquals(2, index.next(2, false));
+        Assert.assertEquals(-1, index.next(7, false));
+        Assert.assertEquals(1, index.next(0, true));
+        Assert.assertEquals(3, index.next(2, true));
+        Assert.assertEquals(-1, index.next(7, true));
+
+        Assert.assertEquals(2, index.previous(7, false));
+        Assert.assertEquals(3, index.previous(8, false));
+        Assert.assertEquals(-1, index.previous(0, false));
+        Assert.assertEquals(1, index.previous(7, true));
+        Assert.assertEquals(-1, index.previous(2, true));
+    }
+
+    @Test
+    public void testSessionStartEndsCycle() {
+        CycleIndex index = new CycleIndex();
+        index.add(0, snapshot(0, YOUNG_MARKING, false));
+        index.add(1, snapshot(1, YOUNG_EVACUATING, true));
+        Assert.assertEquals(2, index.size());
+    }
+
+    @Test
+    public void testTrimmingKeepsCyclesStillHeld() {
+        CycleIndex index = index(YOUNG_MARKING, IDLE, FULL, IDLE, YOUNG_MARKING, IDLE, DEGENERATED, IDLE);
+        index.trim(5);
+        Assert.assertEquals(1, index.size());
+        assertCycle(index.cycle(0), 6, 6, CycleIndex.Type.DEGENERATED);
+        Assert.assertEquals(0, index.next(0, true));
+        Assert.assertEquals(-1, index.previous(6, true));
+    }
+
+    @Test
+    public void testStepsTheLogFromCycleToCycle() {
+        SnapshotLog log = new SnapshotLog(RetentionPolicy.lastSnapshots(100));
+        int[] statuses = {IDLE, YOUNG_MARKING, YOUNG_EVACUATING, IDLE, GLOBAL_MARKING | DEGENERATED, IDLE};
+        for (int i = 0; i < statuses.length; i++) {
+            log.add(snapshot(i, statuses[i], false));
+        }
+        log.stepBy(1);
+        Assert.assertTrue(log.stepToCycle(true, false));
+        Assert.assertEquals(1, log.currentSequence());
+        Assert.assertEquals(CycleIndex.Type.YOUNG, log.currentCycle().type());
+        Assert.assertTrue(log.stepToCycle(true, true));
+        Assert.assertEquals(4, log.currentSequence());
+        Assert.assertFalse(log.stepToCycle(true, false));
+
+        log.stepBy(1);
+        Assert.assertNull(log.currentCycle());
+        Assert.assertTrue(log.stepToCycle(false, false));
+        Assert.assertEquals(4, log.currentSequence());
+        log.stepBy(-2);
+        Assert.assertTrue(log.stepToCycle(false, false));
+        Assert.assertEquals(1, log.currentSequence());
+    }
+
+    @Test
+    public void testTakesPeakOfEachSnapshotOnceWhenAsked() {
+        CycleIndex index = index(IDLE, YOUNG_MARKING, YOUNG_EVACUATING);
+        List<Long> asked = new ArrayList<>();
+        LongUnaryOperator usedAt = sequence -> {
+            asked.add(sequence);
+            return sequence * 100;
+        };
+        Assert.assertEquals(0, index.cycle(0).peakUsed());
+        Assert.assertEquals(200, index.cycle(0, usedAt).peakUsed());
+        Assert.assertEquals(200, index.cycle(0, usedAt).peakUsed());
+        index.add(3, snapshot(3, YOUNG_EVACUATING, false));
+        Assert.assertEquals(300, index.cycle(0, usedAt).peakUsed());
+        Assert.assertEquals(List.of(1L, 2L, 3L), asked);
+    }
+
+    @Test
+    public void testUsedSumsRegionsWithoutTakingSummary() {
+        long half = 50L << RegionStat.USED_SHIFT;
+        Snapshot snapshot = new Snapshot.Builder(0, 1024, 2, new long[] {half, half, 100L << RegionStat.USED_SHIFT}, 0).build();
+        Assert.assertEquals(2048, snapshot.used());
+        Assert.assertEquals(snapshot.summary().used(), snapshot.used());
+    }
+
+    private static CycleIndex index(int... statuses) {
+        CycleIndex index = new CycleIndex();
+        for (int i = 0; i < statuses.length; i++) {
+            index.add(i, snapshot(i, statuses[i], false));
+        }
+        return index;
+    }
+
+    private static Snapshot snapshot(long time, int status, boolean sessionStart) {
+        return new Snapshot.Builder(time, 1024, 2, new long[0], status)
+                .sessionStart(sessionStart)
+                .build();
+    }
+
+    private static void assertCycle(CycleIndex.Cycle cycle, long start, long end, CycleIndex.Type type) {
+        Assert.assertEquals(start, cycle.start());
+        Assert.assertEquals(end, cycle.end());
+        Assert.assertEquals(type, cycle.type());
+    }
+}
@@ -0,0 +1,87 @@
+/*
+ * Copyright (c) 2023, Amazon.com, Inc. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Oracle designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package org.openjdk.shenandoah;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.nio.file.Path;
+
+public class DataProviderTest {
+    private static final long REGULAR = 2L << 58;
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private Path path;
+    private DataProvider provider;
+
+    @Before
+    public void setup() throws Exception {
+        path = folder.newFile("1234").toPath();
+        write(1, 0, REGULAR | 10, REGULAR | 20);
+        provider = new DataProvider();
+        provider.setCounters(PerfDataFile.open(path));
+    }
+
+    private void write(long timestamp, long status, long... data) throws Exception {
+        PerfDataWriter writer = new PerfDataWriter().regions(256, status, data);
+        writer.add("sun.gc.shenandoah.regions.timestamp", timestamp);
+        writer.write(path);
+    }
+
+    @Test
+    public void testSkipsUnpublishedSamples() throws Exception {
+        Snapshot first = provider.sample();
+        Assert.assertNotNull(first);
+        Assert.assertEquals(0.2f, first.get(1).used(), 0.0f);
+        Assert.assertNull(provider.sample());
+        Assert.assertEquals(1, provider.unchangedSamples());
+    }
+
+    @Test
+    public void testSkipsRepublishedIdenticalSamples() throws Exception {
+        Assert.assertNotNull(provider.sample());
+        write(2, 0, REGULAR | 10, REGULAR | 20);
+        Assert.assertNull(provider.sample());
+        Assert.assertEquals(1, provider.unchangedSamples());
+    }
+
+    @Test
+    public void testTakesChangedSamples() throws Exception {
+        Assert.assertNotNull(provider.sample());
+        write(2, 0, REGULAR | 10, REGULAR | 30);
+        Snapshot changed = provider.sample();
+        Assert.assertNotNull(changed);
+        Assert.assertEquals(0.3f, changed.get(1).used(), 0.0f);
+
+        write(3, 1, REGULAR | 10, REGULAR | 30);
+        Assert.assertNotNull(provider.sample());
+        Assert.assertEquals(0, provider.unchangedSamples());
+    }
+}
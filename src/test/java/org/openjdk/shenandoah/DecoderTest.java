@@ -38,44 +38,84 @@ public class DecoderTest {
     // Testing different phases for version 1 encoding
     @Test
     public void testVersion1PhaseIdle() {
-        var snapshotVersion1Idle = new Snapshot(0, 1024, 1, Collections.emptyList(), 0, new Histogram(2));
+        var snapshotVersion1Idle = new Snapshot.Builder(0, 1024, 1, Collections.emptyList(), 0).histogram(new Histogram(2)).build();
         Assert.assertEquals(Phase.IDLE, snapshotVersion1Idle.phase());
     }
     @Test
     public void testVersion1PhaseMarking() {
-        var snapshotVersion1Marking = new Snapshot(0, 1024, 1, Collections.emptyList(), 1, new Histogram(2));
+        var snapshotVersion1Marking = new Snapshot.Builder(0, 1024, 1, Collections.emptyList(), 1).histogram(new Histogram(2)).build();
         Assert.assertEquals(Phase.MARKING, snapshotVersion1Marking.phase());
     }
     @Test
     public void testVersion1PhaseEvacuating() {
-        var snapshotVersion1Evacuating = new Snapshot(0, 1024, 1, Collections.emptyList(), 2, new Histogram(2));
+        var snapshotVersion1Evacuating = new Snapshot.Builder(0, 1024, 1, Collections.emptyList(), 2).histogram(new Histogram(2)).build();
         Assert.assertEquals(Phase.EVACUATING, snapshotVersion1Evacuating.phase());
     }
     @Test
     public void testVersion1PhaseUpdateRefs() {
-        var snapshotVersion1UpdateRefs = new Snapshot(0, 1024, 1, Collections.emptyList(), 4, new Histogram(2));
+        var snapshotVersion1UpdateRefs = new Snapshot.Builder(0, 1024, 1, Collections.emptyList(), 4).histogram(new Histogram(2)).build();
         Assert.assertEquals(Phase.UPDATE_REFS, snapshotVersion1UpdateRefs.phase());
     }
 
     // Testing different phases for version 2 encoding
     @Test
     public void testVersion2PhaseIdle() {
-        var snapshotNewIdle = new Snapshot(0, 1024, 2, Collections.emptyList(), 0, new Histogram(2));
+        var snapshotNewIdle = new Snapshot.Builder(0, 1024, 2, Collections.emptyList(), 0).histogram(new Histogram(2)).build();
         Assert.assertEquals(Phase.IDLE, snapshotNewIdle.phase());
     }
     @Test
     public void testVersion2PhaseMarking() {
-        var snapshotNewMarking = new Snapshot(0, 1024, 2, Collections.emptyList(), 1, new Histogram(2));
+        var snapshotNewMarking = new Snapshot.Builder(0, 1024, 2, Collections.emptyList(), 1).histogram(new Histogram(2)).build();
         Assert.assertEquals(Phase.MARKING, snapshotNewMarking.phase());
     }
     @Test
     public void testVersion2PhaseEvacuating() {
-        var snapshotNewEvacuating = new Snapshot(0, 1024, 2, Collections.emptyList(), 2, new Histogram(2));
+        var snapshotNewEvacuating = new Snapshot.Builder(0, 1024, 2, Collections.emptyList(), 2).histogram(new Histogram(2)).build();
         Assert.assertEquals(Phase.EVACUATING, snapshotNewEvacuating.phase());
     }
     @Test
     public void testVersion2PhaseUpdateRefs() {
-        var snapshotNewUpdateRefs = new Snapshot(0, 1024, 2, Collections.emptyList(), 3, new Histogram(2));
+        var snapshotNewUpdateRefs = new Snapshot.Builder(0, 1024, 2, Collections.emptyList(), 3).histogram(new Histogram(2)).build();
         Assert.assertEquals(Phase.UPDATE_REFS, snapshotNewUpdateRefs.phase());
     }
+
+    // Testing region words
+    @Test
+    public void testRegionWordFields() {
+        long word = 9L << 58 | 2L << 56 | 7L << 51 | 11L << 35 | 12L << 28 | 13L << 21 | 14L << 14 | 40L << 7 | 75L;
+        Assert.assertEquals(RegionState.PINNED_HUMONGOUS, RegionStat.state(word));
+        Assert.assertEquals(RegionAffiliation.OLD, RegionStat.affiliation(word));
+        Assert.assertEquals(7, RegionStat.age(word));
+        Assert.assertEquals(0.75f, RegionStat.used(word), 0);
+        Assert.assertEquals(0.40f, RegionStat.live(word), 0);
+        Assert.assertEquals(0.14f, RegionStat.tlabAllocs(word), 0);
+        Assert.assertEquals(0.13f, RegionStat.gclabAllocs(word), 0);
+        Assert.assertEquals(0.12f, RegionStat.sharedAllocs(word), 0);
+        Assert.assertEquals(0.11f, RegionStat.plabAllocs(word), 0);
+    }
+    @Test
+    public void testRegionViewMovesBetweenRegions() {
+        long regular = 2L << 58 | 1L << 56 | 50L;
+        long trash = 7L << 58 | 3L << 51;
+        var snapshot = new Snapshot.Builder(0, 1024, 2, new long[] {regular, trash}, 0).histogram(new Histogram(2)).build();
+        RegionStat view = new RegionStat(0L);
+        Assert.assertSame(view, snapshot.get(0, view));
+        Assert.assertEquals(RegionState.REGULAR, view.state());
+        Assert.assertEquals(0.5f, view.used(), 0);
+        snapshot.get(1, view);
+        Assert.assertEquals(RegionState.TRASH, view.state());
+        Assert.assertEquals(3, view.age());
+        Assert.assertEquals(snapshot.get(1), view);
+    }
+    @Test
+    public void testRegionBuiltFromLevels() {
+        RegionStat built = new RegionStat(0.3f, 0.7f, 0.1f, 0.2f, 0.4f, 0.6f, RegionAffiliation.OLD, RegionState.CSET);
+        RegionStat decoded = new RegionStat(built.data());
+        Assert.assertEquals(0.3f, decoded.used(), 0);
+        Assert.assertEquals(0.7f, decoded.live(), 0);
+        Assert.assertEquals(0.6f, decoded.sharedAllocs(), 0);
+        Assert.assertEquals(RegionAffiliation.OLD, decoded.affiliation());
+        Assert.assertEquals(RegionState.CSET, decoded.state());
+        Assert.assertEquals(-1, built.age());
+    }
 }
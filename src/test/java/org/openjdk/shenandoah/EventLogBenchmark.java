@@ -0,0 +1,78 @@
+/*
+ * Copyright (c) 2023, Amazon.com, Inc. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Oracle designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package org.openjdk.shenandoah;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Seeks to random times in a full event log, which has wrapped around,
+ * the way the slider and the timestamp box do. The cost should barely
+ * grow with the size of the log.
+ * <p>
+ * Run with:
+ * <pre>
+ * mvn test-compile dependency:build-classpath -Dmdep.outputFile=cp.txt
+ * java -cp target/classes:target/test-classes:$(cat cp.txt) org.openjdk.jmh.Main EventLogBenchmark
+ * </pre>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class EventLogBenchmark {
+    private record Event(long time) implements Timed { }
+
+    @Param({"5000", "100000", "2000000"})
+    int size;
+
+    private EventLog<Event> log;
+    private long[] times;
+    private int next;
+
+    @Setup
+    public void setup() {
+        log = new EventLog<>(TimeUnit.MILLISECONDS, size);
+        // Half as many again as fit, 100 ms apart.
+        for (long i = 0; i < size + size / 2; i++) {
+            log.add(new Event(i * 100));
+        }
+        Random random = new Random(42);
+        times = new long[1024];
+        for (int i = 0; i < times.length; i++) {
+            times[i] = random.nextLong((size + size / 2) * 100L);
+        }
+    }
+
+    @Benchmark
+    public Event seek() {
+        log.seekTo(times[next++ & (times.length - 1)], TimeUnit.MILLISECONDS);
+        return log.current();
+    }
+}
@@ -65,6 +65,110 @@ public class EventLogTest {
         Assert.assertEquals(createEvents(1, 2), log.inRange());
     }
 
+    @Test
+    public void testFindingLatestAtTime() {
+        EventLog<Event> log = createEventLog(100, 200, 300);
+        log.stepBy(2);
+        Assert.assertNull(log.latestAt(50));
+        Assert.assertEquals(new Event(100), log.latestAt(150));
+        Assert.assertEquals(new Event(200), log.latestAt(200));
+        Assert.assertEquals(new Event(200), log.latestAt(500));
+    }
+
+    @Test
+    public void testSeekingToTime() {
+        EventLog<Event> log = createEventLog(100, 200, 200, 300);
+        log.seekTo(250, TimeUnit.NANOSECONDS);
+        Assert.assertEquals(3, log.cursor());
+        log.seekTo(50, TimeUnit.NANOSECONDS);
+        Assert.assertEquals(1, log.cursor());
+        log.seekTo(300, TimeUnit.NANOSECONDS);
+        Assert.assertEquals(4, log.cursor());
+        log.seekTo(1, TimeUnit.MICROSECONDS);
+        Assert.assertEquals(4, log.cursor());
+    }
+
+    @Test
+    public void testSeekingAcrossWrapAround() {
+        EventLog<Event> log = new EventLog<>(TimeUnit.NANOSECONDS, 5);
+        for (int t = 1; t <= 13; t++) {
+            log.add(new Event(t * 10));
+        }
+        // Holds 90 to 130, with 110 at the start of the array.
+        log.seekTo(125, TimeUnit.NANOSECONDS);
+        Assert.assertEquals(new Event(120), log.current());
+        log.seekTo(95, TimeUnit.NANOSECONDS);
+        Assert.assertEquals(new Event(90), log.current());
+        Assert.assertEquals(new Event(90), log.first());
+        Assert.assertEquals(new Event(130), log.last());
+    }
+
+    @Test
+    public void testSeekingManyEvents() {
+        EventLog<Event> log = new EventLog<>(TimeUnit.NANOSECONDS, 1 << 20);
+        for (int t = 0; t < 3 << 19; t++) {
+            log.add(new Event(t * 2L));
+        }
+        for (long time : new long[] {0, 1, 12_345, 1_000_001, 3_000_000, Long.MAX_VALUE}) {
+            log.seekTo(time, TimeUnit.NANOSECONDS);
+            long expected = Math.min(Math.max(time & ~1L, 1 << 20), (3 << 20) - 2);
+            Assert.assertEquals(expected, log.current().time());
+        }
+        log.seekTo(0, TimeUnit.NANOSECONDS);
+        log.advanceTo(2_500_000, TimeUnit.NANOSECONDS);
+        Assert.assertEquals(new Event(2_500_000), log.current());
+    }
+
+    @Test
+    public void testTellingTheCurrentEventFollowsAnother() {
+        EventLog<Event> log = new EventLog<>();
+        Event first = new Event(100);
+        Event second = new Event(200);
+        log.add(first);
+        log.add(second);
+        log.stepBy(1);
+        Assert.assertFalse(log.isCurrentAfter(first, null));
+        log.stepBy(1);
+        Assert.assertTrue(log.isCurrentAfter(second, first));
+        Assert.assertFalse(log.isCurrentAfter(first, second));
+    }
+
+    @Test
+    public void testSequenceNumbersOutliveEvictedEvents() {
+        EventLog<Event> log = new EventLog<>(TimeUnit.NANOSECONDS, 2);
+        Assert.assertEquals(-1, log.currentSequence());
+        log.add(new Event(100));
+        log.add(new Event(200));
+        log.add(new Event(300));
+        log.stepToEnd();
+        Assert.assertEquals(2, log.currentSequence());
+        log.stepToSequence(1);
+        Assert.assertEquals(new Event(200), log.current());
+        log.stepToSequence(0);
+        Assert.assertEquals(new Event(200), log.current());
+    }
+
+    @Test
+    public void testRangeCanBeReadWhileEventsComeIn() throws Exception {
+        EventLog<Event> log = new EventLog<>(TimeUnit.NANOSECONDS, 100);
+        log.add(new Event(0));
+        Thread writer = new Thread(() -> {
+            for (int t = 1; t <= 100_000; t++) {
+                log.add(new Event(t));
+                log.stepToEnd();
+            }
+        });
+        writer.start();
+        while (writer.isAlive()) {
+            List<Event> range = log.inRange();
+            for (int i = range.size() - 1; i > 0; i--) {
+                Assert.assertEquals(range.get(i).time() - 1, range.get(i - 1).time());
+            }
+        }
+        writer.join();
+        Assert.assertEquals(new Event(100_000), log.current());
+    }
+
     @Test
     public void testAdvancingTimeIncreasesRange() {
         EventLog<Event> log = createEventLog(100, 200, 300);
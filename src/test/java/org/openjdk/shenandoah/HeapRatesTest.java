@@ -0,0 +1,63 @@
+/*
+ * Copyright (c) 2023, Amazon.com, Inc. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Oracle designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package org.openjdk.shenandoah;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class HeapRatesTest {
+    private static final long REGULAR_YOUNG = 2L << 58 | 1L << 56;
+
+    // One region of 1024 KB, filled by the given percentage.
+    private static RegionChanges grown(int from, int to) {
+        return RegionChanges.between(new long[] {REGULAR_YOUNG | from}, new long[] {REGULAR_YOUNG | to});
+    }
+
+    @Test
+    public void testUnknownUntilSecondSnapshot() {
+        HeapRates first = HeapRates.NONE.next(1000, 1024, RegionChanges.between(null, new long[1]));
+        Assert.assertFalse(first.isKnown());
+        HeapRates second = first.next(2000, 1024, grown(0, 50));
+        Assert.assertTrue(second.isKnown());
+        Assert.assertEquals(512, second.allocation(), 0.001);
+        Assert.assertEquals(0, second.promotion(), 0);
+    }
+
+    @Test
+    public void testAveragesByTime() {
+        HeapRates rates = HeapRates.NONE.next(0, 1024, RegionChanges.between(null, new long[1]))
+                .next(1000, 1024, grown(0, 50));
+        // Nothing allocated for a half life halves the rate.
+        rates = rates.next(1000 + HeapRates.HALF_LIFE_MS, 1024, grown(50, 50));
+        Assert.assertEquals(256, rates.allocation(), 0.001);
+    }
+
+    @Test
+    public void testStartsOverWithSession() {
+        HeapRates rates = HeapRates.NONE.next(0, 1024, RegionChanges.between(null, new long[1]))
+                .next(1000, 1024, grown(0, 50));
+        Assert.assertFalse(rates.next(2000, 1024, RegionChanges.between(null, new long[1])).isKnown());
+    }
+}
@@ -0,0 +1,197 @@
+/*
+ * Copyright (c) 2023, Amazon.com, Inc. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Oracle designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package org.openjdk.shenandoah;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+public class JfrLogProviderTest {
+    private static final long REGION_SIZE = 256 * 1024;
+    private static final long BASE = 0xE0000000L;
+    private static final long T0 = TimeUnit.SECONDS.toNanos(1_000);
+
+    private List<Snapshot> snapshots;
+    private JfrLogProvider provider;
+
+    @Before
+    public void setup() {
+        snapshots = new ArrayList<>();
+        provider = new JfrLogProvider(snapshots::add);
+    }
+
+    private void dump(long time, String... states) {
+        for (int i = 0; i < states.length; i++) {
+            // Every event of a dump has a slightly different time.
+            provider.regionInformation(time + i, i, states[i], BASE + i * REGION_SIZE, REGION_SIZE / 2);
+        }
+    }
+
+    private static long millis(long nanos) {
+        return TimeUnit.NANOSECONDS.toMillis(nanos);
+    }
+
+    @Test
+    public void testRebuildsRegionsFromDump() {
+        dump(T0, "Regular", "Empty Committed", "Humongous Start", "Trash");
+        provider.finish();
+
+        Assert.assertEquals(1, snapshots.size());
+        Snapshot snapshot = snapshots.get(0);
+        Assert.assertEquals(millis(T0), snapshot.time());
+        Assert.assertEquals(4, snapshot.regionCount());
+        Assert.assertEquals(4 * REGION_SIZE / 1024, snapshot.total());
+        Assert.assertEquals(RegionState.REGULAR, snapshot.get(0).state());
+        Assert.assertEquals(RegionState.EMPTY_COMMITTED, snapshot.get(1).state());
+        Assert.assertEquals(RegionState.HUMONGOUS, snapshot.get(2).state());
+        Assert.assertEquals(RegionState.TRASH, snapshot.get(3).state());
+        Assert.assertEquals(0.5f, snapshot.get(0).used(), 0.01f);
+    }
+
+    @Test
+    public void testCoalescesStateChanges() {
+        dump(T0, "Regular", "Empty Committed", "Empty Committed");
+        provider.regionStateChange(T0 + TimeUnit.MILLISECONDS.toNanos(10), 1, "Regular", 0);
+        provider.regionStateChange(T0 + TimeUnit.MILLISECONDS.toNanos(20), 2, "Regular", 0);
+        provider.regionStateChange(T0 + TimeUnit.MILLISECONDS.toNanos(300), 0, "Collection Set", REGION_SIZE);
+        provider.finish();
+
+        Assert.assertEquals(3, snapshots.size());
+        Snapshot coalesced = snapshots.get(1);
+        Assert.assertEquals(RegionState.REGULAR, coalesced.get(1).state());
+        Assert.assertEquals(RegionState.REGULAR, coalesced.get(2).state());
+        Assert.assertEquals(RegionState.REGULAR, coalesced.get(0).state());
+        Assert.assertEquals(RegionState.CSET, snapshots.get(2).get(0).state());
+    }
+
+    @Test
+    public void testReordersEventsByTime() {
+        // A change recorded after the dump, but read before it.
+        provider.regionStateChange(T0 + TimeUnit.MILLISECONDS.toNanos(50), 0, "Trash", 0);
+        dump(T0, "Regular", "Regular");
+        provider.finish();
+
+        Assert.assertEquals(2, snapshots.size());
+        Assert.assertEquals(RegionState.REGULAR, snapshots.get(0).get(0).state());
+        Assert.assertEquals(RegionState.TRASH, snapshots.get(1).get(0).state());
+    }
+
+    @Test
+    public void testIgnoresChangesBeforeFirstDump() {
+        provider.regionStateChange(T0 - 1, 0, "Trash", 0);
+        dump(T0, "Regular", "Regular");
+        provider.finish();
+
+        Assert.assertEquals(1, snapshots.size());
+        Assert.assertEquals(RegionState.REGULAR, snapshots.get(0).get(0).state());
+    }
+
+    @Test
+    public void testTracksPhasesAndPauses() {
+        dump(T0, "Regular", "Regular");
+        long markStart = T0 + TimeUnit.MILLISECONDS.toNanos(200);
+        provider.pause(markStart - 1, TimeUnit.MILLISECONDS.toNanos(3), "Pause Init Mark");
+        provider.concurrentPhase(markStart, TimeUnit.MILLISECONDS.toNanos(150), "Concurrent Marking");
+        provider.regionStateChange(markStart + TimeUnit.MILLISECONDS.toNanos(120), 1, "Collection Set", 0);
+        provider.regionStateChange(markStart + TimeUnit.MILLISECONDS.toNanos(400), 1, "Trash", 0);
+        provider.finish();
+
+        Snapshot marking = snapshots.stream().filter(s -> s.phase() == Phase.MARKING).findFirst().orElseThrow();
+        Assert.assertEquals("Global", marking.collectionMode());
+        Assert.assertEquals(1, marking.getSafepointTime().getTotalCount());
+        Assert.assertEquals(3, marking.getSafepointTime().getMaxValue());
+
+        Snapshot last = snapshots.get(snapshots.size() - 1);
+        Assert.assertEquals(Phase.IDLE, last.phase());
+        Assert.assertEquals(RegionState.TRASH, last.get(1).state());
+    }
+
+    @Test
+    public void testKeepsPhasesAndPausesShorterThanTheInterval() {
+        dump(T0, "Regular", "Regular");
+        long start = T0 + TimeUnit.MILLISECONDS.toNanos(200);
+        provider.regionStateChange(start, 0, "Collection Set", REGION_SIZE);
+        // Both begin and end between the snapshot at the change above and the next.
+        provider.concurrentPhase(start + TimeUnit.MILLISECONDS.toNanos(10), TimeUnit.MILLISECONDS.toNanos(20), "Concurrent Marking");
+        provider.pause(start + TimeUnit.MILLISECONDS.toNanos(50), TimeUnit.MILLISECONDS.toNanos(10), "Pause Degenerated GC (Mark)");
+        provider.regionStateChange(start + TimeUnit.MILLISECONDS.toNanos(150), 1, "Trash", 0);
+        provider.finish();
+
+        Assert.assertEquals(4, snapshots.size());
+        Snapshot window = snapshots.get(2);
+        Assert.assertEquals(Phase.MARKING, window.phase());
+        Assert.assertTrue(window.isDegenActive());
+
+        Snapshot last = snapshots.get(3);
+        Assert.assertEquals(Phase.IDLE, last.phase());
+        Assert.assertFalse(last.isDegenActive());
+        Assert.assertEquals(RegionState.TRASH, last.get(1).state());
+    }
+
+    @Test
+    public void testStreamedBatchesApplyAtFlush() {
+        provider = new JfrLogProvider(snapshots::add, 0);
+        dump(T0, "Regular", "Empty Committed");
+        provider.flush();
+        Assert.assertEquals(1, snapshots.size());
+
+        provider.regionStateChange(T0 + TimeUnit.MILLISECONDS.toNanos(10), 1, "Regular", REGION_SIZE);
+        provider.flush();
+        Assert.assertEquals(2, snapshots.size());
+        Assert.assertEquals(RegionState.REGULAR, snapshots.get(1).get(1).state());
+    }
+
+    @Test
+    public void testDumpCutByFlushKeepsOtherRegions() {
+        provider = new JfrLogProvider(snapshots::add, 0);
+        dump(T0, "Regular", "Regular", "Regular");
+        provider.flush();
+
+        long next = T0 + TimeUnit.SECONDS.toNanos(5);
+        provider.regionInformation(next, 0, "Trash", BASE, 0);
+        provider.regionInformation(next + 1, 1, "Trash", BASE + REGION_SIZE, 0);
+        provider.flush();
+        provider.regionInformation(next + 2, 2, "Collection Set", BASE + 2 * REGION_SIZE, 0);
+        provider.flush();
+
+        Snapshot last = snapshots.get(snapshots.size() - 1);
+        Assert.assertEquals(3, last.regionCount());
+        Assert.assertEquals(RegionState.TRASH, last.get(0).state());
+        Assert.assertEquals(RegionState.TRASH, last.get(1).state());
+        Assert.assertEquals(RegionState.CSET, last.get(2).state());
+    }
+
+    @Test
+    public void testMapsStateNames() {
+        Assert.assertEquals(RegionState.PINNED_CSET, RegionState.fromOrdinal(JfrLogProvider.stateOrdinal("Collection Set, Pinned")));
+        Assert.assertEquals(RegionState.PINNED_HUMONGOUS, RegionState.fromOrdinal(JfrLogProvider.stateOrdinal("Humongous Start, Pinned")));
+        Assert.assertEquals(RegionState.HUMONGOUS, RegionState.fromOrdinal(JfrLogProvider.stateOrdinal("Humongous Continuation")));
+        Assert.assertEquals(-1, JfrLogProvider.stateOrdinal("Something New"));
+    }
+}
@@ -0,0 +1,90 @@
+/*
+ * Copyright (c) 2023, Amazon.com, Inc. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Oracle designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package org.openjdk.shenandoah;
+
+import org.HdrHistogram.Histogram;
+import org.HdrHistogram.Recorder;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.nio.file.Path;
+
+public class PauseCountersTest {
+    private static final long TICKS_PER_MILLI = 1_000_000;
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private Path path;
+    private Recorder recorder;
+
+    @Before
+    public void setup() throws Exception {
+        path = folder.newFile("1234").toPath();
+        recorder = new Recorder(2);
+    }
+
+    private void write(long safepoints, long syncMillis, long safepointMillis) throws Exception {
+        new PerfDataWriter()
+                .add(PauseCounters.TICK_FREQUENCY, 1000 * TICKS_PER_MILLI)
+                .add(PauseCounters.SAFEPOINTS, safepoints)
+                .add(PauseCounters.SAFEPOINT_SYNC_TIME, syncMillis * TICKS_PER_MILLI)
+                .add(PauseCounters.SAFEPOINT_TIME, safepointMillis * TICKS_PER_MILLI)
+                .write(path);
+    }
+
+    @Test
+    public void testRecordsPausesSinceLastSample() throws Exception {
+        write(10, 5, 50);
+        PauseCounters pauses = PauseCounters.find(PerfDataFile.open(path), recorder);
+        pauses.record();
+        Assert.assertEquals(0, recorder.getIntervalHistogram().getTotalCount());
+
+        write(11, 6, 52);
+        pauses.record();
+        Histogram one = recorder.getIntervalHistogram();
+        Assert.assertEquals(1, one.getTotalCount());
+        Assert.assertEquals(3, one.getMaxValue());
+
+        write(14, 6, 64);
+        pauses.record();
+        Histogram three = recorder.getIntervalHistogram();
+        Assert.assertEquals(3, three.getTotalCount());
+        Assert.assertEquals(12, three.getMaxValue());
+        Assert.assertEquals(2, three.getCountAtValue(0));
+
+        pauses.record();
+        Assert.assertEquals(0, recorder.getIntervalHistogram().getTotalCount());
+    }
+
+    @Test
+    public void testNeedsSafepointCounters() throws Exception {
+        new PerfDataWriter().add(PauseCounters.SAFEPOINTS, 1).write(path);
+        Assert.assertNull(PauseCounters.find(PerfDataFile.open(path), recorder));
+    }
+}
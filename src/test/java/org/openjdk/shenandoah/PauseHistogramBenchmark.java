@@ -0,0 +1,113 @@
+/*
+ * Copyright (c) 2023, Amazon.com, Inc. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Oracle designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package org.openjdk.shenandoah;
+
+import org.HdrHistogram.Histogram;
+import org.HdrHistogram.Recorder;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Fills the pause histograms of a full live event log, the way the
+ * sampler does, either copying the histogram for every snapshot, as it
+ * used to, or sharing one copy between pauses. Every histogram is kept,
+ * as the event log would keep it, so with the gc profiler the allocation
+ * per operation is the footprint of a log's worth of histograms. That
+ * footprint is also printed at the end of each trial.
+ * <p>
+ * Run with:
+ * <pre>
+ * mvn test-compile dependency:build-classpath -Dmdep.outputFile=cp.txt
+ * java -cp target/classes:target/test-classes:$(cat cp.txt) org.openjdk.jmh.Main PauseHistogramBenchmark -prof gc
+ * </pre>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PauseHistogramBenchmark {
+    private static final int EVENT_LOG_SIZE = 5_000;
+
+    @Param({"copy", "shared"})
+    String mode;
+
+    // At 10 samples a second, one pause every 2 s.
+    @Param({"20"})
+    int samplesPerPause;
+
+    private Histogram[] log;
+
+    @Setup
+    public void setup() {
+        log = new Histogram[EVENT_LOG_SIZE];
+    }
+
+    @Benchmark
+    public Histogram[] fillLog() {
+        Recorder recorder = new Recorder(2);
+        if (mode.equals("copy")) {
+            Histogram histogram = new Histogram(2);
+            for (int i = 0; i < log.length; i++) {
+                recordPause(recorder, i);
+                histogram.add(recorder.getIntervalHistogram());
+                log[i] = histogram.copy();
+            }
+        } else {
+            PauseHistogram pauses = new PauseHistogram();
+            for (int i = 0; i < log.length; i++) {
+                recordPause(recorder, i);
+                pauses.add(recorder);
+                log[i] = pauses.snapshot();
+            }
+        }
+        return log;
+    }
+
+    private void recordPause(Recorder recorder, int sample) {
+        if (sample % samplesPerPause == 0) {
+            // Mostly short pauses, with the odd long one.
+            recorder.recordValue(sample % (50 * samplesPerPause) == 0 ? 500 : 1 + sample % 17);
+        }
+    }
+
+    @TearDown
+    public void footprint() {
+        Set<Histogram> distinct = Collections.newSetFromMap(new IdentityHashMap<>());
+        long bytes = 0;
+        for (Histogram histogram : log) {
+            if (histogram != null && distinct.add(histogram)) {
+                bytes += histogram.getEstimatedFootprintInBytes();
+            }
+        }
+        System.out.printf("%n%s: %d distinct histograms in a log of %d, %d KB%n",
+                mode, distinct.size(), log.length, bytes / 1024);
+    }
+}
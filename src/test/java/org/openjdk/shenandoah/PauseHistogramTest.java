@@ -0,0 +1,84 @@
+/*
+ * Copyright (c) 2023, Amazon.com, Inc. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Oracle designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package org.openjdk.shenandoah;
+
+import org.HdrHistogram.Histogram;
+import org.HdrHistogram.Recorder;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class PauseHistogramTest {
+    @Test
+    public void testSharesCopyUntilNextPause() {
+        Recorder recorder = new Recorder(2);
+        PauseHistogram pauses = new PauseHistogram();
+        recorder.recordValue(5);
+        pauses.add(recorder);
+        Histogram first = pauses.snapshot();
+
+        pauses.add(recorder);
+        Assert.assertSame(first, pauses.snapshot());
+
+        recorder.recordValue(7);
+        pauses.add(recorder);
+        Histogram second = pauses.snapshot();
+        Assert.assertNotSame(first, second);
+        Assert.assertEquals(1, first.getTotalCount());
+        Assert.assertEquals(2, second.getTotalCount());
+
+        pauses.record(9);
+        Assert.assertEquals(3, pauses.snapshot().getTotalCount());
+        Assert.assertEquals(2, second.getTotalCount());
+    }
+
+    @Test
+    public void testPausesBetweenSnapshots() {
+        PauseHistogram pauses = new PauseHistogram();
+        pauses.record(100);
+        Histogram earlier = pauses.snapshot();
+        pauses.record(3);
+        pauses.record(4);
+        Histogram latest = pauses.snapshot();
+
+        Histogram window = PauseHistogram.between(earlier, latest);
+        Assert.assertEquals(2, window.getTotalCount());
+        Assert.assertEquals(4, window.getMaxValue());
+        Assert.assertEquals(0, PauseHistogram.between(latest, latest).getTotalCount());
+        Assert.assertSame(latest, PauseHistogram.between(null, latest));
+    }
+
+    @Test
+    public void testPausesBetweenTargets() {
+        PauseHistogram one = new PauseHistogram();
+        one.record(10);
+        one.record(10);
+        PauseHistogram other = new PauseHistogram();
+        other.record(20);
+        other.record(30);
+        other.record(40);
+        Histogram latest = other.snapshot();
+        Assert.assertSame(latest, PauseHistogram.between(one.snapshot(), latest));
+    }
+}
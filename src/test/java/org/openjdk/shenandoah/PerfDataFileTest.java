@@ -0,0 +1,118 @@
+/*
+ * Copyright (c) 2023, Amazon.com, Inc. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Oracle designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package org.openjdk.shenandoah;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import sun.jvmstat.monitor.MonitoredHost;
+import sun.jvmstat.monitor.MonitoredVm;
+import sun.jvmstat.monitor.VmIdentifier;
+
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Random;
+
+public class PerfDataFileTest {
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private long[] data;
+    private Path path;
+
+    @Before
+    public void setup() throws Exception {
+        Random random = new Random(42);
+        data = new long[2048];
+        for (int i = 0; i < data.length; i++) {
+            // Keep the state bits within the states RegionStat can decode.
+            data[i] = (random.nextLong() & ((1L << 58) - 1)) | ((long) random.nextInt(10) << 58);
+        }
+        path = folder.newFile("1234").toPath();
+        new PerfDataWriter()
+                .add("java.rt.vmArgs", "-XX:+ShenandoahRegionSampling")
+                .add("sun.rt.safepoints", 17)
+                .regions(256, 0x41, data)
+                .write(path);
+    }
+
+    @Test
+    public void testReadsCountersByName() throws Exception {
+        PerfDataFile file = PerfDataFile.open(path);
+        Assert.assertEquals(17, file.get(file.find("sun.rt.safepoints")));
+        Assert.assertEquals(PerfCounters.MISSING, file.find("sun.rt.missing"));
+        Assert.assertEquals(PerfCounters.MISSING, file.find("java.rt.vmArgs"));
+    }
+
+    @Test
+    public void testReadsRegionBlock() throws Exception {
+        RegionCounters regions = new RegionCounters(PerfDataFile.open(path));
+        Assert.assertEquals(data.length, regions.maxRegions());
+        Assert.assertEquals(256, regions.regionSize());
+        Assert.assertEquals(RegionCounters.ORIGINAL_VERSION, regions.protocolVersion());
+        Assert.assertEquals(0x41, regions.status());
+
+        long[] read = new long[regions.maxRegions()];
+        regions.read(read);
+        Assert.assertArrayEquals(data, read);
+    }
+
+    @Test
+    public void testWrappedCopyRefreshesInPlace() throws Exception {
+        byte[] bytes = Files.readAllBytes(path);
+        PerfDataFile copy = PerfDataFile.wrap(ByteBuffer.wrap(bytes), "copy");
+        int safepoints = copy.find("sun.rt.safepoints");
+        Assert.assertEquals(17, copy.get(safepoints));
+
+        // What a remote refresh does: the same layout, newer values.
+        byte[] latest = new PerfDataWriter()
+                .add("java.rt.vmArgs", "-XX:+ShenandoahRegionSampling")
+                .add("sun.rt.safepoints", 18)
+                .regions(256, 0x41, data)
+                .toByteArray();
+        System.arraycopy(latest, 0, bytes, 0, bytes.length);
+        Assert.assertEquals(18, copy.get(safepoints));
+    }
+
+    @Test
+    public void testMatchesJvmstat() throws Exception {
+        VmIdentifier id = new VmIdentifier("file:" + path);
+        MonitoredVm vm = MonitoredHost.getMonitoredHost(id).getMonitoredVm(id);
+        RegionCounters jvmstat = new RegionCounters(new JvmstatCounters(vm));
+        RegionCounters mapped = new RegionCounters(PerfDataFile.open(path));
+
+        long[] expected = new long[jvmstat.maxRegions()];
+        long[] actual = new long[mapped.maxRegions()];
+        jvmstat.read(expected);
+        mapped.read(actual);
+        Assert.assertArrayEquals(expected, actual);
+        Assert.assertEquals(jvmstat.status(), mapped.status());
+        Assert.assertEquals(jvmstat.regionSize(), mapped.regionSize());
+        vm.detach();
+    }
+}
@@ -0,0 +1,140 @@
+/*
+ * Copyright (c) 2023, Amazon.com, Inc. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Oracle designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package org.openjdk.shenandoah;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Writes hsperfdata files laid out the way HotSpot lays them out, so tests
+ * and benchmarks can exercise both the mapped and the jvmstat readers
+ * without a running JVM.
+ */
+class PerfDataWriter {
+    private static final int PROLOGUE_SIZE = 32;
+    private static final int ENTRY_HEADER_SIZE = 20;
+    private static final byte UNITS_NONE = 1;
+    private static final byte UNITS_STRING = 5;
+    private static final byte VARIABILITY_CONSTANT = 1;
+    private static final byte VARIABILITY_VARIABLE = 3;
+
+    private final Map<String, Object> entries = new LinkedHashMap<>();
+
+    PerfDataWriter add(String name, long value) {
+        entries.put(name, value);
+        return this;
+    }
+
+    PerfDataWriter add(String name, String value) {
+        entries.put(name, value);
+        return this;
+    }
+
+    /**
+     * Adds the counters published by -XX:+ShenandoahRegionSampling.
+     */
+    PerfDataWriter regions(long regionSize, long status, long[] data) {
+        add("sun.gc.shenandoah.regions.timestamp", 0);
+        add("sun.gc.shenandoah.regions.max_regions", data.length);
+        add("sun.gc.shenandoah.regions.region_size", regionSize);
+        add("sun.gc.shenandoah.regions.status", status);
+        for (int i = 0; i < data.length; i++) {
+            add("sun.gc.shenandoah.regions.region." + i + ".data", data[i]);
+        }
+        return this;
+    }
+
+    void write(Path path) throws IOException {
+        Files.write(path, toByteArray());
+    }
+
+    byte[] toByteArray() {
+        int size = PROLOGUE_SIZE;
+        for (var e : entries.entrySet()) {
+            size += entrySize(e.getKey(), e.getValue());
+        }
+
+        ByteBuffer buffer = ByteBuffer.allocate(size).order(ByteOrder.nativeOrder());
+        buffer.order(ByteOrder.BIG_ENDIAN).putInt(0, 0xcafec0c0).order(ByteOrder.nativeOrder());
+        buffer.put(4, (byte) (ByteOrder.nativeOrder() == ByteOrder.BIG_ENDIAN ? 0 : 1));
+        buffer.put(5, (byte) 2);
+        buffer.put(6, (byte) 0);
+        buffer.put(7, (byte) 1);
+        buffer.putInt(8, size);
+        buffer.putInt(12, 0);
+        buffer.putLong(16, 0);
+        buffer.putInt(24, PROLOGUE_SIZE);
+        buffer.putInt(28, entries.size());
+
+        int entryStart = PROLOGUE_SIZE;
+        for (var e : entries.entrySet()) {
+            byte[] name = e.getKey().getBytes(StandardCharsets.UTF_8);
+            int dataOffset = dataOffset(name.length, e.getValue());
+            int entryLength = entrySize(e.getKey(), e.getValue());
+            buffer.putInt(entryStart, entryLength);
+            buffer.putInt(entryStart + 4, ENTRY_HEADER_SIZE);
+            buffer.put(entryStart + ENTRY_HEADER_SIZE, name);
+            if (e.getValue() instanceof Long value) {
+                buffer.putInt(entryStart + 8, 0);
+                buffer.put(entryStart + 12, (byte) 'J');
+                buffer.put(entryStart + 14, UNITS_NONE);
+                buffer.put(entryStart + 15, VARIABILITY_VARIABLE);
+                buffer.putLong(entryStart + dataOffset, value);
+            } else {
+                byte[] value = ((String) e.getValue()).getBytes(StandardCharsets.UTF_8);
+                buffer.putInt(entryStart + 8, value.length + 1);
+                buffer.put(entryStart + 12, (byte) 'B');
+                buffer.put(entryStart + 14, UNITS_STRING);
+                buffer.put(entryStart + 15, VARIABILITY_CONSTANT);
+                buffer.put(entryStart + dataOffset, value);
+            }
+            buffer.put(entryStart + 13, (byte) 1);
+            buffer.putInt(entryStart + 16, dataOffset);
+            entryStart += entryLength;
+        }
+        return buffer.array();
+    }
+
+    private static int dataOffset(int nameLength, Object value) {
+        int offset = ENTRY_HEADER_SIZE + nameLength + 1;
+        return value instanceof Long ? align(offset) : offset;
+    }
+
+    private static int entrySize(String name, Object value) {
+        int nameLength = name.getBytes(StandardCharsets.UTF_8).length;
+        int dataLength = value instanceof Long ? 8 : ((String) value).getBytes(StandardCharsets.UTF_8).length + 1;
+        return align(dataOffset(nameLength, value) + dataLength);
+    }
+
+    private static int align(int offset) {
+        return (offset + 7) & ~7;
+    }
+}
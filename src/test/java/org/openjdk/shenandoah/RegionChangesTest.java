@@ -0,0 +1,138 @@
+/*
+ * Copyright (c) 2023, Amazon.com, Inc. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Oracle designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package org.openjdk.shenandoah;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import static org.openjdk.shenandoah.RegionAffiliation.OLD;
+import static org.openjdk.shenandoah.RegionAffiliation.YOUNG;
+import static org.openjdk.shenandoah.RegionState.*;
+
+public class RegionChangesTest {
+    private static long word(int ordinal, RegionAffiliation affiliation, int used) {
+        return (long) ordinal << 58 | (long) affiliation.ordinal() << 56 | used;
+    }
+
+    private static long word(RegionState state, RegionAffiliation affiliation, int used) {
+        return word(state.publishedOrdinal(), affiliation, used);
+    }
+
+    @Test
+    public void testEverythingChangedWithoutPrevious() {
+        RegionChanges changes = RegionChanges.between(null, new long[3]);
+        Assert.assertFalse(changes.hasPrevious());
+        Assert.assertEquals(3, changes.changedCount());
+        Assert.assertTrue(changes.isChanged(2));
+        Assert.assertEquals(2, changes.nextChanged(2));
+        Assert.assertEquals(-1, changes.nextChanged(3));
+        Assert.assertEquals(0, changes.transitionCount());
+    }
+
+    @Test
+    public void testEverythingChangedWhenHeapResized() {
+        RegionChanges changes = RegionChanges.between(new long[2], new long[3]);
+        Assert.assertFalse(changes.hasPrevious());
+        Assert.assertEquals(3, changes.changedCount());
+    }
+
+    @Test
+    public void testLevelsChangeWithoutTransition() {
+        long[] before = {word(REGULAR, YOUNG, 10), word(REGULAR, YOUNG, 20)};
+        long[] after = {word(REGULAR, YOUNG, 10), word(REGULAR, YOUNG, 30)};
+        RegionChanges changes = RegionChanges.between(before, after);
+        Assert.assertTrue(changes.hasPrevious());
+        Assert.assertFalse(changes.isChanged(0));
+        Assert.assertTrue(changes.isChanged(1));
+        Assert.assertEquals(1, changes.changedCount());
+        Assert.assertEquals(0, changes.transitionCount());
+    }
+
+    @Test
+    public void testTypedTransitions() {
+        long[] before = {
+                word(REGULAR, YOUNG, 50),
+                word(CSET, YOUNG, 50),
+                word(TRASH, YOUNG, 0),
+                word(REGULAR, YOUNG, 80),
+                word(REGULAR, OLD, 80),
+        };
+        long[] after = {
+                word(CSET, YOUNG, 50),
+                word(TRASH, YOUNG, 0),
+                word(EMPTY_COMMITTED, RegionAffiliation.FREE, 0),
+                word(REGULAR, OLD, 80),
+                word(REGULAR, OLD, 80),
+        };
+        RegionChanges changes = RegionChanges.between(before, after);
+        Assert.assertEquals(4, changes.changedCount());
+        Assert.assertEquals(4, changes.transitionCount());
+        Assert.assertEquals(1, changes.count(REGULAR, CSET));
+        Assert.assertEquals(1, changes.count(CSET, TRASH));
+        Assert.assertEquals(1, changes.count(TRASH, EMPTY_COMMITTED));
+        Assert.assertEquals(1, changes.count(YOUNG, OLD));
+
+        RegionChanges.Transition promotion = changes.transition(3);
+        Assert.assertEquals(3, promotion.region());
+        Assert.assertEquals(REGULAR, promotion.from());
+        Assert.assertEquals(REGULAR, promotion.to());
+        Assert.assertEquals(YOUNG, promotion.fromAffiliation());
+        Assert.assertEquals(OLD, promotion.toAffiliation());
+    }
+
+    @Test
+    public void testHumongousContinuationIsNoTransition() {
+        // Start and continuation of a humongous object are both shown as humongous.
+        long[] before = {word(3, OLD, 100)};
+        long[] after = {word(4, OLD, 100)};
+        RegionChanges changes = RegionChanges.between(before, after);
+        Assert.assertEquals(1, changes.changedCount());
+        Assert.assertEquals(0, changes.transitionCount());
+    }
+
+    @Test
+    public void testAllocatedPromotedAndReclaimed() {
+        long[] before = {
+                word(REGULAR, YOUNG, 20),
+                word(REGULAR, OLD, 10),
+                word(REGULAR, YOUNG, 60),
+                word(CSET, YOUNG, 40),
+                word(REGULAR, YOUNG, 30),
+        };
+        long[] after = {
+                word(REGULAR, YOUNG, 50),
+                word(REGULAR, OLD, 25),
+                word(REGULAR, OLD, 60),
+                word(TRASH, YOUNG, 40),
+                word(REGULAR, YOUNG, 10),
+        };
+        RegionChanges changes = RegionChanges.between(before, after);
+        // Growth only, shrinking regions do not take back what was allocated.
+        Assert.assertEquals(30 + 15, changes.allocated());
+        // Growth of old regions, and the whole of a region promoted in place.
+        Assert.assertEquals(15 + 60, changes.promoted());
+        Assert.assertEquals(40, changes.reclaimed());
+    }
+}
@@ -0,0 +1,111 @@
+/*
+ * Copyright (c) 2023, Amazon.com, Inc. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Oracle designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package org.openjdk.shenandoah;
+
+import org.openjdk.jmh.annotations.*;
+import sun.jvmstat.monitor.MonitoredHost;
+import sun.jvmstat.monitor.MonitoredVm;
+import sun.jvmstat.monitor.VmIdentifier;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares reading every region word through jvmstat monitors with reading
+ * them from the mapped hsperfdata file. Both read the same synthetic file.
+ * Also measures what reading the default auxiliary counters adds to that.
+ * <p>
+ * Run with:
+ * <pre>
+ * mvn test-compile dependency:build-classpath -Dmdep.outputFile=cp.txt
+ * java -cp target/classes:target/test-classes:$(cat cp.txt) org.openjdk.jmh.Main RegionCountersBenchmark
+ * </pre>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = {"--add-exports", "jdk.internal.jvmstat/sun.jvmstat.monitor=ALL-UNNAMED"})
+public class RegionCountersBenchmark {
+    @Param({"2048", "16384", "131072"})
+    int regionCount;
+
+    @Param({"jvmstat", "mapped"})
+    String source;
+
+    private Path path;
+    private MonitoredVm vm;
+    private PerfCounters counters;
+    private RegionCounters regions;
+    private AuxiliaryCounters auxiliary;
+    private long[] data;
+
+    @Setup
+    public void setup() throws Exception {
+        long[] words = new long[regionCount];
+        for (int i = 0; i < words.length; i++) {
+            words[i] = (2L << 58) | i;
+        }
+        path = Files.createTempFile("hsperfdata", null);
+        new PerfDataWriter()
+                .add("sun.rt.safepointTime", 1234)
+                .add("sun.gc.tlab.fills", 5678)
+                .regions(256, 0, words)
+                .write(path);
+
+        if (source.equals("jvmstat")) {
+            VmIdentifier id = new VmIdentifier("file:" + path);
+            vm = MonitoredHost.getMonitoredHost(id).getMonitoredVm(id);
+            counters = new JvmstatCounters(vm);
+        } else {
+            counters = PerfDataFile.open(path);
+        }
+        regions = new RegionCounters(counters);
+        auxiliary = AuxiliaryCounters.parse(AuxiliaryCounters.DEFAULT_SPEC).bind(counters);
+        data = new long[regions.maxRegions()];
+    }
+
+    @TearDown
+    public void tearDown() throws Exception {
+        if (vm != null) {
+            vm.detach();
+        }
+        Files.deleteIfExists(path);
+    }
+
+    @Benchmark
+    public long[] read() {
+        regions.read(data);
+        return data;
+    }
+
+    @Benchmark
+    public long[] readWithAuxiliary() {
+        regions.read(data);
+        return auxiliary.read(counters);
+    }
+}
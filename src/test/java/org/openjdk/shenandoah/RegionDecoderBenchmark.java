@@ -0,0 +1,90 @@
+/*
+ * Copyright (c) 2023, Amazon.com, Inc. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Oracle designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package org.openjdk.shenandoah;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the scalar and vector region decoders, on their own and as
+ * part of summarizing a snapshot.
+ * <p>
+ * Run with:
+ * <pre>
+ * mvn test-compile dependency:build-classpath -Dmdep.outputFile=cp.txt
+ * java --add-modules jdk.incubator.vector -cp target/classes:target/test-classes:$(cat cp.txt) org.openjdk.jmh.Main RegionDecoderBenchmark
+ * </pre>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+// Inlined into the measurement loop, which is compiled on stack replacement,
+// the vector operations fall back to boxing; summaries call decode() as is.
+@Fork(value = 1, jvmArgsAppend = {"--add-modules", "jdk.incubator.vector",
+        "-XX:CompileCommand=dontinline,org.openjdk.shenandoah.*RegionDecoder::decode"})
+public class RegionDecoderBenchmark {
+    @Param({"2048", "16384", "131072", "262144"})
+    int regionCount;
+
+    @Param({"scalar", "vector"})
+    String decoder;
+
+    private long[] words;
+    private RegionDecoder regionDecoder;
+    private RegionColumns columns;
+
+    @Setup
+    public void setup() {
+        System.setProperty("region.decoder", decoder);
+        regionDecoder = decoder.equals("vector") ? new VectorRegionDecoder() : new ScalarRegionDecoder();
+        if (!RegionDecoder.INSTANCE.name().equals(decoder)) {
+            throw new IllegalStateException("Summaries decode with " + RegionDecoder.INSTANCE.name());
+        }
+        Random random = new Random(42);
+        words = new long[regionCount];
+        for (int i = 0; i < words.length; i++) {
+            long state = random.nextInt(10);
+            long affiliation = state <= 1 ? 0 : 1 + random.nextInt(2);
+            words[i] = state << 58 | affiliation << 56 | (long) random.nextInt(16) << 51
+                    | (long) random.nextInt(101) << 7 | random.nextInt(101);
+        }
+        columns = new RegionColumns(regionCount);
+    }
+
+    @Benchmark
+    public RegionColumns decode() {
+        regionDecoder.decode(words, 0, words.length, columns);
+        return columns;
+    }
+
+    @Benchmark
+    public SnapshotSummary summary() {
+        return new SnapshotSummary(256, words);
+    }
+}
@@ -0,0 +1,74 @@
+/*
+ * Copyright (c) 2023, Amazon.com, Inc. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Oracle designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package org.openjdk.shenandoah;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.Random;
+
+public class RegionDecoderTest {
+    private static final int WORDS = 1000;
+
+    @Test
+    public void testScalarDecoder() {
+        check(new ScalarRegionDecoder());
+    }
+
+    @Test
+    public void testVectorDecoder() {
+        VectorRegionDecoder decoder;
+        try {
+            decoder = new VectorRegionDecoder();
+        } catch (UnsupportedOperationException e) {
+            // Vectors too narrow on this machine.
+            return;
+        }
+        check(decoder);
+    }
+
+    // Odd offsets and counts leave a tail for the vector decoder.
+    private static void check(RegionDecoder decoder) {
+        long[] words = new Random(42).longs(WORDS).toArray();
+        RegionColumns columns = new RegionColumns(WORDS);
+        for (int from : new int[] {0, 3}) {
+            int count = WORDS - 2 * from - 1;
+            decoder.decode(words, from, count, columns);
+            for (int row = 0; row < count; row++) {
+                long word = words[from + row];
+                String at = decoder.name() + " at " + row;
+                Assert.assertEquals(at, RegionStat.used(word), columns.used[row] / 100F, 0);
+                Assert.assertEquals(at, RegionStat.live(word), columns.live[row] / 100F, 0);
+                Assert.assertEquals(at, RegionStat.tlabAllocs(word), columns.tlab[row] / 100F, 0);
+                Assert.assertEquals(at, RegionStat.gclabAllocs(word), columns.gclab[row] / 100F, 0);
+                Assert.assertEquals(at, RegionStat.sharedAllocs(word), columns.shared[row] / 100F, 0);
+                Assert.assertEquals(at, RegionStat.plabAllocs(word), columns.plab[row] / 100F, 0);
+                Assert.assertEquals(at, RegionStat.age(word), columns.age[row]);
+                Assert.assertEquals(at, (word >>> 56) & 0x3, columns.affiliation[row]);
+                Assert.assertEquals(at, (word >>> 58) & 0x3f, columns.state[row]);
+            }
+        }
+    }
+}
@@ -0,0 +1,161 @@
+/*
+ * Copyright (c) 2023, Amazon.com, Inc. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Oracle designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package org.openjdk.shenandoah;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.nio.file.Path;
+import java.util.function.IntPredicate;
+
+public class RegionSamplerTest {
+    private static final long REGULAR = 2L << 58;
+    private static final long TRASH = 7L << 58;
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private Path path;
+
+    /**
+     * Reads the regions as if the JVM were halfway through rewriting them,
+     * on the bulk reads the predicate picks.
+     */
+    private static class TearingCounters implements PerfCounters {
+        private final PerfCounters counters;
+        private final IntPredicate tear;
+        private int bulkReads;
+
+        TearingCounters(PerfCounters counters, IntPredicate tear) {
+            this.counters = counters;
+            this.tear = tear;
+        }
+
+        @Override
+        public int find(String name) {
+            return counters.find(name);
+        }
+
+        @Override
+        public long get(int handle) {
+            return counters.get(handle);
+        }
+
+        @Override
+        public void get(int[] handles, long[] values) {
+            counters.get(handles, values);
+            if (values.length > 1 && tear.test(bulkReads++)) {
+                values[values.length - 1] = TRASH;
+            }
+        }
+    }
+
+    @Before
+    public void setup() throws Exception {
+        path = folder.newFile("1234").toPath();
+        write(1, 0);
+    }
+
+    private void write(long timestamp, long status) throws Exception {
+        write(timestamp, status, REGULAR | 10, REGULAR | 20, REGULAR | 30);
+    }
+
+    private void write(long timestamp, long status, long... regions) throws Exception {
+        new PerfDataWriter()
+                .regions(256, status, regions)
+                .add("sun.gc.shenandoah.regions.timestamp", timestamp)
+                .write(path);
+    }
+
+    private RegionSampler sampler(IntPredicate tear, int readRetries) throws Exception {
+        return new RegionSampler(new TearingCounters(PerfDataFile.open(path), tear), AuxiliaryCounters.NONE, null, readRetries);
+    }
+
+    @Test
+    public void testTakesUntornReadsAsConsistent() throws Exception {
+        RegionSampler sampler = sampler(read -> false, 2);
+        Snapshot snapshot = sampler.sample(() -> null);
+        Assert.assertTrue(snapshot.isConsistent());
+        Assert.assertEquals(0, sampler.retries());
+    }
+
+    @Test
+    public void testRetriesReadTornByPublishUnderWay() throws Exception {
+        RegionSampler sampler = sampler(read -> read == 0, 2);
+        Snapshot snapshot = sampler.sample(() -> null);
+        Assert.assertTrue(snapshot.isConsistent());
+        Assert.assertEquals(RegionState.REGULAR, snapshot.get(2).state());
+        Assert.assertEquals(1, sampler.retries());
+        Assert.assertEquals(0, sampler.inconsistentReads());
+    }
+
+    @Test
+    public void testGivesUpAfterRetries() throws Exception {
+        RegionSampler sampler = sampler(read -> read % 2 == 0, 1);
+        Snapshot snapshot = sampler.sample(() -> null);
+        Assert.assertFalse(snapshot.isConsistent());
+        Assert.assertEquals(1, sampler.retries());
+        Assert.assertEquals(1, sampler.inconsistentReads());
+    }
+
+    @Test
+    public void testOnlyChecksStatusWithoutRetries() throws Exception {
+        RegionSampler sampler = sampler(read -> {
+            try {
+                // The JVM starts a new publish while the regions are read.
+                write(2, 1);
+            } catch (Exception e) {
+                throw new AssertionError(e);
+            }
+            return false;
+        }, 0);
+        Snapshot snapshot = sampler.sample(() -> null);
+        Assert.assertFalse(snapshot.isConsistent());
+        Assert.assertEquals(0, sampler.retries());
+        Assert.assertEquals(1, sampler.inconsistentReads());
+    }
+
+    @Test
+    public void testTellsWhatChangedSinceLastSnapshot() throws Exception {
+        RegionSampler sampler = sampler(read -> false, 2);
+        Snapshot first = sampler.sample(() -> null);
+        Assert.assertFalse(first.changes().hasPrevious());
+        Assert.assertEquals(3, first.changes().changedCount());
+
+        write(2, 0, REGULAR | 10, REGULAR | 25, TRASH);
+        Snapshot second = sampler.sample(() -> null);
+        RegionChanges changes = second.changes();
+        Assert.assertTrue(changes.hasPrevious());
+        Assert.assertEquals(2, changes.changedCount());
+        Assert.assertEquals(1, changes.nextChanged(0));
+        Assert.assertEquals(2, changes.nextChanged(2));
+        Assert.assertEquals(1, changes.transitionCount());
+        Assert.assertEquals(2, changes.transition(0).region());
+        Assert.assertEquals(RegionState.TRASH, changes.transition(0).to());
+    }
+}
@@ -0,0 +1,90 @@
+/*
+ * Copyright (c) 2023, Amazon.com, Inc. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Oracle designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package org.openjdk.shenandoah;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class RetentionPolicyTest {
+    private static final int REGIONS = 100;
+
+    @Test
+    public void testKeepsLastSnapshotsByDefault() {
+        SnapshotLog log = new SnapshotLog(RetentionPolicy.lastSnapshots(3));
+        add(log, 0, 100, 200, 300, 400);
+        Assert.assertEquals(3, log.size());
+        Assert.assertEquals(200, log.first().time());
+        Assert.assertEquals(3 * snapshot(0).footprint(), log.bytes());
+    }
+
+    @Test
+    public void testKeepsLastMinutes() {
+        SnapshotLog log = new SnapshotLog(RetentionPolicy.of(1, 0));
+        add(log, 0, 30_000, 60_000, 90_000, 100_000);
+        Assert.assertEquals(60_000, log.first().time());
+        Assert.assertEquals(40_000, log.span());
+    }
+
+    @Test
+    public void testKeepsAtMostMegabytes() {
+        long footprint = snapshot(0).footprint();
+        SnapshotLog log = new SnapshotLog(RetentionPolicy.of(0, 1));
+        int count = (int) (1024 * 1024 / footprint);
+        for (int i = 0; i < 3 * count; i++) {
+            log.add(snapshot(i));
+        }
+        Assert.assertEquals(count, log.size());
+        Assert.assertTrue(log.bytes() <= 1024 * 1024);
+        Assert.assertEquals(2 * count, log.first().time());
+    }
+
+    @Test
+    public void testEvictionKeepsTheCursorOnItsSnapshot() {
+        SnapshotLog log = new SnapshotLog(RetentionPolicy.lastSnapshots(3));
+        add(log, 0, 100, 200);
+        log.stepBy(2);
+        add(log, 300);
+        Assert.assertEquals(100, log.current().time());
+        add(log, 400);
+        Assert.assertEquals(200, log.current().time());
+        Assert.assertEquals(2, log.currentSequence());
+    }
+
+    @Test
+    public void testAlwaysKeepsTheNewestSnapshot() {
+        Assert.assertFalse(RetentionPolicy.of(1, 1).isExceeded(1, Long.MAX_VALUE, Long.MAX_VALUE));
+        Assert.assertTrue(RetentionPolicy.of(1, 1).isExceeded(2, 0, 60_001));
+    }
+
+    private static void add(SnapshotLog log, long... times) {
+        for (long time : times) {
+            log.add(snapshot(time));
+        }
+    }
+
+    private static Snapshot snapshot(long time) {
+        return new Snapshot.Builder(time, 1024, 2, new long[REGIONS], 0).build();
+    }
+}
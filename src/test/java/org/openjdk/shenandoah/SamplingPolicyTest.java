@@ -0,0 +1,78 @@
+/*
+ * Copyright (c) 2023, Amazon.com, Inc. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Oracle designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package org.openjdk.shenandoah;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class SamplingPolicyTest {
+    @Test
+    public void testFixedPolicyNeverChanges() {
+        SamplingPolicy policy = SamplingPolicy.fixed(100);
+        Assert.assertFalse(policy.isAdaptive());
+        Assert.assertEquals(100, policy.next(false));
+        Assert.assertEquals(100, policy.next(true));
+    }
+
+    @Test
+    public void testBacksOffWhileIdle() {
+        SamplingPolicy policy = SamplingPolicy.adaptive(10, 100);
+        Assert.assertEquals(20, policy.next(false));
+        Assert.assertEquals(40, policy.next(false));
+        Assert.assertEquals(80, policy.next(false));
+        Assert.assertEquals(100, policy.next(false));
+        Assert.assertEquals(100, policy.next(false));
+    }
+
+    @Test
+    public void testDropsToFloorDuringCycle() {
+        SamplingPolicy policy = SamplingPolicy.adaptive(10, 100);
+        policy.next(false);
+        policy.next(false);
+        Assert.assertEquals(10, policy.next(true));
+        Assert.assertEquals(10, policy.interval());
+    }
+
+    @Test
+    public void testParsesRange() {
+        SamplingPolicy policy = SamplingPolicy.parseAdaptive("5:1000");
+        Assert.assertTrue(policy.isAdaptive());
+        Assert.assertEquals(5, policy.interval());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testRejectsInvertedRange() {
+        SamplingPolicy.parseAdaptive("100:10");
+    }
+
+    @Test
+    public void testCycleActiveFromStatus() {
+        Assert.assertFalse(Snapshot.isCycleActive(0, 2));
+        Assert.assertTrue(Snapshot.isCycleActive(0x10, 2)); // young marking
+        Assert.assertTrue(Snapshot.isCycleActive(0x04, 2)); // old marking
+        Assert.assertTrue(Snapshot.isCycleActive(0x40, 2)); // degenerated
+        Assert.assertTrue(Snapshot.isCycleActive(4, 1));    // update refs
+    }
+}
@@ -0,0 +1,224 @@
+/*
+ * Copyright (c) 2023, Amazon.com, Inc. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Oracle designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package org.openjdk.shenandoah;
+
+import org.HdrHistogram.Histogram;
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ConcurrentModificationException;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+public class SnapshotSpillTest {
+    private static final int REGIONS = 1000;
+    private static final int RECORD_BYTES = 68 + 8 * REGIONS + 8;
+    private static final int SEGMENT_BYTES = 4 * RECORD_BYTES;
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void testReadsBackWhatWasSpilled() throws Exception {
+        SnapshotSpill spill = new SnapshotSpill(folder.getRoot().toPath(),
+                new SpillBudget(folder.getRoot().toPath(), 1L << 30), 4 * RECORD_BYTES);
+        AuxiliaryCounters counters = AuxiliaryCounters.parse("sun.rt.safepointTime/s");
+        Histogram pauses = new Histogram(2);
+        pauses.recordValue(42);
+        Random random = new Random(7);
+        Snapshot[] snapshots = new Snapshot[10];
+        for (int i = 0; i < snapshots.length; i++) {
+            long[] regions = random.longs(REGIONS).toArray();
+            HeapRates rates = HeapRates.restore(i, 1.5 * i, 2, 3, i > 0);
+            snapshots[i] = new Snapshot.Builder(i * 100, 1024, 2, regions, 0x12 | (i == 5 ? 0x40 : 0))
+                    .histogram(i < 5 ? null : pauses)
+                    .sessionStart(i == 0)
+                    .auxiliary(counters, new long[] {i})
+                    .consistent(i != 3)
+                    .rates(rates)
+                    .build();
+            Assert.assertEquals(0, spill.add(snapshots[i]));
+        }
+
+        Assert.assertEquals(snapshots.length, spill.size());
+        for (int i = 0; i < snapshots.length; i++) {
+            Snapshot read = spill.get(i);
+            Assert.assertEquals(snapshots[i], read);
+            Assert.assertEquals(snapshots[i].time(), spill.time(i));
+            Assert.assertEquals(snapshots[i].total(), read.total());
+            Assert.assertEquals(snapshots[i].isDegenActive(), read.isDegenActive());
+            Assert.assertEquals(snapshots[i].isSessionStart(), read.isSessionStart());
+            Assert.assertEquals(snapshots[i].isConsistent(), read.isConsistent());
+            Assert.assertSame(counters, read.auxiliaryCounters());
+            Assert.assertEquals(i, read.auxiliaryValue(0));
+            Assert.assertEquals(snapshots[i].rates().allocation(), read.rates().allocation(), 0);
+            Assert.assertEquals(snapshots[i].rates().isKnown(), read.rates().isKnown());
+            Assert.assertEquals(snapshots[i].getSafepointTime(), read.getSafepointTime());
+        }
+    }
+
+    @Test
+    public void testOverwritesOldestSegmentsToStayUnderCap() throws Exception {
+        Path directory = folder.getRoot().toPath();
+        SnapshotSpill spill = new SnapshotSpill(directory, new SpillBudget(directory, 4 * SEGMENT_BYTES), SEGMENT_BYTES);
+        int dropped = 0;
+        for (int i = 0; i < 20; i++) {
+            dropped += spill.add(snapshot(i));
+        }
+        List<Snapshot> view = spill.view();
+        Assert.assertEquals(20, dropped + spill.size());
+        Assert.assertTrue(spill.bytes() <= 4 * SEGMENT_BYTES);
+        Assert.assertEquals(dropped, spill.get(0).time());
+        Assert.assertEquals(dropped, spill.time(0));
+        try (Stream<Path> files = Files.list(directory)) {
+            Assert.assertEquals(4, files.count());
+        }
+
+        // A view reads what was there when it was taken, until it is overwritten.
+        for (int i = 20; i < 24; i++) {
+            spill.add(snapshot(i));
+        }
+        Assert.assertEquals(19, view.get(view.size() - 1).time());
+        // Still decoded, so still there.
+        Assert.assertEquals(dropped, view.get(0).time());
+        try {
+            view.get(1);
+            Assert.fail("Read a snapshot from an overwritten segment");
+        } catch (ConcurrentModificationException expected) {
+        }
+        Assert.assertEquals(dropped + 4, spill.get(0).time());
+    }
+
+    @Test
+    public void testDiskUseStaysUnderCapFarPastIt() throws Exception {
+        Path directory = folder.getRoot().toPath();
+        long cap = 4 * SEGMENT_BYTES;
+        SnapshotSpill spill = new SnapshotSpill(directory, new SpillBudget(directory, cap), SEGMENT_BYTES);
+        Histogram pauses = new Histogram(2);
+        int dropped = 0;
+        for (int i = 0; i < 1000; i++) {
+            if (i % 7 == 0) {
+                // A new histogram now and then, so that records are not all alike.
+                pauses = new Histogram(2);
+                pauses.recordValue(i + 1);
+            }
+            dropped += spill.add(new Snapshot.Builder(i, 1024, 2, new long[REGIONS], 0).histogram(pauses).build());
+            Assert.assertEquals(i + 1, dropped + spill.size());
+            Assert.assertTrue(spill.bytes() <= cap);
+            Assert.assertTrue(diskBytes(directory) <= spill.bytes());
+        }
+        Assert.assertEquals(dropped, spill.get(0).time());
+        Assert.assertEquals(999, spill.get(spill.size() - 1).time());
+        try (Stream<Path> files = Files.list(directory)) {
+            Assert.assertEquals(spill.bytes() / SEGMENT_BYTES, files.count());
+        }
+    }
+
+    @Test
+    public void testClearedSegmentsTakeNoDisk() throws Exception {
+        Path directory = folder.getRoot().toPath();
+        SnapshotSpill spill = new SnapshotSpill(directory, new SpillBudget(directory, 4 * SEGMENT_BYTES), SEGMENT_BYTES);
+        for (int i = 0; i < 8; i++) {
+            spill.add(snapshot(i));
+        }
+        List<Snapshot> view = spill.view();
+        spill.clear();
+
+        // Nothing keeps the files, and views can tell they are gone.
+        try (Stream<Path> files = Files.list(directory)) {
+            Assert.assertEquals(0, files.count());
+        }
+        Assert.assertEquals(0, spill.bytes());
+        try {
+            view.get(7);
+            Assert.fail("Read a snapshot from a deleted segment");
+        } catch (ConcurrentModificationException expected) {
+        }
+    }
+
+    @Test
+    public void testSpillsShareOneBudget() throws Exception {
+        Path directory = folder.getRoot().toPath();
+        SpillBudget budget = new SpillBudget(directory, 8 * SEGMENT_BYTES);
+        SnapshotSpill first = budget.open();
+        SnapshotSpill second = budget.open();
+        for (int i = 0; i < 100; i++) {
+            first.add(snapshot(i));
+            second.add(snapshot(i));
+        }
+        Assert.assertTrue(first.bytes() + second.bytes() <= 8 * SEGMENT_BYTES);
+        second.close();
+        Assert.assertEquals(0, second.size());
+        Assert.assertEquals(8 * SEGMENT_BYTES, budget.share());
+    }
+
+    @Test
+    public void testLogReadsBothTiers() throws Exception {
+        RetentionPolicy retention = RetentionPolicy.lastSnapshots(5)
+                .spillingTo(folder.getRoot().toPath(), 1);
+        SnapshotLog log = new SnapshotLog(retention);
+        for (int i = 0; i < 50; i++) {
+            log.add(snapshot(i));
+        }
+        Assert.assertEquals(50, log.size());
+        Assert.assertEquals(5, log.inMemory());
+        Assert.assertTrue(log.diskBytes() > 0);
+        log.stepToEnd();
+        List<Snapshot> range = log.inRange();
+        for (int i = 0; i < 50; i++) {
+            Assert.assertEquals(i, range.get(i).time());
+        }
+        log.seekTo(12, TimeUnit.MILLISECONDS);
+        Assert.assertEquals(12, log.current().time());
+        Assert.assertEquals(12, log.currentSequence());
+
+        // Spilled snapshots read again are the same, so painting can tell what changed.
+        Assert.assertSame(range.get(12), log.current());
+        Assert.assertTrue(log.isCurrentAfter(log.inRange().get(12), range.get(11)));
+        log.close();
+        Assert.assertEquals(0, log.diskBytes());
+    }
+
+    private static long diskBytes(Path directory) throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            long bytes = 0;
+            for (Path file : (Iterable<Path>) files::iterator) {
+                bytes += Files.size(file);
+            }
+            return bytes;
+        }
+    }
+
+    private static Snapshot snapshot(long time) {
+        return new Snapshot.Builder(time, 1024, 2, new long[REGIONS], 0).build();
+    }
+}
@@ -0,0 +1,83 @@
+/*
+ * Copyright (c) 2023, Amazon.com, Inc. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Oracle designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package org.openjdk.shenandoah;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Summarizes snapshots in one pass, and in parts on pools of growing size,
+ * to find the region count from which splitting pays off, and how it
+ * scales with cores. A parallelism of 0 is the sequential pass.
+ * <p>
+ * Run with:
+ * <pre>
+ * mvn test-compile dependency:build-classpath -Dmdep.outputFile=cp.txt
+ * java -cp target/classes:target/test-classes:$(cat cp.txt) org.openjdk.jmh.Main SnapshotSummaryBenchmark
+ * </pre>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SnapshotSummaryBenchmark {
+    @Param({"16384", "32768", "65536", "131072", "262144", "1048576"})
+    int regionCount;
+
+    @Param({"0", "1", "2", "4", "8"})
+    int parallelism;
+
+    private long[] words;
+    private ForkJoinPool pool;
+
+    @Setup
+    public void setup() {
+        Random random = new Random(42);
+        words = new long[regionCount];
+        for (int i = 0; i < words.length; i++) {
+            long state = RegionState.values()[random.nextInt(RegionState.values().length)].publishedOrdinal();
+            long affiliation = state <= 1 ? 0 : 1 + random.nextInt(2);
+            words[i] = state << 58 | affiliation << 56 | (long) random.nextInt(16) << 51
+                    | (long) random.nextInt(101) << 28 | (long) random.nextInt(101) << 14
+                    | (long) random.nextInt(101) << 7 | random.nextInt(101);
+        }
+        pool = new ForkJoinPool(Math.max(1, parallelism));
+    }
+
+    @TearDown
+    public void tearDown() {
+        pool.shutdown();
+    }
+
+    @Benchmark
+    public SnapshotSummary summary() {
+        return new SnapshotSummary(256, words, pool, parallelism == 0 ? Integer.MAX_VALUE : 0);
+    }
+}